@@ -0,0 +1,234 @@
+package Backgammon;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import learner.LearnerSnapshots;
+import learner.SarsaLambda;
+
+/**
+ * Measures the strength of a frozen Backgammon policy by playing many games
+ * against a fixed opponent across all cores. Games are played in duplicate
+ * pairs (see BackgammonGame.evaluateDuplicate), using snapshots of the
+ * learner, so evaluating never changes the learner and can be done while it is
+ * still being trained.
+ * 
+ * @author Alex Braithwaite
+ * 
+ */
+public class BackgammonEvaluator {
+
+	/**
+	 * Opponents the policy can be evaluated against.
+	 */
+	public enum Opponent {
+		/**
+		 * Chooses uniformly between all available moves.
+		 */
+		RANDOM,
+		/**
+		 * Chooses the move with the best pip count, avoiding leaving blots.
+		 */
+		HEURISTIC
+	}
+
+	private Opponent opponent;
+	private ExecutorService executor;
+
+	/**
+	 * Snapshot of the policy being evaluated, copied by each thread.
+	 */
+	private LearnerSnapshots snapshots = new LearnerSnapshots();
+
+	private AtomicLong positionsEvaluated = new AtomicLong();
+	private double gamesPerSecond = 0;
+	private double positionsPerSecond = 0;
+
+	/**
+	 * Create an evaluator for a policy, frozen as it is now.
+	 * 
+	 * @param policy
+	 *            Learner to evaluate. Must be called from the thread updating
+	 *            it, but is not used again after the constructor returns.
+	 * @param opponent
+	 *            Opponent to play against.
+	 * @param numThreads
+	 *            Number of games to play concurrently.
+	 */
+	public BackgammonEvaluator(SarsaLambda policy, Opponent opponent, int numThreads) {
+		this.opponent = opponent;
+		this.snapshots.publish(policy);
+
+		this.executor = Executors.newFixedThreadPool(numThreads < 1 ? 1 : numThreads, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "EvaluationWorker");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	/**
+	 * Play a number of duplicate pairs of games against the opponent.
+	 * 
+	 * @param numPairs
+	 *            Number of pairs of games to play.
+	 * @param seed
+	 *            Seed for the dice of every game, so evaluations can be
+	 *            repeated exactly.
+	 * @return Win rate of the policy, with one sample per pair of games.
+	 */
+	public WinRateEstimate evaluate(int numPairs, long seed) {
+		long start = System.nanoTime();
+		long positionsStart = positionsEvaluated.get();
+
+		DiceStream gameSeeds = new DiceStream(seed);
+		CompletionService<Double> pairs = new ExecutorCompletionService<Double>(executor);
+		for (int i = 0; i < numPairs; i++) {
+			final long pairSeed = gameSeeds.nextSeed();
+			pairs.submit(new Callable<Double>() {
+				@Override
+				public Double call() {
+					SarsaLambda mine = snapshots.get();
+					boolean whiteWin = playGame(mine, true, pairSeed);
+					boolean blackWin = !playGame(mine, false, pairSeed);
+					return ((whiteWin ? 1 : 0) + (blackWin ? 1 : 0)) / 2.;
+				}
+			});
+		}
+
+		WinRateEstimate estimate = new WinRateEstimate();
+		for (int i = 0; i < numPairs; i++) {
+			try {
+				estimate.add(pairs.take().get());
+			} catch (InterruptedException | ExecutionException e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		double seconds = (System.nanoTime() - start) / 1000000000.;
+		gamesPerSecond = 2 * numPairs / seconds;
+		positionsPerSecond = (positionsEvaluated.get() - positionsStart) / seconds;
+
+		return estimate;
+	}
+
+	/**
+	 * Play a single game between the policy and the opponent.
+	 * 
+	 * @param mine
+	 *            This thread's copy of the policy.
+	 * @param aiWhite
+	 *            True if the policy plays white.
+	 * @param seed
+	 *            Seed for the dice and opponent.
+	 * @return True if white wins.
+	 */
+	private boolean playGame(SarsaLambda mine, boolean aiWhite, long seed) {
+		DiceStream dice = new DiceStream(seed);
+		DiceStream opponentMoves = dice.split();
+
+		Board current = new Board(dice);
+		while (!current.gameOver()) {
+			List<Board> nextBoards = new ArrayList<Board>(current.availableMoves());
+
+			if (current.whiteTurn() == aiWhite) {
+				positionsEvaluated.addAndGet(nextBoards.size());
+				current = BackgammonGame.selectMove(mine, nextBoards, aiWhite ? 0 : 1);
+			} else if (opponent == Opponent.HEURISTIC) {
+				current = heuristicMove(nextBoards, !aiWhite);
+			} else {
+				current = nextBoards.get(opponentMoves.nextInt(nextBoards.size()));
+			}
+		}
+		return current.whiteWin();
+	}
+
+	/**
+	 * Choose the move leaving the player furthest ahead in the race, with a
+	 * penalty for every blot left.
+	 * 
+	 * @param nextBoards
+	 * @param white
+	 *            True if white is choosing.
+	 * @return
+	 */
+	private static Board heuristicMove(List<Board> nextBoards, boolean white) {
+		double max = -Double.MAX_VALUE;
+		Board bestBoard = null;
+		for (Board nextBoard : nextBoards) {
+			double value = nextBoard.pipCount(!white) - nextBoard.pipCount(white) - 5 * nextBoard.blots(white);
+			if (value > max) {
+				max = value;
+				bestBoard = nextBoard;
+			}
+		}
+		return bestBoard;
+	}
+
+	/**
+	 * @return Games played per second in the last evaluation.
+	 */
+	public double gamesPerSecond() {
+		return gamesPerSecond;
+	}
+
+	/**
+	 * @return Positions evaluated by the policy per second in the last
+	 *         evaluation.
+	 */
+	public double positionsPerSecond() {
+		return positionsPerSecond;
+	}
+
+	/**
+	 * Stop all worker threads.
+	 */
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Evaluate a policy saved with SarsaLambda.save, such as by a Backgammon
+	 * simulation, with the settings it was saved with.
+	 * 
+	 * @param args
+	 *            Weights file, then optionally the number of pairs of games,
+	 *            the opponent (random or heuristic), the number of threads and
+	 *            the seed.
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.out.println("Usage: BackgammonEvaluator weightsFile [pairs] [random|heuristic] [threads] [seed]");
+			return;
+		}
+		String file = args[0];
+		int numPairs = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+		Opponent opponent = args.length > 2 ? Opponent.valueOf(args[2].toUpperCase()) : Opponent.RANDOM;
+		int numThreads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+		long seed = args.length > 4 ? Long.parseLong(args[4]) : 0;
+
+		SarsaLambda policy = SarsaLambda.read(file);
+
+		BackgammonEvaluator evaluator = new BackgammonEvaluator(policy, opponent, numThreads);
+		WinRateEstimate estimate = evaluator.evaluate(numPairs, seed);
+		evaluator.shutdown();
+
+		System.out.println("Evaluated " + file + " against " + opponent.toString().toLowerCase() + " opponent");
+		System.out.println("\tWin Rate  : " + estimate);
+		System.out.println("\tGames     : " + Math.round(evaluator.gamesPerSecond()) + " games/s");
+		System.out.println("\tPositions : " + Math.round(evaluator.positionsPerSecond()) + " positions/s");
+	}
+
+}
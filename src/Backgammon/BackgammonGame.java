@@ -5,7 +5,6 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
 import java.util.Set;
 
 import learner.Learner;
@@ -30,6 +29,38 @@ public class BackgammonGame implements Game {
 	private boolean drawing = false;
 	private BufferedReader br = new BufferedReader(new InputStreamReader(System.in));
 
+	/**
+	 * Number of AI vs AI games played concurrently each trial, and how stale
+	 * the weights used by those games may be. See SelfPlayTrainer.
+	 */
+	private int selfPlayWorkers = 1;
+	private int selfPlayStaleness = 1;
+	private SelfPlayTrainer selfPlayTrainer;
+
+	/**
+	 * Number of games in each match played per trial.
+	 */
+	private int matchLength = 1;
+
+	/**
+	 * Depth and time budget of the search used to choose the AI's moves. See
+	 * ExpectiminimaxSearch.
+	 */
+	private int searchPlies = 1;
+	private long searchTimeBudget = 0;
+	private ExpectiminimaxSearch search;
+
+	/**
+	 * Database used to play and learn from races once both players are
+	 * bearing off, null to use the learner throughout.
+	 */
+	private BearoffDatabase bearoffDatabase;
+
+	/**
+	 * Stream of seeds for each game's dice.
+	 */
+	private DiceStream gameSeeds = new DiceStream();
+
 	/**
 	 * When toDraw is on, outputs from certain games and summary data will be
 	 * sent to stdout.
@@ -40,9 +71,100 @@ public class BackgammonGame implements Game {
 		this.toDraw = toDraw;
 	}
 
+	/**
+	 * Play selfPlayWorkers AI vs AI games concurrently each trial instead of
+	 * one.
+	 * 
+	 * @param toDraw
+	 * @param selfPlayWorkers
+	 *            Number of AI vs AI games to play concurrently.
+	 * @param selfPlayStaleness
+	 *            Number of games the learner may learn from before the
+	 *            concurrent games are given its latest weights.
+	 */
+	public BackgammonGame(boolean toDraw, int selfPlayWorkers, int selfPlayStaleness) {
+		this.toDraw = toDraw;
+		this.selfPlayWorkers = selfPlayWorkers;
+		this.selfPlayStaleness = selfPlayStaleness;
+	}
+
+	/**
+	 * Set the number of games in each match played per trial. Each trial
+	 * plays a match of AI vs AI games, or matchLength games on each
+	 * self-play worker, then a match of AI vs random games.
+	 * 
+	 * @param matchLength
+	 */
+	public void setMatchLength(int matchLength) {
+		if (matchLength < 1)
+			throw new IllegalArgumentException("Match length must be at least 1: " + matchLength);
+		this.matchLength = matchLength;
+	}
+
+	/**
+	 * Choose the AI's moves with an n-ply expectiminimax search instead of
+	 * greedily. Must be called before setLeaner. AI vs AI games played by
+	 * self-play workers always choose greedily; with more than one worker the
+	 * search is only used against the random player.
+	 * 
+	 * @param plies
+	 *            Deepest search to perform, 1 for a greedy search.
+	 * @param timeBudget
+	 *            Time allowed per move in milliseconds, 0 for no limit.
+	 */
+	public void setSearch(int plies, long timeBudget) {
+		this.searchPlies = plies;
+		this.searchTimeBudget = timeBudget;
+	}
+
+	/**
+	 * Play races using a bear-off database, and train the learner towards the
+	 * database's evaluation of the first race position reached in each game.
+	 * The search, if any, also evaluates races with the database.
+	 * 
+	 * @param bearoffDatabase
+	 *            Database to use, or null to use the learner throughout.
+	 */
+	public void setBearoffDatabase(BearoffDatabase bearoffDatabase) {
+		this.bearoffDatabase = bearoffDatabase;
+		if (selfPlayTrainer != null)
+			selfPlayTrainer.setBearoffDatabase(bearoffDatabase);
+		if (search != null)
+			search.setBearoffDatabase(bearoffDatabase);
+	}
+
+	/**
+	 * Seed the dice of every following game, so runs can be reproduced.
+	 * 
+	 * @param seed
+	 */
+	public void setSeed(long seed) {
+		gameSeeds = new DiceStream(seed);
+		if (selfPlayTrainer != null)
+			selfPlayTrainer.setSeed(gameSeeds.nextSeed());
+	}
+
 	@Override
 	public void setLeaner(Learner brain) {
 		learner = brain;
+
+		if (search != null)
+			search.shutdown();
+		search = null;
+		if (searchPlies > 1) {
+			search = new ExpectiminimaxSearch((SarsaLambda) learner, searchPlies, searchTimeBudget);
+			search.setBearoffDatabase(bearoffDatabase);
+		}
+
+		if (selfPlayTrainer != null)
+			selfPlayTrainer.shutdown();
+		selfPlayTrainer = null;
+		if (selfPlayWorkers > 1)
+			selfPlayTrainer = new SelfPlayTrainer((SarsaLambda) learner, selfPlayWorkers, selfPlayStaleness);
+		if (selfPlayTrainer != null) {
+			selfPlayTrainer.setBearoffDatabase(bearoffDatabase);
+			selfPlayTrainer.setSeed(gameSeeds.nextSeed());
+		}
 	}
 
 	@Override
@@ -51,20 +173,27 @@ public class BackgammonGame implements Game {
 
 	@Override
 	public void teardown() {
-		// nothing to do here
+		if (selfPlayTrainer != null)
+			selfPlayTrainer.shutdown();
+		if (search != null)
+			search.shutdown();
 	}
 
 	@Override
 	public double runTrial() {
 		trialNum++;
-		int matchLength = 1;
 
 		// play AI vs AI
 		boolean playWhite = true;
 		boolean playBlack = true;
 		boolean learn = true;
-		boolean whiteWin = playMatch(matchLength, playWhite, playBlack, learn);
-		whiteAIvAIWinRate += ((whiteWin ? 100 : 0) - whiteAIvAIWinRate) / 20;
+		if (selfPlayTrainer != null) {
+			for (boolean whiteWin : selfPlayTrainer.playGames(selfPlayWorkers * matchLength))
+				whiteAIvAIWinRate += ((whiteWin ? 100 : 0) - whiteAIvAIWinRate) / 20;
+		} else {
+			boolean whiteWin = playMatch(matchLength, playWhite, playBlack, learn);
+			whiteAIvAIWinRate += ((whiteWin ? 100 : 0) - whiteAIvAIWinRate) / 20;
+		}
 
 		// play AI vs random (AI controls random player)
 		playWhite = trialNum % 2 == 0;// new Random().nextBoolean();
@@ -88,8 +217,8 @@ public class BackgammonGame implements Game {
 			System.out.println("* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * ");
 			System.out.println("Match Group " + trialNum);
 			System.out.println("Number of games");
-			System.out.println("\tTotal        : " + trialNum * matchLength * 2);
-			System.out.println("\tAI vs AI     : " + trialNum * matchLength);
+			System.out.println("\tTotal        : " + trialNum * matchLength * (1 + selfPlayWorkers));
+			System.out.println("\tAI vs AI     : " + trialNum * matchLength * selfPlayWorkers);
 			System.out.println("\tAI vs random : " + trialNum * matchLength);
 			System.out.println("Win Rates");
 			System.out.println("\tAI vs AI");
@@ -101,6 +230,10 @@ public class BackgammonGame implements Game {
 
 			System.out.println("Estimated Ranking");
 			System.out.println("\t" + Math.round(rank));
+			if (selfPlayTrainer != null) {
+				System.out.println("Self Play Throughput");
+				System.out.println("\t" + Math.round(selfPlayTrainer.gamesPerSecond()) + " games/s");
+			}
 
 			// System.out.println(learner.toString());
 		}
@@ -143,6 +276,25 @@ public class BackgammonGame implements Game {
 	 * @return True if white wins
 	 */
 	public boolean runGame(boolean playWhite, boolean playBlack, boolean learn) {
+		return runGame(playWhite, playBlack, learn, gameSeeds.nextSeed());
+	}
+
+	/**
+	 * Runs a single game with seeded dice. Games with the same seed have the
+	 * same starting player and sequence of rolls, whichever players are
+	 * controlled by the AI.
+	 * 
+	 * @param playWhite
+	 *            True if AI is controlling white player
+	 * @param playBlack
+	 *            True if AI is controlling black player
+	 * @param learn
+	 *            True if AI is learning from this game
+	 * @param seed
+	 *            Seed for the dice and random player
+	 * @return True if white wins
+	 */
+	public boolean runGame(boolean playWhite, boolean playBlack, boolean learn, long seed) {
 
 		if (learn)
 			learner.reset();
@@ -162,7 +314,12 @@ public class BackgammonGame implements Game {
 			e1.printStackTrace();
 		}
 
-		Board current = new Board();
+		// the random player has its own stream, so its moves do not change
+		// the rolls
+		DiceStream dice = new DiceStream(seed);
+		DiceStream randomPlayer = dice.split();
+
+		Board current = new Board(dice);
 		@SuppressWarnings("unused")
 		Board prev = current;
 
@@ -192,6 +349,16 @@ public class BackgammonGame implements Game {
 
 			prev = current;
 
+			// once in a race the result is known from the database, so learn
+			// it and stop learning from the rest of the game
+			boolean race = bearoffDatabase != null && current.isBearOffRace();
+			if (learn && race) {
+				double whiteWinChance = bearoffDatabase.whiteWinChance(current);
+				learner.forceAction(current.getBoardState(), whiteWinChance, 0, 0);
+				learner.forceAction(current.getBoardState(), 1 - whiteWinChance, 1, 1);
+				learn = false;
+			}
+
 			// train learner
 			// output 0 calculates chance of white winning
 			// output 1 calculates chance of black winning
@@ -205,21 +372,15 @@ public class BackgammonGame implements Game {
 
 			// selecting next board
 			if (playWhite == current.whiteTurn() || playBlack == !current.whiteTurn()) {
-				double max = -Double.MAX_VALUE;
-				Board bestBoard = null;
-				for (Board nextBoard : nextBoardsList) {
-					List<Double> boardState = nextBoard.getBoardState();
-
-					double winChance = ((SarsaLambda) learner).evaluateState(boardState).get(playWhite ? 0 : 1);
-
-					if (winChance > max) {
-						max = winChance;
-						bestBoard = nextBoard;
-					}
-				}
-				current = bestBoard;
+				if (race)
+					current = bearoffDatabase.selectMove(nextBoardsList);
+				else if (search != null)
+					current = search.selectMove(current, nextBoardsList);
+				else
+					// each side maximises its own chance of winning
+					current = selectMove(learner, nextBoardsList, current.whiteTurn() ? 0 : 1);
 			} else {
-				current = nextBoardsList.get(new Random().nextInt(nextBoardsList.size()));
+				current = nextBoardsList.get(randomPlayer.nextInt(nextBoardsList.size()));
 			}
 		}
 
@@ -231,4 +392,64 @@ public class BackgammonGame implements Game {
 		return current.whiteWin();
 	}
 
+	/**
+	 * Estimate the AI's win rate against the random player using duplicate
+	 * games. Each pair of games uses the same dice, with the AI playing white
+	 * in one and black in the other, so the luck of the dice largely cancels
+	 * out and far fewer games are needed than when every game has different
+	 * dice. The AI does not learn from these games.
+	 * 
+	 * @param confidence
+	 *            Confidence level of the interval, such as 0.95.
+	 * @param targetInterval
+	 *            Stop once the confidence interval is this narrow, as a
+	 *            percentage.
+	 * @param maxPairs
+	 *            Stop after this many pairs of games regardless.
+	 * @return Estimate with one sample per pair of games.
+	 */
+	public WinRateEstimate evaluateDuplicate(double confidence, double targetInterval, int maxPairs) {
+		int minPairs = 10;
+
+		WinRateEstimate estimate = new WinRateEstimate();
+		for (int i = 0; i < maxPairs; i++) {
+			long seed = gameSeeds.nextSeed();
+			boolean whiteWin = runGame(true, false, false, seed);
+			boolean blackWin = !runGame(false, true, false, seed);
+			estimate.add(((whiteWin ? 1 : 0) + (blackWin ? 1 : 0)) / 2.);
+
+			if (i + 1 >= minPairs && estimate.getConfidenceInterval(confidence) <= targetInterval)
+				break;
+		}
+		return estimate;
+	}
+
+	/**
+	 * Greedily select the move with the highest evaluation.
+	 * 
+	 * @param learner
+	 *            Learner used to evaluate each board.
+	 * @param nextBoards
+	 *            Boards available to move to.
+	 * @param output
+	 *            Output of the learner to maximise; 0 for white's chance of
+	 *            winning, 1 for black's.
+	 * @return Board with the highest evaluation.
+	 */
+	public static Board selectMove(Learner learner, List<Board> nextBoards, int output) {
+		double max = -Double.MAX_VALUE;
+		Board bestBoard = null;
+		for (Board nextBoard : nextBoards) {
+			List<Double> boardState = nextBoard.getBoardState();
+
+			double winChance = learner.evaluateState(boardState).get(output);
+
+			if (winChance > max) {
+				max = winChance;
+				bestBoard = nextBoard;
+			}
+		}
+		return bestBoard;
+	}
+
 }
@@ -0,0 +1,374 @@
+package Backgammon;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.math3.distribution.NormalDistribution;
+
+/**
+ * One-sided bear-off database. Stores the mean and standard deviation of the
+ * number of rolls needed to bear off every position of up to 15 pieces in a
+ * home board, when playing to bear off in as few rolls as possible. Uses the
+ * same rules as Board, so pieces may only be borne off with an exact roll.
+ * 
+ * The database is generated once by running main, and memory mapped when
+ * loaded. Once both players are bearing off they can no longer interact, so
+ * these give near exact chances of winning the race without using the
+ * learner.
+ * 
+ * @author Alex Braithwaite
+ * 
+ */
+public class BearoffDatabase {
+
+	public static final String defaultFile = "bearoff.db";
+
+	private static final int magic = 0x4247424f;
+	private static final int version = 1;
+	private static final int headerSize = 12;
+
+	/**
+	 * Values are stored as fixed point chars, in units of 1 / scale rolls.
+	 */
+	private static final double scale = 1024;
+
+	private static final int points = 6;
+	private static final int maxPieces = 15;
+
+	/**
+	 * Number of positions of up to 15 pieces on 6 points, C(21, 6).
+	 */
+	public static final int numPositions = (int) binomial(maxPieces + points, points);
+
+	private MappedByteBuffer buffer;
+	private NormalDistribution normal = new NormalDistribution(0, 1);
+
+	/**
+	 * Load a database generated by main.
+	 * 
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	public static BearoffDatabase load(String file) throws IOException {
+		BearoffDatabase db = new BearoffDatabase();
+		try (FileChannel channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ)) {
+			db.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		if (db.buffer.capacity() != headerSize + 4 * numPositions || db.buffer.getInt(0) != magic
+				|| db.buffer.getInt(4) != version || db.buffer.getInt(8) != numPositions) {
+			throw new IOException(file + " is not a bear-off database");
+		}
+		return db;
+	}
+
+	/**
+	 * Get the mean number of rolls to bear off a position.
+	 * 
+	 * @param home
+	 *            Number of pieces on each point, as given by Board.homeBoard.
+	 * @return
+	 */
+	public double expectedRolls(int[] home) {
+		return buffer.getChar(headerSize + 4 * index(home)) / scale;
+	}
+
+	/**
+	 * Get the standard deviation of the number of rolls to bear off a
+	 * position.
+	 * 
+	 * @param home
+	 *            Number of pieces on each point, as given by Board.homeBoard.
+	 * @return
+	 */
+	public double rollsDeviation(int[] home) {
+		return buffer.getChar(headerSize + 4 * index(home) + 2) / scale;
+	}
+
+	/**
+	 * Get white's chance of winning a race. The player to move wins if they
+	 * need no more rolls than their opponent, which is estimated by
+	 * approximating the difference in rolls needed with a normal distribution.
+	 * 
+	 * @param board
+	 *            Board where Board.isBearOffRace holds.
+	 * @return Chance of white winning, from 0 to 1.
+	 */
+	public double whiteWinChance(Board board) {
+		if (board.gameOver())
+			return board.whiteWin() ? 1 : 0;
+
+		int[] mover = board.homeBoard(board.whiteTurn());
+		int[] other = board.homeBoard(!board.whiteTurn());
+
+		double mean = expectedRolls(other) - expectedRolls(mover) + 0.5;
+		double deviation = Math.sqrt(Math.pow(rollsDeviation(mover), 2) + Math.pow(rollsDeviation(other), 2));
+		double moverWin = deviation == 0 ? (mean > 0 ? 1 : 0) : normal.cumulativeProbability(mean / deviation);
+
+		return board.whiteTurn() ? moverWin : 1 - moverWin;
+	}
+
+	/**
+	 * Select the move giving the player to move the best chance of winning the
+	 * race.
+	 * 
+	 * @param nextBoards
+	 *            Boards available to move to, all in a race.
+	 * @return
+	 */
+	public Board selectMove(List<Board> nextBoards) {
+		double max = -Double.MAX_VALUE;
+		Board bestBoard = null;
+		for (Board nextBoard : nextBoards) {
+			// the opponent is to move in every next board
+			double whiteWin = whiteWinChance(nextBoard);
+			double winChance = nextBoard.whiteTurn() ? 1 - whiteWin : whiteWin;
+
+			if (winChance > max) {
+				max = winChance;
+				bestBoard = nextBoard;
+			}
+		}
+		return bestBoard;
+	}
+
+	/**
+	 * Index a position, using the combinatorial number system. Each position
+	 * corresponds to choosing where to put 6 dividers between 15 pieces.
+	 * 
+	 * @param home
+	 * @return Unique index from 0 to numPositions - 1.
+	 */
+	private static int index(int[] home) {
+		int index = 0;
+		int pieces = 0;
+		for (int i = 0; i < points; i++) {
+			pieces += home[i];
+			index += binomial(pieces + i, i + 1);
+		}
+		return index;
+	}
+
+	private static long binomial(int n, int k) {
+		if (k < 0 || k > n)
+			return 0;
+		long result = 1;
+		for (int i = 1; i <= k; i++) {
+			result = result * (n - k + i) / i;
+		}
+		return result;
+	}
+
+	/**
+	 * Get every position reachable with a single die.
+	 * 
+	 * @param home
+	 * @param die
+	 * @return
+	 */
+	private static Set<List<Integer>> moves(List<Integer> home, int die) {
+		Set<List<Integer>> result = new HashSet<List<Integer>>();
+		for (int point = 1; point <= points; point++) {
+			// pieces can only be borne off with an exact roll
+			if (home.get(point - 1) > 0 && point - die >= 0) {
+				List<Integer> moved = new ArrayList<Integer>(home);
+				moved.set(point - 1, moved.get(point - 1) - 1);
+				if (point - die > 0)
+					moved.set(point - die - 1, moved.get(point - die - 1) + 1);
+				result.add(moved);
+			}
+		}
+		return result;
+	}
+
+	private static Set<List<Integer>> moves(Set<List<Integer>> homes, int die) {
+		Set<List<Integer>> result = new HashSet<List<Integer>>();
+		for (List<Integer> home : homes) {
+			result.addAll(moves(home, die));
+		}
+		return result;
+	}
+
+	/**
+	 * Get every position reachable with a roll, preferring to use as much of
+	 * the roll as possible in the same way as Board.availableMoves.
+	 * 
+	 * @param home
+	 * @param dice1
+	 * @param dice2
+	 * @return Positions reachable, empty if no move is possible.
+	 */
+	private static Set<List<Integer>> moves(List<Integer> home, int dice1, int dice2) {
+		Set<List<Integer>> start = new HashSet<List<Integer>>();
+		start.add(home);
+
+		if (dice1 == dice2) {
+			Set<List<Integer>> result = new HashSet<List<Integer>>();
+			Set<List<Integer>> current = start;
+			for (int i = 0; i < 4 && !current.isEmpty(); i++) {
+				current = moves(current, dice1);
+				if (!current.isEmpty())
+					result = current;
+			}
+			return result;
+		}
+
+		int bigDice = Math.max(dice1, dice2);
+		int smallDice = Math.min(dice1, dice2);
+		Set<List<Integer>> bigRoll = moves(start, bigDice);
+		Set<List<Integer>> smallRoll = moves(start, smallDice);
+		Set<List<Integer>> bothRoll = moves(bigRoll, smallDice);
+		bothRoll.addAll(moves(smallRoll, bigDice));
+
+		if (!bothRoll.isEmpty())
+			return bothRoll;
+		if (!bigRoll.isEmpty())
+			return bigRoll;
+		return smallRoll;
+	}
+
+	/**
+	 * Generate the database, by working up from positions with the fewest
+	 * pips, as every move reduces the number of pips left.
+	 * 
+	 * @param file
+	 * @throws IOException
+	 */
+	public static void generate(String file) throws IOException {
+		// every position with up to 15 pieces
+		List<List<Integer>> positions = new ArrayList<List<Integer>>(numPositions);
+		int[] home = new int[points];
+		while (true) {
+			List<Integer> position = new ArrayList<Integer>(points);
+			for (int count : home)
+				position.add(count);
+			positions.add(position);
+
+			// next position, counting in base 16 and skipping those with too
+			// many pieces
+			int i = 0;
+			while (i < points) {
+				home[i]++;
+				int total = 0;
+				for (int count : home)
+					total += count;
+				if (total <= maxPieces)
+					break;
+				home[i] = 0;
+				i++;
+			}
+			if (i == points)
+				break;
+		}
+		Collections.sort(positions, new Comparator<List<Integer>>() {
+			@Override
+			public int compare(List<Integer> a, List<Integer> b) {
+				return Integer.compare(pips(a), pips(b));
+			}
+		});
+
+		// mean and mean square of rolls needed from each position
+		double[] mean = new double[numPositions];
+		double[] meanSquare = new double[numPositions];
+		for (List<Integer> position : positions) {
+			int index = index(toArray(position));
+			if (pips(position) == 0)
+				continue;
+
+			double noMove = 0;
+			double sumMean = 0;
+			double sumMeanSquare = 0;
+			for (int dice1 = 1; dice1 <= 6; dice1++) {
+				for (int dice2 = dice1; dice2 <= 6; dice2++) {
+					double p = (dice1 == dice2 ? 1 : 2) / 36.;
+
+					// choose the move needing fewest rolls after this one
+					int best = -1;
+					for (List<Integer> next : moves(position, dice1, dice2)) {
+						int nextIndex = index(toArray(next));
+						if (best == -1 || mean[nextIndex] < mean[best])
+							best = nextIndex;
+					}
+
+					if (best == -1) {
+						noMove += p;
+					} else {
+						sumMean += p * mean[best];
+						sumMeanSquare += p * meanSquare[best];
+					}
+				}
+			}
+
+			// with no move available the position stays the same, so
+			// N = 1 + N' where N' is N with probability noMove
+			mean[index] = (1 + sumMean) / (1 - noMove);
+			meanSquare[index] = (1 + 2 * (sumMean + noMove * mean[index]) + sumMeanSquare) / (1 - noMove);
+		}
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+			out.writeInt(magic);
+			out.writeInt(version);
+			out.writeInt(numPositions);
+			for (int i = 0; i < numPositions; i++) {
+				double deviation = Math.sqrt(Math.max(0, meanSquare[i] - mean[i] * mean[i]));
+				out.writeChar(toFixedPoint(mean[i]));
+				out.writeChar(toFixedPoint(deviation));
+			}
+		}
+	}
+
+	private static int pips(List<Integer> home) {
+		int pips = 0;
+		for (int i = 0; i < home.size(); i++)
+			pips += (i + 1) * home.get(i);
+		return pips;
+	}
+
+	private static int[] toArray(List<Integer> home) {
+		int[] array = new int[home.size()];
+		for (int i = 0; i < array.length; i++)
+			array[i] = home.get(i);
+		return array;
+	}
+
+	private static char toFixedPoint(double value) {
+		long fixed = Math.round(value * scale);
+		if (fixed > Character.MAX_VALUE)
+			throw new IllegalStateException("Value " + value + " too large to store");
+		return (char) fixed;
+	}
+
+	/**
+	 * Generate the database.
+	 * 
+	 * @param args
+	 *            Optional file to write to, defaults to defaultFile.
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		String file = args.length > 0 ? args[0] : defaultFile;
+		long start = System.nanoTime();
+		generate(file);
+		System.out.println("Wrote " + numPositions + " positions to " + file + " in "
+				+ (System.nanoTime() - start) / 1000000 + "ms");
+
+		BearoffDatabase db = load(file);
+		int[] worst = new int[] { 0, 0, 0, 0, 0, maxPieces };
+		System.out.println("Rolls to bear off " + Arrays.toString(worst) + ": " + db.expectedRolls(worst) + " +- "
+				+ db.rollsDeviation(worst));
+	}
+
+}
@@ -4,7 +4,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Random;
 import java.util.Set;
 
 /**
@@ -44,21 +43,38 @@ public class Board {
 	private int dice1;
 	private int dice2;
 
+	/**
+	 * Stream the dice are rolled from. Shared with every board copied from
+	 * this one, so a game uses a single stream.
+	 */
+	private DiceStream dice;
+
 	/**
 	 * Roll a dice.
 	 * 
 	 * @return Integer from 1-6
 	 */
 	private void rollDice() {
-		Random r = new Random();
-		dice1 = r.nextInt(6) + 1;
-		dice2 = r.nextInt(6) + 1;
+		dice1 = dice.roll();
+		dice2 = dice.roll();
 	}
 
 	/**
 	 * Initialise board with standard starting positions.
 	 */
 	public Board() {
+		this(new DiceStream());
+	}
+
+	/**
+	 * Initialise board with standard starting positions, taking the starting
+	 * player and all rolls from the given stream. Games started with streams
+	 * of the same seed have the same sequence of rolls.
+	 * 
+	 * @param dice
+	 */
+	public Board(DiceStream dice) {
+		this.dice = dice;
 		this.pointsWhite = Arrays.asList(2, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 5, 0, 0, 0, 0, 3, 0, 5, 0, 0, 0, 0, 0);
 		this.pointsBlack = Arrays.asList(0, 0, 0, 0, 0, 5, 0, 3, 0, 0, 0, 0, 5, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 2);
 		this.barWhite = 0;
@@ -66,7 +82,7 @@ public class Board {
 		this.borneOffWhite = 0;
 		this.borneOffBlack = 0;
 
-		if (Math.random() < 0.5)
+		if (dice.nextBoolean())
 			this.whiteTurn = true;
 		else
 			this.whiteTurn = false;
@@ -93,6 +109,7 @@ public class Board {
 		this.whiteTurn = toCopy.whiteTurn;
 		this.dice1 = toCopy.dice1;
 		this.dice2 = toCopy.dice2;
+		this.dice = toCopy.dice;
 	}
 
 	/**
@@ -148,6 +165,32 @@ public class Board {
 	public Set<Board> availableMoves() {
 		rollDice();
 
+		return generateMoves();
+	}
+
+	/**
+	 * Get a list of boards representing available next moves for a given
+	 * roll, without rolling the dice. This board is not modified.
+	 * 
+	 * @param dice1
+	 * @param dice2
+	 * @return List of Boards available to move to next.
+	 */
+	public Set<Board> availableMoves(int dice1, int dice2) {
+		Board rolled = new Board(this);
+		rolled.dice1 = dice1;
+		rolled.dice2 = dice2;
+
+		return rolled.generateMoves();
+	}
+
+	/**
+	 * Get a list of boards representing available next moves using the
+	 * current dice.
+	 * 
+	 * @return List of Boards available to move to next.
+	 */
+	private Set<Board> generateMoves() {
 		boolean amWhite = whiteTurn;
 
 		Set<Board> bigRoll = new HashSet<Board>();
@@ -359,6 +402,68 @@ public class Board {
 		return true;
 	}
 
+	/**
+	 * Test for a race where both players are bearing off, so can no longer
+	 * hit each other.
+	 * 
+	 * @return True if both players have all their pieces in their home board.
+	 */
+	public boolean isBearOffRace() {
+		return canBearOff(true) && canBearOff(false);
+	}
+
+	/**
+	 * Get the number of pieces a player has on each point of their home board.
+	 * 
+	 * @param white
+	 *            True for white's home board, false for black's.
+	 * @return Array where element i is the number of pieces i + 1 points from
+	 *         being borne off.
+	 */
+	public int[] homeBoard(boolean white) {
+		int[] home = new int[6];
+		for (int i = 0; i < 6; i++) {
+			home[i] = white ? pointsWhite.get(23 - i) : pointsBlack.get(i);
+		}
+		return home;
+	}
+
+	/**
+	 * Get the total number of points a player must move to bear off all their
+	 * pieces.
+	 * 
+	 * @param white
+	 *            True for white, false for black.
+	 * @return
+	 */
+	public int pipCount(boolean white) {
+		int pips = 25 * (white ? barWhite : barBlack);
+		for (int point = 0; point < 24; point++) {
+			if (white)
+				pips += (24 - point) * pointsWhite.get(point);
+			else
+				pips += (point + 1) * pointsBlack.get(point);
+		}
+		return pips;
+	}
+
+	/**
+	 * Get the number of points a player has a single piece on, which can be
+	 * hit by their opponent.
+	 * 
+	 * @param white
+	 *            True for white, false for black.
+	 * @return
+	 */
+	public int blots(boolean white) {
+		int blots = 0;
+		for (int point = 0; point < 24; point++) {
+			if ((white ? pointsWhite : pointsBlack).get(point) == 1)
+				blots++;
+		}
+		return blots;
+	}
+
 	/**
 	 * Try to move a piece.
 	 * 
@@ -494,6 +599,26 @@ public class Board {
 		return state;
 	}
 
+	/**
+	 * Get a compact key identifying the position on this board, ignoring the
+	 * dice.
+	 * 
+	 * @return Key equal for any two boards in the same position.
+	 */
+	public String positionKey() {
+		char[] key = new char[53];
+		for (int point = 0; point < 24; point++) {
+			key[point] = (char) (int) pointsWhite.get(point);
+			key[24 + point] = (char) (int) pointsBlack.get(point);
+		}
+		key[48] = (char) barWhite;
+		key[49] = (char) barBlack;
+		key[50] = (char) borneOffWhite;
+		key[51] = (char) borneOffBlack;
+		key[52] = whiteTurn ? 'w' : 'b';
+		return new String(key);
+	}
+
 	/**
 	 * Return an ASCII representation of the current board.
 	 */
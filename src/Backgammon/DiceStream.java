@@ -0,0 +1,78 @@
+package Backgammon;
+
+import java.util.SplittableRandom;
+
+/**
+ * Seedable stream of random numbers used for the dice and random players of a
+ * game. Two streams created with the same seed produce the same rolls, so a
+ * game can be replayed with the same dice, and streams can be split to give
+ * independent streams for each game or player without sharing state.
+ * 
+ * @author Alex Braithwaite
+ * 
+ */
+public class DiceStream {
+
+	private SplittableRandom random;
+
+	/**
+	 * Create an unseeded stream.
+	 */
+	public DiceStream() {
+		this.random = new SplittableRandom();
+	}
+
+	/**
+	 * Create a stream which always produces the same numbers for a given seed.
+	 * 
+	 * @param seed
+	 */
+	public DiceStream(long seed) {
+		this.random = new SplittableRandom(seed);
+	}
+
+	private DiceStream(SplittableRandom random) {
+		this.random = random;
+	}
+
+	/**
+	 * Roll a dice.
+	 * 
+	 * @return Integer from 1-6
+	 */
+	public int roll() {
+		return random.nextInt(6) + 1;
+	}
+
+	/**
+	 * @return True or false with equal probability.
+	 */
+	public boolean nextBoolean() {
+		return random.nextBoolean();
+	}
+
+	/**
+	 * @param bound
+	 * @return Integer from 0 to bound - 1.
+	 */
+	public int nextInt(int bound) {
+		return random.nextInt(bound);
+	}
+
+	/**
+	 * @return Seed for a new stream.
+	 */
+	public long nextSeed() {
+		return random.nextLong();
+	}
+
+	/**
+	 * Split off a new stream, independent of this one from then on.
+	 * 
+	 * @return
+	 */
+	public DiceStream split() {
+		return new DiceStream(random.split());
+	}
+
+}
@@ -0,0 +1,402 @@
+package Backgammon;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import learner.LearnerSnapshots;
+import learner.SarsaLambda;
+
+/**
+ * Selects Backgammon moves by an n-ply expectiminimax search over the 21
+ * distinct rolls of the dice, using the learner to evaluate the leaves. A
+ * 1-ply search is the same as greedily choosing the move the learner
+ * evaluates highest; a 2-ply search also considers every reply the opponent
+ * could make, and so on.
+ * 
+ * Moves are ordered by a cheap 1-ply evaluation and only the most promising
+ * are searched deeper. Rolls are searched in parallel, positions are cached
+ * within a search, and searches deepen iteratively until the time budget runs
+ * out.
+ * 
+ * @author Alex Braithwaite
+ * 
+ */
+public class ExpectiminimaxSearch {
+
+	/**
+	 * The 21 distinct rolls of two dice, and the probability of each.
+	 */
+	private static final int[][] rolls = new int[21][];
+	private static final double[] rollProbabilities = new double[21];
+	static {
+		int i = 0;
+		for (int d1 = 1; d1 <= 6; d1++) {
+			for (int d2 = d1; d2 <= 6; d2++) {
+				rolls[i] = new int[] { d1, d2 };
+				rollProbabilities[i] = (d1 == d2 ? 1 : 2) / 36.;
+				i++;
+			}
+		}
+	}
+
+	private SarsaLambda learner;
+	private LearnerSnapshots snapshots = new LearnerSnapshots();
+	private ForkJoinPool pool;
+
+	/**
+	 * Deepest search to perform.
+	 */
+	private int maxPlies;
+
+	/**
+	 * Time allowed per move in milliseconds, 0 for no limit. The deepest
+	 * search completed within the budget is used.
+	 */
+	private long timeBudget;
+
+	/**
+	 * Number of our moves searched beyond 1-ply.
+	 */
+	private int rootFilterSize = 8;
+
+	/**
+	 * Number of moves searched beyond 1-ply below the root.
+	 */
+	private int filterSize = 4;
+
+	/**
+	 * Maximum number of positions cached per search.
+	 */
+	private int maxCacheSize = 200000;
+
+	private AtomicLong positionsEvaluated = new AtomicLong();
+
+	/**
+	 * Database used to evaluate races, or null to use the learner throughout.
+	 */
+	private BearoffDatabase bearoffDatabase;
+
+	/**
+	 * Thrown when a search runs out of time.
+	 */
+	private static class SearchTimeout extends RuntimeException {
+		private static final long serialVersionUID = -2880839470466766335L;
+	}
+
+	/**
+	 * State of a single search, kept separate from the searcher so tasks
+	 * still running from a search which timed out cannot affect the next.
+	 */
+	private class Search {
+		private final int output;
+		private final boolean rootWhite;
+		private final long deadline;
+		private final List<ConcurrentHashMap<String, Double>> cache;
+		private final AtomicInteger cacheSize = new AtomicInteger();
+
+		private Search(boolean rootWhite, long deadline) {
+			this.rootWhite = rootWhite;
+			this.output = rootWhite ? 0 : 1;
+			this.deadline = deadline;
+			this.cache = new ArrayList<ConcurrentHashMap<String, Double>>(maxPlies);
+			for (int plies = 0; plies < maxPlies; plies++) {
+				cache.add(new ConcurrentHashMap<String, Double>());
+			}
+		}
+	}
+
+	/**
+	 * A board paired with its value to the player at the root of the search.
+	 */
+	private static class ScoredBoard {
+		private final Board board;
+		private final double value;
+
+		private ScoredBoard(Board board, double value) {
+			this.board = board;
+			this.value = value;
+		}
+	}
+
+	/**
+	 * Task to find the expected value of a position over every roll.
+	 */
+	private class ChanceTask extends RecursiveTask<Double> {
+		private static final long serialVersionUID = 2316616512734409346L;
+		private final Search search;
+		private final Board board;
+		private final int plies;
+
+		private ChanceTask(Search search, Board board, int plies) {
+			this.search = search;
+			this.board = board;
+			this.plies = plies;
+		}
+
+		@Override
+		protected Double compute() {
+			return expectedValue(search, board, plies);
+		}
+	}
+
+	/**
+	 * Task to find the value of the best move for the player to move for a
+	 * single roll.
+	 */
+	private class RollTask extends RecursiveTask<Double> {
+		private static final long serialVersionUID = -4718893717402604826L;
+		private final Search search;
+		private final Board board;
+		private final int[] roll;
+		private final int plies;
+
+		private RollTask(Search search, Board board, int[] roll, int plies) {
+			this.search = search;
+			this.board = board;
+			this.roll = roll;
+			this.plies = plies;
+		}
+
+		@Override
+		protected Double compute() {
+			boolean maximise = board.whiteTurn() == search.rootWhite;
+			List<Board> moves = new ArrayList<Board>(board.availableMoves(roll[0], roll[1]));
+
+			List<ScoredBoard> ordered = order(search, moves, maximise);
+			if (plies == 1)
+				return ordered.get(0).value;
+
+			double best = maximise ? -Double.MAX_VALUE : Double.MAX_VALUE;
+			for (int i = 0; i < ordered.size() && i < filterSize; i++) {
+				double value = expectedValue(search, ordered.get(i).board, plies - 1);
+				best = maximise ? Math.max(best, value) : Math.min(best, value);
+			}
+			return best;
+		}
+	}
+
+	/**
+	 * Create a searcher using the given learner to evaluate positions.
+	 * 
+	 * @param learner
+	 *            Learner to evaluate positions with. Only read by the thread
+	 *            calling selectMove.
+	 * @param maxPlies
+	 *            Deepest search to perform, 1 for a greedy search.
+	 * @param timeBudget
+	 *            Time allowed per move in milliseconds, 0 for no limit.
+	 */
+	public ExpectiminimaxSearch(SarsaLambda learner, int maxPlies, long timeBudget) {
+		this.learner = learner;
+		this.maxPlies = maxPlies < 1 ? 1 : maxPlies;
+		this.timeBudget = timeBudget;
+		this.pool = new ForkJoinPool();
+	}
+
+	/**
+	 * Evaluate races with a bear-off database rather than the learner.
+	 * 
+	 * @param bearoffDatabase
+	 *            Database to use, or null to use the learner throughout.
+	 */
+	public void setBearoffDatabase(BearoffDatabase bearoffDatabase) {
+		this.bearoffDatabase = bearoffDatabase;
+	}
+
+	/**
+	 * Select the best move for the player to move.
+	 * 
+	 * @param current
+	 *            Board before moving.
+	 * @param nextBoards
+	 *            Boards available to move to.
+	 * @return Board with the highest value after searching.
+	 */
+	public Board selectMove(Board current, List<Board> nextBoards) {
+		if (nextBoards.size() == 1)
+			return nextBoards.get(0);
+
+		long deadline = timeBudget > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeBudget)
+				: Long.MAX_VALUE;
+
+		// the learner may have changed since the last move
+		snapshots.publish(learner);
+
+		// 1-ply search
+		Search search = new Search(current.whiteTurn(), deadline);
+		List<ScoredBoard> ordered = order(search, nextBoards, true);
+		Board best = ordered.get(0).board;
+
+		// deepen until out of plies or time
+		for (int plies = 2; plies <= maxPlies; plies++) {
+			try {
+				best = searchRoot(search, ordered, plies);
+			} catch (SearchTimeout e) {
+				pool.awaitQuiescence(1, TimeUnit.SECONDS);
+				break;
+			}
+		}
+
+		return best;
+	}
+
+	/**
+	 * Search the most promising of our moves to the given depth.
+	 * 
+	 * @param search
+	 * @param ordered
+	 *            Our moves, best first.
+	 * @param plies
+	 * @return Best move.
+	 */
+	private Board searchRoot(Search search, List<ScoredBoard> ordered, int plies) {
+		List<ChanceTask> tasks = new ArrayList<ChanceTask>(rootFilterSize);
+		for (int i = 0; i < ordered.size() && i < rootFilterSize; i++) {
+			ChanceTask task = new ChanceTask(search, ordered.get(i).board, plies - 1);
+			tasks.add(task);
+			pool.execute(task);
+		}
+
+		Board best = null;
+		double max = -Double.MAX_VALUE;
+		for (ChanceTask task : tasks) {
+			double value = task.join();
+			if (value > max) {
+				max = value;
+				best = task.board;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Get the value of a position after moving, averaged over every roll the
+	 * next player could make.
+	 * 
+	 * @param search
+	 * @param board
+	 *            Position after moving.
+	 * @param plies
+	 *            Plies left to search.
+	 * @return Expected value to the player at the root.
+	 */
+	private double expectedValue(Search search, Board board, int plies) {
+		if (plies == 0 || board.gameOver())
+			return evaluate(search, board);
+
+		if (System.nanoTime() > search.deadline)
+			throw new SearchTimeout();
+
+		String key = board.positionKey();
+		Double cached = search.cache.get(plies).get(key);
+		if (cached != null)
+			return cached;
+
+		List<RollTask> tasks = new ArrayList<RollTask>(rolls.length);
+		for (int[] roll : rolls) {
+			tasks.add(new RollTask(search, board, roll, plies));
+		}
+		ForkJoinTask.invokeAll(tasks);
+
+		double value = 0;
+		for (int i = 0; i < rolls.length; i++) {
+			value += rollProbabilities[i] * tasks.get(i).join();
+		}
+
+		cache(search, plies, key, value);
+		return value;
+	}
+
+	/**
+	 * Order moves by their 1-ply value.
+	 * 
+	 * @param search
+	 * @param moves
+	 * @param maximise
+	 *            True if the player at the root is choosing the move.
+	 * @return Moves ordered best first for the player choosing.
+	 */
+	private List<ScoredBoard> order(Search search, List<Board> moves, final boolean maximise) {
+		List<ScoredBoard> ordered = new ArrayList<ScoredBoard>(moves.size());
+		for (Board move : moves) {
+			ordered.add(new ScoredBoard(move, evaluate(search, move)));
+		}
+		Collections.sort(ordered, new Comparator<ScoredBoard>() {
+			@Override
+			public int compare(ScoredBoard a, ScoredBoard b) {
+				return maximise ? Double.compare(b.value, a.value) : Double.compare(a.value, b.value);
+			}
+		});
+		return ordered;
+	}
+
+	/**
+	 * Evaluate a position with the learner, or with the bear-off database if
+	 * it is a race.
+	 * 
+	 * @param search
+	 * @param board
+	 * @return Chance of the player at the root winning.
+	 */
+	private double evaluate(Search search, Board board) {
+		if (board.gameOver())
+			return board.whiteWin() == search.rootWhite ? 1 : 0;
+
+		if (bearoffDatabase != null && board.isBearOffRace()) {
+			double whiteWin = bearoffDatabase.whiteWinChance(board);
+			return search.rootWhite ? whiteWin : 1 - whiteWin;
+		}
+
+		String key = board.positionKey();
+		Double cached = search.cache.get(0).get(key);
+		if (cached != null)
+			return cached;
+
+		positionsEvaluated.incrementAndGet();
+		double value = snapshots.get().evaluateState(board.getBoardState()).get(search.output);
+
+		cache(search, 0, key, value);
+		return value;
+	}
+
+	/**
+	 * Cache the value of a position, unless the cache is full.
+	 * 
+	 * @param search
+	 * @param plies
+	 * @param key
+	 * @param value
+	 */
+	private void cache(Search search, int plies, String key, double value) {
+		if (search.cacheSize.get() < maxCacheSize) {
+			search.cache.get(plies).put(key, value);
+			search.cacheSize.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Get the number of positions evaluated by the learner so far.
+	 * 
+	 * @return
+	 */
+	public long getPositionsEvaluated() {
+		return positionsEvaluated.get();
+	}
+
+	/**
+	 * Stop all search threads.
+	 */
+	public void shutdown() {
+		pool.shutdownNow();
+	}
+
+}
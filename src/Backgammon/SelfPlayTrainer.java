@@ -0,0 +1,249 @@
+package Backgammon;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import learner.LearnerSnapshots;
+import learner.SarsaLambda;
+
+/**
+ * Plays many AI vs AI games of Backgammon concurrently against a single shared
+ * learner. Worker threads choose moves using a recent snapshot of the learner,
+ * and send the states they visit back to the learner thread (the thread
+ * calling playGames), which performs the TD updates in the order games finish.
+ * 
+ * Workers choose moves greedily, each side maximising its own chance of
+ * winning as in BackgammonGame, but never search.
+ * 
+ * @author Alex Braithwaite
+ * 
+ */
+public class SelfPlayTrainer {
+
+	private SarsaLambda learner;
+	private int numWorkers;
+	private int staleness;
+	private ExecutorService executor;
+
+	/**
+	 * Snapshots of the learner used by the workers to choose moves.
+	 */
+	private LearnerSnapshots snapshots = new LearnerSnapshots();
+
+	/**
+	 * Database used to play and evaluate races, or null.
+	 */
+	private BearoffDatabase bearoffDatabase;
+
+	/**
+	 * Stream of seeds for each game's dice. Only used by the learner thread.
+	 */
+	private DiceStream gameSeeds = new DiceStream();
+
+	private int gamesSinceSnapshot = 0;
+	private long gamesPlayed = 0;
+	private long timePlaying = 0;
+
+	/**
+	 * Record of a single game played by a worker.
+	 */
+	private static class GameRecord {
+		private List<List<Double>> states = new ArrayList<List<Double>>();
+		private boolean whiteWin;
+
+		/**
+		 * Value of the last state learnt from; the result of the game, or the
+		 * database's evaluation if the game reached a race.
+		 */
+		private double whiteWinChance;
+	}
+
+	/**
+	 * Create a trainer for the given learner.
+	 * 
+	 * @param learner
+	 *            Learner to train. Must only be used by the thread calling
+	 *            playGames.
+	 * @param numWorkers
+	 *            Number of games to play concurrently.
+	 * @param staleness
+	 *            Number of games the learner may learn from before workers are
+	 *            given a new snapshot. 1 gives workers the latest weights at
+	 *            the start of every game.
+	 */
+	public SelfPlayTrainer(SarsaLambda learner, int numWorkers, int staleness) {
+		this.learner = learner;
+		this.numWorkers = numWorkers < 1 ? 1 : numWorkers;
+		this.staleness = staleness < 1 ? 1 : staleness;
+
+		this.executor = Executors.newFixedThreadPool(this.numWorkers, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "SelfPlayWorker");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	/**
+	 * Play races using a bear-off database, learning from games only until
+	 * they reach a race. See BackgammonGame.setBearoffDatabase.
+	 * 
+	 * @param bearoffDatabase
+	 *            Database to use, or null to use the learner throughout.
+	 */
+	public void setBearoffDatabase(BearoffDatabase bearoffDatabase) {
+		this.bearoffDatabase = bearoffDatabase;
+	}
+
+	/**
+	 * Seed the dice of every following game.
+	 * 
+	 * @param seed
+	 */
+	public void setSeed(long seed) {
+		gameSeeds = new DiceStream(seed);
+	}
+
+	/**
+	 * Play a number of AI vs AI games across all workers, learning from each as
+	 * it finishes. Returns once every game has been learnt from.
+	 * 
+	 * @param numGames
+	 *            Number of games to play.
+	 * @return Whether white won each game, in the order they were learnt
+	 *         from.
+	 */
+	public boolean[] playGames(int numGames) {
+		long start = System.nanoTime();
+
+		// the learner may have changed since the last batch
+		publishSnapshot();
+
+		CompletionService<GameRecord> games = new ExecutorCompletionService<GameRecord>(executor);
+		for (int i = 0; i < numGames; i++) {
+			final long seed = gameSeeds.nextSeed();
+			games.submit(new Callable<GameRecord>() {
+				@Override
+				public GameRecord call() {
+					return playGame(seed);
+				}
+			});
+		}
+
+		boolean[] whiteWins = new boolean[numGames];
+		for (int i = 0; i < numGames; i++) {
+			GameRecord record;
+			try {
+				record = games.take().get();
+			} catch (InterruptedException | ExecutionException e) {
+				throw new RuntimeException(e);
+			}
+
+			learnFromGame(record);
+			whiteWins[i] = record.whiteWin;
+
+			gamesSinceSnapshot++;
+			if (gamesSinceSnapshot >= staleness)
+				publishSnapshot();
+		}
+
+		gamesPlayed += numGames;
+		timePlaying += System.nanoTime() - start;
+
+		return whiteWins;
+	}
+
+	/**
+	 * Publish a new snapshot of the learner for workers to use.
+	 */
+	private void publishSnapshot() {
+		snapshots.publish(learner);
+		gamesSinceSnapshot = 0;
+	}
+
+	/**
+	 * Play a single game on a worker thread, choosing moves with the worker's
+	 * copy of the learner.
+	 * 
+	 * @param seed
+	 *            Seed for the game's dice.
+	 * @return States visited and the winner.
+	 */
+	private GameRecord playGame(long seed) {
+		SarsaLambda mine = snapshots.get();
+
+		GameRecord record = new GameRecord();
+		Board current = new Board(new DiceStream(seed));
+		boolean race = false;
+		while (!current.gameOver()) {
+			if (!race && bearoffDatabase != null && current.isBearOffRace()) {
+				race = true;
+				record.states.add(current.getBoardState());
+				record.whiteWinChance = bearoffDatabase.whiteWinChance(current);
+			}
+
+			List<Board> nextBoards = new ArrayList<Board>(current.availableMoves());
+			if (race) {
+				current = bearoffDatabase.selectMove(nextBoards);
+			} else {
+				record.states.add(current.getBoardState());
+				current = BackgammonGame.selectMove(mine, nextBoards, current.whiteTurn() ? 0 : 1);
+			}
+		}
+		record.whiteWin = current.whiteWin();
+		if (!race) {
+			record.states.add(current.getBoardState());
+			record.whiteWinChance = record.whiteWin ? 1 : 0;
+		}
+
+		return record;
+	}
+
+	/**
+	 * Perform the same updates on the learner as BackgammonGame.runGame does
+	 * when learning.
+	 * 
+	 * @param record
+	 */
+	private void learnFromGame(GameRecord record) {
+		learner.reset();
+
+		int last = record.states.size() - 1;
+		for (int i = 0; i < last; i++) {
+			learner.forceAction(record.states.get(i), 0, 0, 0);
+			learner.forceAction(record.states.get(i), 0, 1, 1);
+		}
+
+		List<Double> finalState = record.states.get(last);
+		learner.forceAction(finalState, record.whiteWinChance, 0, 0);
+		learner.forceAction(finalState, 1 - record.whiteWinChance, 1, 1);
+	}
+
+	/**
+	 * Get the average throughput of all games played so far.
+	 * 
+	 * @return Games played per second.
+	 */
+	public double gamesPerSecond() {
+		if (timePlaying == 0)
+			return 0;
+		return gamesPlayed / (timePlaying / 1000000000.);
+	}
+
+	/**
+	 * Stop all worker threads.
+	 */
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+}
@@ -0,0 +1,70 @@
+package Backgammon;
+
+import org.apache.commons.math3.distribution.TDistribution;
+
+/**
+ * Running estimate of a win rate from a series of independent samples, each
+ * the score of a game (1 for a win, 0 for a loss) or the average score of a
+ * group of games, such as a duplicate pair.
+ * 
+ * @author Alex Braithwaite
+ * 
+ */
+public class WinRateEstimate {
+
+	private long samples = 0;
+	private double sum = 0;
+	private double sumSquare = 0;
+
+	/**
+	 * Add a sample.
+	 * 
+	 * @param score
+	 *            Score from 0 to 1.
+	 */
+	public synchronized void add(double score) {
+		samples++;
+		sum += score;
+		sumSquare += score * score;
+	}
+
+	public synchronized long getSamples() {
+		return samples;
+	}
+
+	/**
+	 * @return Mean score as a percentage.
+	 */
+	public synchronized double getWinRate() {
+		if (samples == 0)
+			return 50;
+		return 100 * sum / samples;
+	}
+
+	/**
+	 * Get the width of the confidence interval of the win rate, using the t
+	 * distribution.
+	 * 
+	 * @param confidence
+	 *            Confidence level, such as 0.95.
+	 * @return Width of the interval as a percentage, centred on getWinRate.
+	 */
+	public synchronized double getConfidenceInterval(double confidence) {
+		if (samples < 2)
+			return 100;
+		double mean = sum / samples;
+		double variance = Math.max(0, (sumSquare - samples * mean * mean) / (samples - 1));
+
+		TDistribution tDist = new TDistribution(samples - 1);
+		double t_a = tDist.inverseCumulativeProbability(1 - (1 - confidence) / 2);
+
+		return 100 * 2 * t_a * Math.sqrt(variance / samples);
+	}
+
+	@Override
+	public synchronized String toString() {
+		return Math.round(getWinRate() * 10) / 10. + "% +- " + Math.round(getConfidenceInterval(0.95) * 5) / 10.
+				+ "% (95%, " + samples + " samples)";
+	}
+
+}
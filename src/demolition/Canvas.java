@@ -1,17 +1,29 @@
 package demolition;
 
+import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.swing.JPanel;
 
-import demolitionEntities.Entity;
+import demolitionEntities.SensorFan;
 
 /**
- * Canvas to draw Demolition Game to.
+ * Canvas to draw Demolition Game to. All drawing of the game's entities is
+ * done here, so the entities themselves do not depend on AWT.
+ * 
+ * The canvas draws the latest RenderFrame published by the simulation, and
+ * never reads the game itself. Frames are passed between the simulation and
+ * the drawing thread without locking: the simulation fills a frame it owns
+ * and publishes it, and the drawing thread takes the latest published frame
+ * and hands back the one it drew before for reuse. Walls and the bomb site
+ * only change between games, so they are drawn once to a background image,
+ * which is redrawn only when they change.
  * 
  * @author Alex Braithwaite
  *
@@ -25,40 +37,312 @@ public class Canvas extends JPanel {
 
 	public int i = 10;
 
-	private DemolitionGame game;
+	/**
+	 * Settings of the game drawn, and its sensor fan.
+	 */
+	private final DemolitionConfig config;
+	private final SensorFan sensorFan;
+
+	/**
+	 * Latest frame published and not yet drawn, and a frame already drawn
+	 * which the simulation may reuse.
+	 */
+	private final AtomicReference<RenderFrame> pending = new AtomicReference<RenderFrame>();
+	private final AtomicReference<RenderFrame> free = new AtomicReference<RenderFrame>();
 
 	/**
-	 * Initialise the canvas to given world dimensions.
+	 * Frame being drawn. Only used by the drawing thread.
+	 */
+	private RenderFrame current;
+
+	/**
+	 * Walls and bomb site, and the walls and bomb site position it was drawn
+	 * for.
+	 */
+	private BufferedImage background;
+	private double[] backgroundWalls;
+	private double backgroundSiteX, backgroundSiteY;
+
+	/**
+	 * Directions of an agent's sensors, reused for every agent drawn.
+	 */
+	private double[] sensorDirX, sensorDirY;
+
+	/**
+	 * Initialise the canvas to the world dimensions of a game's settings.
 	 * 
-	 * @param g
-	 * @param worldX
-	 * @param worldY
+	 * @param config
+	 * @param sensorFan
+	 *            Sensor fan of the game, to draw agents' sensors.
 	 */
-	public Canvas(DemolitionGame g, int worldX, int worldY) {
-		this.game = g;
-		this.canvasX = worldX;
-		this.canvasY = worldY;
+	public Canvas(DemolitionConfig config, SensorFan sensorFan) {
+		this.config = config;
+		this.sensorFan = sensorFan;
+		this.canvasX = config.worldX;
+		this.canvasY = config.worldY;
+		this.sensorDirX = new double[config.sensorsNumber];
+		this.sensorDirY = new double[config.sensorsNumber];
 
 		// setup the window
 		setPreferredSize(new Dimension(canvasX, canvasY));
 		setBackground(Color.white);
 	}
 
+	/**
+	 * Get a frame for the simulation to fill and publish. Reuses a frame
+	 * already drawn, or the last frame published if it has not been drawn yet,
+	 * so at most three frames are ever created.
+	 * 
+	 * @return
+	 */
+	public RenderFrame obtainFrame() {
+		RenderFrame frame = free.getAndSet(null);
+		if (frame == null)
+			frame = pending.getAndSet(null);
+		if (frame == null)
+			frame = new RenderFrame(config);
+		return frame;
+	}
+
+	/**
+	 * Publish a filled frame to be drawn. The simulation must not change the
+	 * frame after publishing it.
+	 * 
+	 * @param frame
+	 */
+	public void publish(RenderFrame frame) {
+		pending.set(frame);
+		repaint();
+	}
+
 	@Override
 	public void paintComponent(Graphics g) {
 		// required
 		super.paintComponent(g);
 
-		Graphics2D g2d = (Graphics2D) g;
+		// take the latest frame, handing back the one drawn before
+		RenderFrame next = pending.getAndSet(null);
+		if (next != null) {
+			if (current != null)
+				free.set(current);
+			current = next;
+		}
+		if (current != null)
+			draw((Graphics2D) g, current);
+	}
+
+	/**
+	 * Draw a frame.
+	 * 
+	 * @param g2d
+	 * @param frame
+	 */
+	public void draw(Graphics2D g2d, RenderFrame frame) {
+		g2d.drawImage(backgroundFor(frame), 0, 0, null);
+		g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+		for (int i = 0; i < frame.numAgents; i++) {
+			drawAgent(g2d, frame, i);
+		}
+		drawBomb(g2d, frame);
+		for (int i = 0; i < frame.numLasers; i++) {
+			drawLaser(g2d, frame.laserX1[i], frame.laserY1[i], frame.laserX2[i], frame.laserY2[i],
+					frame.laserTeam[i]);
+		}
+	}
+
+	/**
+	 * Get the background image for a frame, redrawing it if the walls or bomb
+	 * site have changed.
+	 * 
+	 * @param frame
+	 * @return
+	 */
+	private BufferedImage backgroundFor(RenderFrame frame) {
+		if (background != null && backgroundWalls == frame.wallX1 && backgroundSiteX == frame.siteX
+				&& backgroundSiteY == frame.siteY)
+			return background;
+
+		if (background == null)
+			background = new BufferedImage(canvasX, canvasY, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g2d = background.createGraphics();
 		g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+		g2d.setColor(Color.white);
+		g2d.fillRect(0, 0, canvasX, canvasY);
+		drawBombSite(g2d, frame.siteX, frame.siteY, frame.siteRadius);
+		for (int i = 0; i < frame.numWalls; i++) {
+			drawWall(g2d, frame.wallX1[i], frame.wallY1[i], frame.wallX2[i], frame.wallY2[i]);
+		}
+		g2d.dispose();
+
+		backgroundWalls = frame.wallX1;
+		backgroundSiteX = frame.siteX;
+		backgroundSiteY = frame.siteY;
+		return background;
+	}
 
-		// Draw all entities in game
-		Object[] es = game.entities.toArray();
-		for (Object o : es) {
-			if (o != null) {
-				((Entity) o).draw(g2d);
+	/**
+	 * Draw an agent, its health, laser heat, sensors and fatigue.
+	 * 
+	 * @param g2d
+	 * @param frame
+	 * @param index
+	 *            Index of the agent in the frame.
+	 */
+	private void drawAgent(Graphics2D g2d, RenderFrame frame, int index) {
+		int d = config.agentRadius * 2;
+		int x = (int) frame.agentX[index];
+		int y = (int) frame.agentY[index];
+		int health = frame.agentHealth[index];
+		int team = frame.agentTeam[index];
+		double dirX = frame.agentDirX[index], dirY = frame.agentDirY[index];
+		int experience = frame.agentExperience[index];
+		boolean playerControlled = frame.agentPlayerControlled[index];
+
+		// experience circle
+		{
+			if (playerControlled) {
+				g2d.setColor(new Color(1f, 1f, 0f, 0.2f + 0.5f * (float) (1 - Math.exp(-experience / 5.))));
+			} else {
+				g2d.setColor(new Color(1f, 1f, 1f, 0.5f * (float) (1 - Math.exp(-experience / 5.))));
 			}
+			g2d.setStroke(new BasicStroke(config.agentRadius / 2));
+			g2d.drawOval(x - d / 2, y - d / 2, d, d);
+		}
+
+		// main circle
+		{
+			float fractionHealth = (float) health / config.agentMaxHealth;
+			g2d.setColor(new Color(.5f * (team == 1 ? 1 : 0) + .3f * (team == 0 ? (1 - fractionHealth) : 0),
+					.3f * (1 - fractionHealth),
+					.5f * (team == 0 ? 1 : 0) + .3f * (team == 1 ? (1 - fractionHealth) : 0), 1f));
+
+			g2d.setStroke(new BasicStroke(1));
+			g2d.fillOval(x - d / 2, y - d / 2, d, d);
+		}
+		// gun
+		{
+			int x2 = (int) (x + dirX * config.agentRadius);
+			int y2 = (int) (y + dirY * config.agentRadius);
+
+			g2d.setStroke(new BasicStroke(3));
+			float b;
+			if (frame.agentLaserOverheated[index]) {
+				b = (200 - frame.agentLaserHeat[index]) / 200f - 0.5f;
+
+			} else {
+				b = (200 - frame.agentLaserHeat[index]) / 200f;
+			}
+			g2d.setColor(new Color(b, b, b, 1f));
+			g2d.drawLine(x, y, x2, y2);
+		}
+
+		// sensor pointer
+		{
+			int sensors = config.sensorsNumber;
+			sensorFan.directions(dirX, dirY, sensorDirX, sensorDirY);
+			for (int i = 0; i < sensors; i++) {
+				double distance = frame.sensorDistance[index * sensors + i];
+				int x2 = (int) (x + sensorDirX[i] * distance);
+				int y2 = (int) (y + sensorDirY[i] * distance);
+				boolean enemy = frame.sensorEnemy[index * sensors + i];
+				boolean ally = frame.sensorAlly[index * sensors + i];
+				float r = .5f * (enemy ? 1 : 0) * (team == 0 ? 1 : 0) + (ally ? 1 : 0) * (team == 1 ? 1 : 0);
+				float g = 0f;
+				float b = .5f * (enemy ? 1 : 0) * (team == 1 ? 1 : 0) + (ally ? 1 : 0) * (team == 0 ? 1 : 0);
+				g2d.setColor(new Color(r, g, b, 0.03f + (playerControlled ? 0.05f : 0f)));
+				g2d.drawLine(x, y, x2, y2);
+			}
+		}
+
+		// fatigue circle
+		{
+			float b;
+
+			b = (100 - frame.agentFatigue[index]) / 200f;
+			g2d.setColor(new Color(b, b, b, 1f));
+			g2d.setStroke(new BasicStroke(1));
+			g2d.fillOval(x - d / 4, y - d / 4, d / 2, d / 2);
+
+			b = frame.agentExhausted[index] ? 0 : 1;
+			g2d.setColor(new Color(b, b, b, 1f));
+			g2d.drawOval(x - d / 4, y - d / 4, d / 2, d / 2);
 		}
 	}
 
+	/**
+	 * Draw the bomb, coloured by how close it is to exploding, being armed or
+	 * being defused.
+	 * 
+	 * @param g2d
+	 * @param frame
+	 */
+	private void drawBomb(Graphics2D g2d, RenderFrame frame) {
+		int radius = frame.bombRadius;
+		if (!frame.bombArmed)
+			g2d.setColor(Color.darkGray);
+		else
+			g2d.setColor(Color.getHSBColor(0f, 1f, 1 - frame.bombTimer / (1f * config.bombFramesToExplode)));
+		g2d.setStroke(new BasicStroke(1));
+		int x = (int) (frame.bombX - radius / 2.);
+		int y = (int) (frame.bombY - radius / 2.);
+		g2d.fillOval(x - radius / 2, y - radius / 2, radius * 2, radius * 2);
+		if (frame.bombArmed)
+			g2d.setColor(Color.getHSBColor(0f, 1f, frame.bombTimeToDefuse / (1f * config.bombFramesToDefuse)));
+		else if (frame.bombArming)
+			g2d.setColor(Color.getHSBColor(0f, 1f, frame.bombTimeToArm / (1f * config.bombFramesToArm)));
+		else
+			g2d.setColor(Color.white);
+		g2d.drawOval(x - radius / 2, y - radius / 2, radius * 2, radius * 2);
+	}
+
+	/**
+	 * Draw the bomb site.
+	 * 
+	 * @param g2d
+	 * @param siteX
+	 * @param siteY
+	 * @param radius
+	 */
+	private static void drawBombSite(Graphics2D g2d, double siteX, double siteY, int radius) {
+		g2d.setColor(Color.lightGray);
+		g2d.setStroke(new BasicStroke(1));
+		int x = (int) (siteX - radius / 2.);
+		int y = (int) (siteY - radius / 2.);
+		g2d.fillOval(x - radius / 2, y - radius / 2, radius * 2, radius * 2);
+		g2d.drawOval(x - radius / 2, y - radius / 2, radius * 2, radius * 2);
+	}
+
+	/**
+	 * Draw a wall between two points.
+	 * 
+	 * @param g2d
+	 * @param x1
+	 * @param y1
+	 * @param x2
+	 * @param y2
+	 */
+	private static void drawWall(Graphics2D g2d, double x1, double y1, double x2, double y2) {
+		g2d.setColor(Color.black);
+		g2d.setStroke(new BasicStroke(5));
+		g2d.drawLine((int) x1, (int) y1, (int) x2, (int) y2);
+	}
+
+	/**
+	 * Draw a laser between two points.
+	 * 
+	 * @param g2d
+	 * @param x1
+	 * @param y1
+	 * @param x2
+	 * @param y2
+	 * @param team
+	 *            Team of the agent which fired the laser.
+	 */
+	private static void drawLaser(Graphics2D g2d, double x1, double y1, double x2, double y2, int team) {
+		g2d.setColor(new Color(team == 1 ? 1f : 0f, 0f, team == 0 ? 1f : 0f, 1f));
+		g2d.setStroke(new BasicStroke(2));
+		g2d.drawLine((int) x1, (int) y1, (int) x2, (int) y2);
+	}
+
 }
@@ -0,0 +1,418 @@
+package demolition;
+
+/**
+ * Immutable settings for a Demolition Game: the size of the world, and the
+ * agent, sensor, bomb and reward parameters. Each game, and every entity in
+ * it, reads its settings from its own config, so games with different
+ * settings can run side by side in one process.
+ * 
+ * Configs are created with a Builder, which starts from the default
+ * settings. Settings derived from others, such as the number of sensor inputs
+ * and the bomb rewards, are calculated when the config is built.
+ * 
+ * @author Alex Braithwaite
+ * 
+ */
+public final class DemolitionConfig {
+
+	public static final double degToRad = Math.PI / 180.;
+
+	/*
+	 * World dimensions.
+	 */
+	public final int worldX;
+	public final int worldY;
+
+	/*
+	 * Game settings.
+	 */
+	public final int numAgents;
+	public final int numWalls;
+	public final int wallMaxLength;
+	public final int wallMinLength;
+	public final int numBuildings;
+	public final int buildingMaxLength;
+	public final int buildingMinLength;
+	public final int buildingDoorSize;
+	public final int buildingMaxDoors;
+	public final int buildingMinDoors;
+
+	public final int FPS;
+
+	public final int gameLength;
+
+	/*
+	 * Agent settings.
+	 */
+	public final int agentMaxHealth;
+	public final int agentHealRate;
+	public final int agentRadius;
+	public final int agentForwardMoveRate;
+	public final double agentTurnRate;
+	public final double agentFireSpread;
+
+	public final int agentRespawnAreaWidth;
+
+	/*
+	 * Sensor settings.
+	 */
+	public final int sensorMaxRange;
+	public final int sensorsEachSide;
+	public final int sensorsNumber;
+	// 6 for each distance sensor (3 for distance, 3 for type)
+	// 3 for health
+	// 2 for laser heat
+	// 1 for laser overheated
+	// 2 for stamina
+	// 1 for exhausted
+	// 1 for team
+	// 1 for carrying bomb
+	// 1 for arming/disarming bomb
+	// 1 for bomb armed
+	// 1 for bomb carried
+	// 3 for bomb distance
+	// 4 for bomb bearing
+	// 3 for bomb site distance
+	// 4 for bomb site bearing
+	public final int sensorsTotal;
+	public final double sensorAngle;
+
+	public final int laserMaxRange;
+	public final int laserDamage;
+	public final int crashDamage;
+
+	public final int respawnFrames;
+	public final int offMapDamage;
+
+	/*
+	 * Bomb settings.
+	 */
+	public final int bombRadius;
+	public final int bombFramesToPickup;
+	public final int bombFramesToArm;
+	public final int bombFramesToDefuse;
+	public final int bombFramesToExplode;
+
+	/*
+	 * Reward settings.
+	 */
+	public final double rewardDamageEnemy; // RAW INPUT
+	public final double rewardDamageAlly;
+	public final double rewardKillEnemy;
+	public final double rewardKillAlly;
+	public final double rewardKillBombCarrier;
+	public final double rewardGetHit;
+	public final double rewardDie;
+	public final double rewardMiss;
+	public final double rewardMove;
+	public final double rewardCrash;
+
+	public final double rewardApproachBomb;
+	public final double rewardAttackerApproachBombSite;
+	public final double rewardDefenderApproachBombSite;
+	public final double rewardCarryingBomb;
+	public final double rewardArmingBomb;
+	public final double rewardDefusingBomb;
+	public final double rewardArmedBomb;
+	public final double rewardDefusedBomb;
+	public final double rewardWinGame;
+
+	private static final DemolitionConfig defaults = new Builder().build();
+
+	/**
+	 * Get the default settings.
+	 * 
+	 * @return
+	 */
+	public static DemolitionConfig defaults() {
+		return defaults;
+	}
+
+	private DemolitionConfig(Builder b) {
+		worldX = b.worldX;
+		worldY = b.worldY;
+
+		numAgents = b.numAgents;
+		numWalls = b.numWalls;
+		wallMaxLength = b.wallMaxLength;
+		wallMinLength = b.wallMinLength;
+		numBuildings = b.numBuildings;
+		buildingMaxLength = b.buildingMaxLength;
+		buildingMinLength = b.buildingMinLength;
+		buildingDoorSize = b.buildingDoorSize;
+		buildingMaxDoors = b.buildingMaxDoors;
+		buildingMinDoors = b.buildingMinDoors;
+		FPS = b.FPS;
+		gameLength = b.gameLength;
+
+		agentMaxHealth = b.agentMaxHealth;
+		agentHealRate = b.agentHealRate;
+		agentRadius = b.agentRadius;
+		agentForwardMoveRate = b.agentForwardMoveRate;
+		agentTurnRate = b.agentTurnRate;
+		agentFireSpread = b.agentFireSpread;
+		agentRespawnAreaWidth = worldX / 10;
+
+		sensorMaxRange = worldX;
+		sensorsEachSide = b.sensorsEachSide;
+		sensorsNumber = 1 + 2 * sensorsEachSide;
+		sensorsTotal = 6 * sensorsNumber + 3 + 2 + 4 + 1 + 1 + 1 + 1 + 1 + 3 + 4 + 3 + 3 + 1;
+		sensorAngle = b.sensorAngle;
+
+		laserMaxRange = worldX;
+		laserDamage = b.laserDamage;
+		crashDamage = b.crashDamage;
+
+		respawnFrames = b.respawnFrames;
+		offMapDamage = agentMaxHealth / respawnFrames;
+
+		bombRadius = b.bombRadius;
+		bombFramesToPickup = b.bombFramesToPickup;
+		bombFramesToArm = b.bombFramesToArm;
+		bombFramesToDefuse = b.bombFramesToDefuse;
+		bombFramesToExplode = gameLength / 3;
+
+		rewardDamageEnemy = b.rewardDamageEnemy;
+		rewardDamageAlly = -rewardDamageEnemy / 2;
+		rewardKillEnemy = rewardDamageEnemy * 10;
+		rewardKillAlly = -rewardKillEnemy / 2;
+		rewardKillBombCarrier = rewardKillEnemy * 2;
+		rewardGetHit = b.rewardGetHit;
+		rewardDie = -rewardKillEnemy;
+		rewardMiss = rewardDamageAlly / 10;
+		rewardMove = b.rewardMove;
+		rewardCrash = rewardDamageAlly / 10;
+
+		rewardApproachBomb = rewardDamageEnemy / 5;
+		rewardAttackerApproachBombSite = rewardApproachBomb * 2;
+		rewardDefenderApproachBombSite = rewardApproachBomb;
+		rewardCarryingBomb = rewardApproachBomb * numAgents / 2.;
+		rewardArmingBomb = rewardDefenderApproachBombSite * numAgents / 2.;
+		rewardDefusingBomb = rewardAttackerApproachBombSite * numAgents / 2.;
+		rewardArmedBomb = rewardArmingBomb * bombFramesToArm * numAgents / 2.;
+		rewardDefusedBomb = rewardDefusingBomb * bombFramesToDefuse * numAgents / 2.;
+		rewardWinGame = b.rewardWinGame;
+	}
+
+	/**
+	 * Builder for a DemolitionConfig, starting from the default settings.
+	 */
+	public static class Builder {
+		private int worldX = 1200;
+		private int worldY = 800;
+
+		private int numAgents = 24;
+		private int numWalls = 20;
+		private int wallMaxLength = 200;
+		private int wallMinLength = 60;
+		private int numBuildings = 0;
+		private int buildingMaxLength = 200;
+		private int buildingMinLength = 50;
+		private int buildingDoorSize = 30;
+		private int buildingMaxDoors = 4;
+		private int buildingMinDoors = 1;
+		private int FPS = 30;
+		private int gameLength = 5000;
+
+		private int agentMaxHealth = 1000;
+		private int agentHealRate = 1;
+		private int agentRadius = 20;
+		private int agentForwardMoveRate = 10;
+		private double agentTurnRate = 15 * degToRad;
+		private double agentFireSpread = 5 * degToRad;
+
+		private int sensorsEachSide = 4;
+		private double sensorAngle = 180 * degToRad;
+
+		private int laserDamage = 150;
+		private int crashDamage = 2;
+		private int respawnFrames = 1;
+
+		private int bombRadius = 7;
+		private int bombFramesToPickup = 1;
+		private int bombFramesToArm = 90;
+		private int bombFramesToDefuse = 90;
+
+		private double rewardDamageEnemy = 1;
+		private double rewardGetHit = 0;
+		private double rewardMove = 0;
+		private double rewardWinGame = 0;
+
+		/**
+		 * Set the size of the world. Sensor and laser ranges are the width of
+		 * the world, and respawn areas a tenth of it.
+		 * 
+		 * @param worldX
+		 * @param worldY
+		 * @return
+		 */
+		public Builder world(int worldX, int worldY) {
+			this.worldX = worldX;
+			this.worldY = worldY;
+			return this;
+		}
+
+		public Builder numAgents(int numAgents) {
+			this.numAgents = numAgents;
+			return this;
+		}
+
+		/**
+		 * Set the walls and buildings placed on each map.
+		 * 
+		 * @param numWalls
+		 * @param wallMinLength
+		 * @param wallMaxLength
+		 * @param numBuildings
+		 * @return
+		 */
+		public Builder walls(int numWalls, int wallMinLength, int wallMaxLength, int numBuildings) {
+			this.numWalls = numWalls;
+			this.wallMinLength = wallMinLength;
+			this.wallMaxLength = wallMaxLength;
+			this.numBuildings = numBuildings;
+			return this;
+		}
+
+		/**
+		 * Set the size and doors of buildings.
+		 * 
+		 * @param minLength
+		 * @param maxLength
+		 * @param doorSize
+		 * @param minDoors
+		 * @param maxDoors
+		 * @return
+		 */
+		public Builder buildings(int minLength, int maxLength, int doorSize, int minDoors, int maxDoors) {
+			this.buildingMinLength = minLength;
+			this.buildingMaxLength = maxLength;
+			this.buildingDoorSize = doorSize;
+			this.buildingMinDoors = minDoors;
+			this.buildingMaxDoors = maxDoors;
+			return this;
+		}
+
+		public Builder FPS(int FPS) {
+			this.FPS = FPS;
+			return this;
+		}
+
+		/**
+		 * Set the length of a game in time steps. The bomb explodes a third of
+		 * a game after being armed.
+		 * 
+		 * @param gameLength
+		 * @return
+		 */
+		public Builder gameLength(int gameLength) {
+			this.gameLength = gameLength;
+			return this;
+		}
+
+		/**
+		 * Set the agents' health, size and movement.
+		 * 
+		 * @param maxHealth
+		 * @param healRate
+		 * @param radius
+		 * @param forwardMoveRate
+		 * @param turnRate
+		 *            Radians turned per time step.
+		 * @param fireSpread
+		 *            Largest angle in radians a laser misses its aim by.
+		 * @return
+		 */
+		public Builder agents(int maxHealth, int healRate, int radius, int forwardMoveRate, double turnRate,
+				double fireSpread) {
+			this.agentMaxHealth = maxHealth;
+			this.agentHealRate = healRate;
+			this.agentRadius = radius;
+			this.agentForwardMoveRate = forwardMoveRate;
+			this.agentTurnRate = turnRate;
+			this.agentFireSpread = fireSpread;
+			return this;
+		}
+
+		/**
+		 * Set each agent's fan of distance sensors. The number of inputs each
+		 * agent gives the learner depends on the number of sensors.
+		 * 
+		 * @param sensorsEachSide
+		 *            Sensors each side of the central sensor.
+		 * @param sensorAngle
+		 *            Angle in radians the sensors are spread over.
+		 * @return
+		 */
+		public Builder sensors(int sensorsEachSide, double sensorAngle) {
+			this.sensorsEachSide = sensorsEachSide;
+			this.sensorAngle = sensorAngle;
+			return this;
+		}
+
+		/**
+		 * Set the damage done by lasers and crashes, and the time steps to
+		 * respawn, over which an agent off the map loses all its health.
+		 * 
+		 * @param laserDamage
+		 * @param crashDamage
+		 * @param respawnFrames
+		 * @return
+		 */
+		public Builder damage(int laserDamage, int crashDamage, int respawnFrames) {
+			this.laserDamage = laserDamage;
+			this.crashDamage = crashDamage;
+			this.respawnFrames = respawnFrames;
+			return this;
+		}
+
+		/**
+		 * Set the size of the bomb and the time steps taken to interact with
+		 * it.
+		 * 
+		 * @param radius
+		 * @param framesToPickup
+		 * @param framesToArm
+		 * @param framesToDefuse
+		 * @return
+		 */
+		public Builder bomb(int radius, int framesToPickup, int framesToArm, int framesToDefuse) {
+			this.bombRadius = radius;
+			this.bombFramesToPickup = framesToPickup;
+			this.bombFramesToArm = framesToArm;
+			this.bombFramesToDefuse = framesToDefuse;
+			return this;
+		}
+
+		/**
+		 * Set the rewards not derived from others. The remaining rewards are
+		 * scaled from rewardDamageEnemy.
+		 * 
+		 * @param damageEnemy
+		 * @param getHit
+		 * @param move
+		 * @param winGame
+		 * @return
+		 */
+		public Builder rewards(double damageEnemy, double getHit, double move, double winGame) {
+			this.rewardDamageEnemy = damageEnemy;
+			this.rewardGetHit = getHit;
+			this.rewardMove = move;
+			this.rewardWinGame = winGame;
+			return this;
+		}
+
+		public DemolitionConfig build() {
+			if (numAgents < 1)
+				throw new IllegalArgumentException("Must have at least 1 agent: " + numAgents);
+			if (worldX < 1 || worldY < 1)
+				throw new IllegalArgumentException("World must have positive size: " + worldX + "x" + worldY);
+			if (sensorsEachSide < 0)
+				throw new IllegalArgumentException("Sensors each side must not be negative: " + sensorsEachSide);
+			if (respawnFrames < 1)
+				throw new IllegalArgumentException("Respawn frames must be at least 1: " + respawnFrames);
+			return new DemolitionConfig(this);
+		}
+	}
+
+}
@@ -1,17 +1,23 @@
 package demolition;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
 
 import demolitionEntities.Agent;
 import demolitionEntities.Bomb;
 import demolitionEntities.BombSite;
 import demolitionEntities.Entity;
 import demolitionEntities.Laser;
+import demolitionEntities.SensorFan;
 import demolitionEntities.Wall;
+import demolitionUtilities.Geometry;
+import demolitionUtilities.Line2D;
 import demolitionUtilities.Vector2D;
 import learner.Learner;
 import learner.SarsaLambda;
@@ -26,122 +32,73 @@ import simulator.Game;
  */
 public class DemolitionGame implements Game {
 
-	public static final double degToRad = Math.PI / 180.;
-
-	/*
-	 * World dimensions.
-	 */
-	public static final int worldX = 1200;
-	public static final int worldY = 800;
-
-	/*
-	 * Game settings.
-	 */
-	public static final int numAgents = 24;
-	public static final int numWalls = 20;
-	public static final int wallMaxLength = 200;
-	public static final int wallMinLength = 60;
-	public static final int numBuildings = 0;
-	public static final int buildingMaxLength = 200;
-	public static final int buildingMinLength = 50;
-	public static final int buildingDoorSize = 30;
-	public static final int buildingMaxDoors = 4;
-	public static final int buildingMinDoors = 1;
-
-	public static final int FPS = 30;
-	public static int currentFPS = FPS * 0;
-
-	public static final int gameLength = 5000;
-	
-	/*
-	 * Agent settings.
-	 */
-	public static final int agentMaxHealth = 1000;
-	public static final int agentHealRate = 1;
-	public static final int agentRadius = 20;
-	public static final int agentForwardMoveRate = 10;
-	public static final double agentTurnRate = 15 * degToRad;
-	public static final double agentFireSpread = 5 * degToRad;
-
-	public static final int agentRespawnAreaWidth = worldX / 10;
-
-	/*
-	 * Sensor settings.
-	 */
-	public static final int sensorMaxRange = worldX;
-	public static final int sensorsEachSide = 4;
-	public static final int sensorsNumber = 1 + 2 * sensorsEachSide;
-	// 6 for each distance sensor (3 for distance, 3 for type)
-	// 3 for health
-	// 2 for laser heat
-	// 1 for laser overheated
-	// 2 for stamina
-	// 1 for exhausted
-	// 1 for team
-	// 1 for carrying bomb
-	// 1 for arming/disarming bomb
-	// 1 for bomb armed
-	// 1 for bomb carried
-	// 3 for bomb distance
-	// 4 for bomb bearing
-	// 3 for bomb site distance
-	// 4 for bomb site bearing
-	public static final int sensorsTotal = 6 * sensorsNumber + 3 + 2 + 4 + 1 + 1 + 1 + 1 + 1 + 3 + 4 + 3 + 3 + 1;
-	public static final double sensorAngle = 180 * degToRad;
-
-	public static final int laserMaxRange = worldX;
-	public static final int laserDamage = 150;
-	public static final int crashDamage = 2;
-
-	public static final int respawnFrames = 1;
-	public static final int offMapDamage = agentMaxHealth / respawnFrames;
-
-	/*
-	 * Bomb settings.
-	 */
-	public static final int bombRadius = 7;
-	public static final int bombFramesToPickup = 1;
-	public static final int bombFramesToArm = 90;
-	public static final int bombFramesToDefuse = 90;
-	public static final int bombFramesToExplode = gameLength / 3;
-
-	/*
-	 * Reward settings.
-	 */
-	public static final double rewardDamageEnemy = 1; // RAW INPUT
-	public static final double rewardDamageAlly = -rewardDamageEnemy / 2;
-	public static final double rewardKillEnemy = rewardDamageEnemy * 10;
-	public static final double rewardKillAlly = -rewardKillEnemy / 2;
-	public static final double rewardKillBombCarrier = rewardKillEnemy * 2;
-	public static final double rewardGetHit = 0;
-	public static final double rewardDie = -rewardKillEnemy;
-	public static final double rewardMiss = rewardDamageAlly / 10;
-	public static final double rewardMove = 0;
-	public static final double rewardCrash = rewardDamageAlly / 10;
-
-	public static final double rewardApproachBomb = rewardDamageEnemy / 5;
-	public static final double rewardAttackerApproachBombSite = rewardApproachBomb * 2;
-	public static final double rewardDefenderApproachBombSite = rewardApproachBomb;
-	public static final double rewardCarryingBomb = rewardApproachBomb * numAgents / 2.;
-	public static final double rewardArmingBomb = rewardDefenderApproachBombSite * numAgents / 2.;
-	public static final double rewardDefusingBomb = rewardAttackerApproachBombSite * numAgents / 2.;
-	public static final double rewardArmedBomb = rewardArmingBomb * bombFramesToArm * numAgents / 2.;
-	public static final double rewardDefusedBomb = rewardDefusingBomb * bombFramesToDefuse * numAgents / 2.;
-	public static final double rewardWinGame = 0;
+	/**
+	 * Settings of this game and every entity in it.
+	 */
+	public final DemolitionConfig config;
+
+	/**
+	 * Directions of the agents' sensors, precomputed from the config.
+	 */
+	public final SensorFan sensorFan;
 
 	private double meanReward = 0.;
 
-	public List<Entity> entities;
+	/**
+	 * Walls of the current map, not including the map edges.
+	 */
 	public List<Wall> walls;
 	public List<Agent> agents;
-	public List<Laser> lasers;
 	public Bomb bomb;
-	double r = Math.random();
-	public BombSite bombSite = new BombSite(new Vector2D(worldX - worldX * r, worldY * r));
 
-	public Window window;
+	/**
+	 * Arrays of agent, wall and laser state, read by the physics, sensing and
+	 * drawing loops.
+	 */
+	public WorldStore store;
+
+	/**
+	 * Index of the agents, used for ray casts and collisions.
+	 */
+	public SpatialGrid grid;
+
+	/**
+	 * Index of the walls, built with each map.
+	 */
+	public WallBVH wallBVH;
+
+	/**
+	 * Maps to play in turn, or null to generate a new map for every trial.
+	 */
+	private MapPool mapPool;
+
+	/**
+	 * Number of maps played, which picks the next map from the pool.
+	 */
+	private int mapsPlayed = 0;
+
+	/**
+	 * Source of new maps when not playing from a pool.
+	 */
+	private final Random mapRandom = new Random();
+
+	/**
+	 * Source of the game's other random numbers: where agents and the bomb
+	 * respawn, and the noise of turns and shots.
+	 */
+	public final Random random = new Random();
 
-	public Canvas world;
+	public BombSite bombSite;
+
+	/**
+	 * Renderer showing the game, or null to run headless.
+	 */
+	private Renderer renderer;
+
+	/**
+	 * Profiler timing each time step, or null to not profile.
+	 */
+	private TickProfiler profiler;
 
 	private Learner brain;
 	private ArrayList<Learner> brains;
@@ -154,13 +111,169 @@ public class DemolitionGame implements Game {
 		moveForward, turnLeft, turnRight, shoot, moveBackward
 	}
 
+	/**
+	 * Action performed for each bit of an action number, in the order they are
+	 * performed.
+	 */
+	private static final Action[] actionBits = { Action.moveForward, Action.shoot, Action.turnRight,
+			Action.turnLeft };
+
+	/**
+	 * Lists reused by every collision check.
+	 */
+	private List<Wall> nearWalls = new ArrayList<Wall>();
+	private List<Agent> nearAgents = new ArrayList<Agent>();
+
+	/**
+	 * Slack allowed when skipping walls further than an agent's radius, so
+	 * rounding never skips a wall the exact test would find touching.
+	 */
+	private static final double collisionTolerance = 1e-6;
+
+	/**
+	 * Action chosen by each agent this time step.
+	 */
+	private int[] actions;
+
+	/**
+	 * Pool sensing and lockstep actions are run over, and the most agents
+	 * handled by one task. Started by setupGame and shut down by teardown.
+	 */
+	private ForkJoinPool agentPool;
+	private int agentThreads = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * Threads started by the pool, so the profiler can count their
+	 * allocations.
+	 */
+	private final List<Thread> poolThreads = Collections.synchronizedList(new ArrayList<Thread>());
+	private static final int agentTaskSize = 4;
+
+	/**
+	 * Whether agents act in lockstep, each against the previous time step's
+	 * world, rather than one after another.
+	 */
+	private boolean lockstep = false;
+
+	/**
+	 * Team whose agents take random actions rather than asking the learner, or
+	 * -1 for none. Team 0 is defenders, team 1 is attackers.
+	 */
+	private static final int randomTeam = -1;// XXX team to take random actions
+
+	/**
+	 * Number given to this game's first agent when asking the learner for
+	 * actions, so several games can share one learner.
+	 */
+	private int agentOffset = 0;
+
+	/**
+	 * Number of time steps each action chosen by the learner is repeated for.
+	 */
+	private int decisionInterval = 1;
+
+	/**
+	 * Reward each agent has received since the learner last chose its action.
+	 */
+	private double[] pendingReward;
+
+	/**
+	 * True while lockstep actions are being resolved, during which agents do
+	 * not write their moves to the grid or store.
+	 */
+	private boolean resolving = false;
+
+	/**
+	 * Next buffer for lockstep actions: each agent's random numbers, distances
+	 * to the bomb and bomb site before acting, whether it tried to shoot, the
+	 * laser it shot and its reward so far, indexed by agent.
+	 */
+	private double[] fireNoise;
+	private double[] turnRightNoise;
+	private double[] turnLeftNoise;
+	private double[] nextBombDist;
+	private double[] nextBombSiteDist;
+	private boolean[] nextShot;
+	private Laser[] nextLaser;
+	private double[] nextReward;
+
+	/**
+	 * Sensor rays cast and reused by all agents before the current trial.
+	 */
+	private long raysCastBefore, raysReusedBefore;
+
+	/**
+	 * Task to sense or resolve the lockstep actions of a range of agents.
+	 * Sensing only reads the world, and each agent only writes its own inputs,
+	 * while resolving only writes each agent's own state and next buffer
+	 * entries, so agents can be handled in parallel with the same results as
+	 * handling them in order.
+	 */
+	private class AgentTask extends RecursiveAction {
+		private static final long serialVersionUID = -3095863145436311407L;
+		private final int from;
+		private final int to;
+		private final boolean resolve;
+
+		private AgentTask(int from, int to, boolean resolve) {
+			this.from = from;
+			this.to = to;
+			this.resolve = resolve;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= agentTaskSize) {
+				for (int i = from; i < to; i++) {
+					if (resolve)
+						resolveAction(i);
+					else
+						agents.get(i).updateInputs();
+				}
+			} else {
+				int mid = (from + to) / 2;
+				invokeAll(new AgentTask(from, mid, resolve), new AgentTask(mid, to, resolve));
+			}
+		}
+	}
+
 	/**
 	 * Constructor method. Creates a window and canvas to draw on, and adds a
-	 * key listener to that window.
+	 * key listener to that window, or runs headless if not drawing.
 	 */
 	public DemolitionGame(boolean toDraw) {
+		this(toDraw, DemolitionConfig.defaults());
+	}
+
+	/**
+	 * Create a game with the given settings.
+	 * 
+	 * @param toDraw
+	 *            Whether to create a window to draw the game in. Without one
+	 *            the game runs headless and unthrottled.
+	 * @param config
+	 */
+	public DemolitionGame(boolean toDraw, DemolitionConfig config) {
+		this.config = config;
+		this.sensorFan = new SensorFan(config);
+
+		int n = config.numAgents;
+		actions = new int[n];
+		pendingReward = new double[n];
+		fireNoise = new double[n];
+		turnRightNoise = new double[n];
+		turnLeftNoise = new double[n];
+		nextBombDist = new double[n];
+		nextBombSiteDist = new double[n];
+		nextShot = new boolean[n];
+		nextLaser = new Laser[n];
+		nextReward = new double[n];
+
+		double r = random.nextDouble();
+		bombSite = new BombSite(new Vector2D(config.worldX - config.worldX * r, config.worldY * r), config);
+
 		if (toDraw) {
-			window = new Window(this);
+			renderer = new SwingRenderer(this);
 		}
 	}
 
@@ -168,16 +281,139 @@ public class DemolitionGame implements Game {
 	public void setLeaner(Learner brain) {
 		this.brain = brain;
 
-		brains = new ArrayList<Learner>(numAgents);
-		for (int i = 0; i < numAgents; i++) {
+		// separate learners for each agent can only be copied from Sarsa
+		// learners
+		brains = new ArrayList<Learner>(config.numAgents);
+		for (int i = 0; i < config.numAgents && brain instanceof SarsaLambda; i++) {
 			brains.add(new SarsaLambda((SarsaLambda) brain));
 		}
 	}
 
+	/**
+	 * Set the renderer showing the game, replacing and closing any current
+	 * one.
+	 * 
+	 * @param renderer
+	 *            Renderer to use, or null to run headless.
+	 */
+	public void setRenderer(Renderer renderer) {
+		if (this.renderer != null && this.renderer != renderer)
+			this.renderer.close();
+		this.renderer = renderer;
+	}
+
+	/**
+	 * Set the profiler timing each time step. Give the same profiler to the
+	 * learner to also time its updates.
+	 * 
+	 * @param profiler
+	 *            Profiler to use, or null to not profile.
+	 */
+	public void setProfiler(TickProfiler profiler) {
+		this.profiler = profiler;
+		if (profiler != null) {
+			synchronized (poolThreads) {
+				for (Thread thread : poolThreads)
+					profiler.addThread(thread);
+			}
+		}
+	}
+
+	/**
+	 * Get the profiler timing each time step.
+	 * 
+	 * @return Profiler, or null if not profiling.
+	 */
+	public TickProfiler getProfiler() {
+		return profiler;
+	}
+
+	/**
+	 * Set whether agents act in lockstep. In lockstep every agent acts against
+	 * the previous time step's world, so actions can be resolved in parallel,
+	 * rather than each agent seeing the moves and deaths caused by agents
+	 * acting before it.
+	 * 
+	 * @param lockstep
+	 */
+	public void setLockstep(boolean lockstep) {
+		this.lockstep = lockstep;
+	}
+
+	/**
+	 * Set the number of threads sensing and resolving lockstep actions. With
+	 * 1, agents are handled in order on the game's thread. Takes effect at the
+	 * next setupGame.
+	 * 
+	 * @param threads
+	 */
+	public void setAgentThreads(int threads) {
+		if (threads < 1)
+			throw new IllegalArgumentException("Must have at least 1 agent thread: " + threads);
+		this.agentThreads = threads;
+		if (agentPool != null) {
+			agentPool.shutdown();
+			agentPool = null;
+		}
+	}
+
+	/**
+	 * Seed the maps generated and the game's other random numbers, so games
+	 * with the same learner choices can be reproduced. Call before setupGame.
+	 * 
+	 * @param seed
+	 */
+	public void setSeed(long seed) {
+		random.setSeed(seed);
+		mapRandom.setSeed(random.nextLong());
+	}
+
+	/**
+	 * Set the number of time steps each action chosen by the learner is
+	 * repeated for. The learner is only asked for an action, and given the
+	 * rewards received since it was last asked, once every interval time
+	 * steps, so it is evaluated and updated interval times less often.
+	 * 
+	 * @param interval
+	 *            Decision interval, at least 1.
+	 */
+	public void setDecisionInterval(int interval) {
+		if (interval < 1)
+			throw new IllegalArgumentException("Decision interval must be at least 1: " + interval);
+		this.decisionInterval = interval;
+	}
+
+	/**
+	 * Check whether lockstep actions are being resolved, during which agents
+	 * must not write their moves to the grid or store.
+	 * 
+	 * @return
+	 */
+	public boolean isResolving() {
+		return resolving;
+	}
+
+	/**
+	 * Share a learner with other games, with this game's agents numbered from
+	 * agentOffset in the learner.
+	 * 
+	 * @param brain
+	 * @param agentOffset
+	 */
+	void setSharedLearner(Learner brain, int agentOffset) {
+		this.brain = brain;
+		this.brains = new ArrayList<Learner>(0);
+		this.agentOffset = agentOffset;
+	}
+
 	@Override
 	public void teardown() {
-		if (this.window != null)
-			this.window.setVisible(false);
+		if (this.renderer != null)
+			this.renderer.close();
+		if (this.agentPool != null) {
+			this.agentPool.shutdown();
+			this.agentPool = null;
+		}
 	}
 
 	/**
@@ -185,145 +421,160 @@ public class DemolitionGame implements Game {
 	 * edges, bomb and agents.
 	 */
 	public void setupGame() {
-		entities = new LinkedList<Entity>();
-		walls = new LinkedList<Wall>();
-		agents = new LinkedList<Agent>();
-		lasers = new LinkedList<Laser>();
-
-		// bomb site
-		double r = Math.random();
-		bombSite = new BombSite(new Vector2D(worldX - worldX * r, worldY * r));
-		entities.add(bombSite);
-
-		// map edges
-		entities.add(new Wall(new Vector2D(0, 0), new Vector2D(worldX, 0)));
-		entities.add(new Wall(new Vector2D(0, 0), new Vector2D(0, worldY)));
-		entities.add(new Wall(new Vector2D(worldX, 0), new Vector2D(worldX, worldY)));
-		entities.add(new Wall(new Vector2D(0, worldY), new Vector2D(worldX, worldY)));
+		if (agentPool == null) {
+			poolThreads.clear();
+			agentPool = new ForkJoinPool(agentThreads,
+					new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+						@Override
+						public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+							ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory
+									.newThread(pool);
+							poolThreads.add(thread);
+							TickProfiler p = profiler;
+							if (p != null)
+								p.addThread(thread);
+							return thread;
+						}
+					}, null, false);
+		}
+		agents = new ArrayList<Agent>(config.numAgents);
+		store = new WorldStore(config.numAgents);
+		grid = new SpatialGrid(config.worldX, config.worldY, config.agentRadius, store);
+
+		// map, with walls, map edges and bomb site
+		setMap(GameMap.generate(config, mapRandom));
 
 		// bomb
-		bomb = new Bomb(new Vector2D(0, 0));
-		entities.add(bomb);
+		bomb = new Bomb(new Vector2D(0, 0), config);
 
 		// agents
-		for (int i = 0; i < numAgents; i++) {
+		for (int i = 0; i < config.numAgents; i++) {
 			Agent a = new Agent(new Vector2D(0, 0), 0, i % 2, this);
 			a.respawn();
-			entities.add(a);
 			agents.add(a);
 		}
 	}
 
 	/**
-	 * Add walls and buildings to the map.
-	 */
-	public void createMap() {
-		// walls
-		for (int i = 0; i < numWalls; i++) {
-			double x = new Random().nextInt(worldX - 2 * agentRespawnAreaWidth) + agentRespawnAreaWidth;
-			double y = new Random().nextInt(worldY);
-			double len = wallMinLength + new Random().nextInt(wallMaxLength - wallMinLength);
-			double angle = new Random().nextFloat() * 2 * Math.PI;
-			Wall w = new Wall(new Vector2D(x, y), angle, len);
-			entities.add(w);
-			walls.add(w);
-		}
-
-		// buildings
-		for (int i = 0; i < numBuildings; i++) {
-			double x = new Random().nextInt(worldX);
-			double y = new Random().nextInt(worldY);
-			double length = buildingMinLength + new Random().nextInt(buildingMaxLength - buildingMinLength);
-			double width = buildingMinLength + new Random().nextInt(buildingMaxLength - buildingMinLength);
-			double angle = Math.random() * Math.PI * 2;
-
-			double x2 = x + length * Math.cos(angle) + width * Math.cos(Math.PI / 2 - angle);
-			double y2 = y;
-			ArrayList<Wall> ws = new ArrayList<Wall>(4);
-			ws.add(new Wall(new Vector2D(x, y), angle, length));
-			ws.add(new Wall(new Vector2D(x, y), angle + Math.PI / 2, width));
-			ws.add(new Wall(new Vector2D(x2, y2), angle, length));
-			ws.add(new Wall(new Vector2D(x2, y2), angle + Math.PI / 2, width));
-			for (Wall w : ws) {
-				entities.add(w);
-				walls.add(w);
-			}
-		}
-	}
-
-	/**
-	 * Clear walls from map, add new walls, and respawn all agents.
+	 * Move to the next map, from the map pool if there is one, and respawn
+	 * all agents and the bomb.
 	 */
 	public void resetMap() {
-		Iterator<Wall> itw = walls.listIterator();
-		while (itw.hasNext()) {
-			Wall w = itw.next();
-			entities.remove(w);
-		}
-		walls = new LinkedList<Wall>();
-
 		Iterator<Agent> ita = agents.listIterator();
 		while (ita.hasNext()) {
 			Agent a = ita.next();
 			a.respawn();
 		}
 
-		entities.remove(bomb);
-		bomb = new Bomb(new Vector2D(worldX - Math.random() * agentRespawnAreaWidth,
-				worldY - Math.random() * agentRespawnAreaWidth));
-		entities.add(bomb);
+		bomb = new Bomb(new Vector2D(config.worldX - random.nextDouble() * config.agentRespawnAreaWidth,
+				config.worldY - random.nextDouble() * config.agentRespawnAreaWidth), config);
+
+		setMap(mapPool != null ? mapPool.get(mapsPlayed++) : GameMap.generate(config, mapRandom));
+	}
 
-		entities.remove(bombSite);
-		double r = Math.random();
-		bombSite = new BombSite(new Vector2D(worldX - worldX * r, worldY * r));
-		((LinkedList<Entity>) entities).addFirst(bombSite);
+	/**
+	 * Play on a map: copy its walls, including the map edges, into the store
+	 * and use its bomb site and wall hierarchy.
+	 * 
+	 * @param map
+	 */
+	private void setMap(GameMap map) {
+		walls = map.walls;
+		bombSite = map.bombSite;
+		store.setWalls(map.allWalls);
+		wallBVH = map.wallBVH;
+	}
 
-		createMap();
+	/**
+	 * Set the maps to play in turn. Games given the same pool play the same
+	 * maps in the same order, starting from the pool's first map.
+	 * 
+	 * @param mapPool
+	 *            Maps to play, or null to generate a new map for every trial.
+	 */
+	public void setMapPool(MapPool mapPool) {
+		if (mapPool != null && (mapPool.config.worldX != config.worldX || mapPool.config.worldY != config.worldY))
+			throw new IllegalArgumentException("Map pool is for a " + mapPool.config.worldX + "x"
+					+ mapPool.config.worldY + " world, not " + config.worldX + "x" + config.worldY);
+		this.mapPool = mapPool;
+		this.mapsPlayed = 0;
 	}
 
 	/**
-	 * Listen for player inputs to move player controlled agent.
+	 * Find the first wall or agent hit by a ray.
 	 * 
-	 * @return Action requested by player.
+	 * @param line
+	 *            Ray to cast.
+	 * @param length
+	 *            Length of the ray.
+	 * @param ignore
+	 *            Agent the ray cannot hit, such as the agent casting it.
+	 * @return First hit, or the ray's length and null if nothing was hit.
 	 */
-	public int getInputAction(Agent a) {
-		int action = 0;
+	public RayHit castRay(Line2D line, double length, Agent ignore) {
+		RayHit result = new RayHit();
+		castRay(line.getStart().getX(), line.getStart().getY(), line.getDirection().getX(),
+				line.getDirection().getY(), length, ignore, result);
+		return result;
+	}
 
-		// turn towards the mouse
-		Vector2D mousePos = new Vector2D(window.mouseX, window.mouseY);
-		Vector2D myPos = a.getPosition().getCentre();
-		Vector2D myDir = a.getDirection();
-		Vector2D meToMouse = mousePos.sub(myPos);
-		if (myDir.getAngleTo(meToMouse) > DemolitionGame.agentFireSpread) {
-			action += 1 << 3;
-		} else if (myDir.getAngleTo(meToMouse) < -DemolitionGame.agentFireSpread) {
-			action += 1 << 2;
-		}
+	/**
+	 * Find the first wall or agent hit by a ray, without allocating.
+	 * 
+	 * @param ox
+	 * @param oy
+	 *            Start of the ray.
+	 * @param dx
+	 * @param dy
+	 *            Unit direction of the ray.
+	 * @param length
+	 *            Length of the ray.
+	 * @param ignore
+	 *            Agent the ray cannot hit, such as the agent casting it.
+	 * @param result
+	 *            Set to the first hit, or the ray's length and null if nothing
+	 *            was hit.
+	 */
+	public void castRay(double ox, double oy, double dx, double dy, double length, Agent ignore, RayHit result) {
+		wallBVH.castRay(ox, oy, dx, dy, length, result);
+		double wallDistance = result.getDistance();
+		Entity wall = result.getHit();
+
+		// agents can only be hit in front of the nearest wall
+		grid.castRay(ox, oy, dx, dy, wallDistance, ignore, result);
+		if (result.getHit() == null)
+			result.set(wallDistance, wall);
+	}
 
-		// move and shoot (also depreiciated turn)
-		if (window != null) {
-			if (window.pressW)
-				action += 1 << 0;
-			if (window.pressA)
-				action += 1 << 2;
-			if (window.pressD)
-				action += 1 << 3;
-			if (window.mousePress)
-				action += 1 << 1;
+	/**
+	 * Cast a batch of rays from the same start point, such as an agent's
+	 * sensor fan.
+	 * 
+	 * @param ox
+	 * @param oy
+	 *            Start of every ray.
+	 * @param dx
+	 * @param dy
+	 *            Unit direction of each ray.
+	 * @param length
+	 *            Length of every ray.
+	 * @param ignore
+	 *            Agent the rays cannot hit, such as the agent casting them.
+	 * @param results
+	 *            Set to each ray's first hit, as for castRay.
+	 */
+	public void castRays(double ox, double oy, double[] dx, double[] dy, double length, Agent ignore,
+			RayHit[] results) {
+		for (int i = 0; i < results.length; i++) {
+			castRay(ox, oy, dx[i], dy[i], length, ignore, results[i]);
 		}
-		return action;
 	}
 
 	/**
 	 * Clear all lasers.
 	 */
 	public void removeLasers() {
-		Iterator<Laser> it = lasers.listIterator();
-		while (it.hasNext()) {
-			Laser l = it.next();
-			entities.remove(l);
-		}
-		lasers = new LinkedList<Laser>();
+		store.clearLasers();
 	}
 
 	/**
@@ -340,85 +591,42 @@ public class DemolitionGame implements Game {
 		double reward = 0;
 
 		// used to calculate distance travelled over this time step, to give rewards
-		double bombDistBefore = a.getPosition().getCentre().getDistanceTo(bomb.getPosition().getCentre());
-		double bombSiteDistBefore = a.getPosition().getCentre().getDistanceTo(bombSite.getPosition().getCentre());
+		Vector2D site = bombSite.getPosition().getCentre();
+		double bombDistBefore = Geometry.distance(a.getX(), a.getY(), bomb.getX(), bomb.getY());
+		double bombSiteDistBefore = Geometry.distance(a.getX(), a.getY(), site.getX(), site.getY());
 
 		int toMove;
-		Vector2D direction;
-
-		ArrayList<Action> actions = new ArrayList<Action>(Action.values().length);
 
 		// multiple actions possible at once
-		if ((action & (1 << 0)) != 0) {
-			actions.add(Action.moveForward);
-		}
-		if ((action & (1 << 1)) != 0) {
-			actions.add(Action.shoot);
-		}
-		if ((action & (1 << 2)) != 0) {
-			actions.add(Action.turnRight);
-		}
-		if ((action & (1 << 3)) != 0) {
-			actions.add(Action.turnLeft);
-		}
-
-		for (Action act : actions) {
-			switch (act) {
+		for (int bit = 0; bit < actionBits.length; bit++) {
+			if ((action & (1 << bit)) == 0)
+				continue;
+			switch (actionBits[bit]) {
 			case moveForward:
-				toMove = agentForwardMoveRate;
-				direction = a.getDirection();
-				a.move(toMove, direction);
-				reward += rewardMove;
+				toMove = config.agentForwardMoveRate;
+				a.moveForward(toMove);
+				reward += config.rewardMove;
 				break;
 			case moveBackward:
-				toMove = -agentForwardMoveRate / 3;
-				direction = a.getDirection();
-				a.move(toMove, direction);
-				reward += rewardMove / 3;
+				toMove = -config.agentForwardMoveRate / 3;
+				a.moveForward(toMove);
+				reward += config.rewardMove / 3;
 				break;
 			case turnLeft:
-				a.turn(-agentTurnRate);
+				a.turn(-config.agentTurnRate);
 				break;
 			case turnRight:
-				a.turn(agentTurnRate);
+				a.turn(config.agentTurnRate);
 				break;
 			case shoot:
 				if (bomb.getCarrier() != a) {
 					// create a laser
 					Laser l = a.shoot();
 					if (l != null) {
-						entities.add(l);
-						lasers.add(l);
-						// check for what the laser hit
-						if (l.getHit() instanceof Agent) {
-							// calculate damage
-							Agent agentHit = (Agent) l.getHit();
-							boolean hitBombCarrier = agentHit == bomb.getCarrier();
-							boolean kill = false;
-							int damage = (int) (laserDamage * (1 - Math.exp(-a.experience / 5.) / 3.));
-
-							// assign rewards for damage done
-							if (agentHit.getTeam() != a.getTeam() && agentHit.damage(damage))
-								kill = true;
-							if (((Agent) l.getHit()).getTeam() == a.getTeam()) {
-								reward += rewardDamageAlly;
-								if (kill)
-									reward += rewardKillAlly;
-							} else {
-								reward += rewardDamageEnemy;
-								if (kill) {
-									reward += rewardKillEnemy;
-									a.experience++;
-									if (hitBombCarrier) {
-										reward += rewardKillBombCarrier;
-									}
-								}
-							}
-						} else {
-							reward += rewardMiss;
-						}
+						store.addLaser(l);
+						reward += laserReward(a, l);
 					} else {
-						reward += rewardMiss;
+						reward += config.rewardMiss;
 					}
 				}
 				break;
@@ -427,50 +635,223 @@ public class DemolitionGame implements Game {
 			}
 		}
 
+		reward += finishAction(a, bombDistBefore, bombSiteDistBefore);
+
+		return reward;
+	}
+
+	/**
+	 * Damage whatever a laser hit, and get the reward for shooting it.
+	 * 
+	 * @param a
+	 *            Agent which shot the laser.
+	 * @param l
+	 *            Laser shot.
+	 * @return Reward received by a for the shot.
+	 */
+	private double laserReward(Agent a, Laser l) {
+		double reward = 0;
+		// check for what the laser hit
+		if (l.getHit() instanceof Agent) {
+			// calculate damage
+			Agent agentHit = (Agent) l.getHit();
+			boolean hitBombCarrier = agentHit == bomb.getCarrier();
+			boolean kill = false;
+			int damage = (int) (config.laserDamage * (1 - Math.exp(-a.experience / 5.) / 3.));
+
+			// assign rewards for damage done
+			if (agentHit.getTeam() != a.getTeam() && agentHit.damage(damage))
+				kill = true;
+			if (((Agent) l.getHit()).getTeam() == a.getTeam()) {
+				reward += config.rewardDamageAlly;
+				if (kill)
+					reward += config.rewardKillAlly;
+			} else {
+				reward += config.rewardDamageEnemy;
+				if (kill) {
+					reward += config.rewardKillEnemy;
+					a.experience++;
+					if (hitBombCarrier) {
+						reward += config.rewardKillBombCarrier;
+					}
+				}
+			}
+		} else {
+			reward += config.rewardMiss;
+		}
+		return reward;
+	}
+
+	/**
+	 * Resolve an agent's collisions once it has acted, and get its rewards for
+	 * being hit and for its progress with the bomb.
+	 * 
+	 * @param a
+	 *            Agent which has acted.
+	 * @param bombDistBefore
+	 *            Distance from a to the bomb before acting.
+	 * @param bombSiteDistBefore
+	 *            Distance from a to the bomb site before acting.
+	 * @return Reward received by a.
+	 */
+	private double finishAction(Agent a, double bombDistBefore, double bombSiteDistBefore) {
+		double reward = 0;
+
 		// collision avoidance
+		long collideStart = profiler == null ? 0 : System.nanoTime();
 		if (avoidCollision(a)) {
 			a.crashed = true;
-			reward += rewardCrash;
-			a.damage(crashDamage);
+			reward += config.rewardCrash;
+			a.damage(config.crashDamage);
 		}
+		if (profiler != null)
+			profiler.record(TickProfiler.Phase.COLLIDE, collideStart);
 
 		if (a.killed) {
-			reward += rewardDie;
+			reward += config.rewardDie;
 		}
 		if (a.damaged) {
-			reward += rewardGetHit;
+			reward += config.rewardGetHit;
 		}
 
-		double bombDistAfter = a.getPosition().getCentre().getDistanceTo(bomb.getPosition().getCentre());
-		double bombSiteDistAfter = a.getPosition().getCentre().getDistanceTo(bombSite.getPosition().getCentre());
+		Vector2D site = bombSite.getPosition().getCentre();
+		double bombDistAfter = Geometry.distance(a.getX(), a.getY(), bomb.getX(), bomb.getY());
+		double bombSiteDistAfter = Geometry.distance(a.getX(), a.getY(), site.getX(), site.getY());
 
 		// bomb related rewards
 		if (bomb.isCarried() && bomb.getCarrier() == a) {
-			double delta = rewardAttackerApproachBombSite * (bombSiteDistBefore - bombSiteDistAfter)
-					/ agentForwardMoveRate;
+			double delta = config.rewardAttackerApproachBombSite * (bombSiteDistBefore - bombSiteDistAfter)
+					/ config.agentForwardMoveRate;
 			delta *= (delta < 0 ? 1.1 : 1);
 			reward += delta;
 		} else if (bomb.getArmer() == a) {
-			reward += rewardArmingBomb;
+			reward += config.rewardArmingBomb;
 		} else if (bomb.getDefuser() == a) {
-			reward += rewardDefusingBomb;
+			reward += config.rewardDefusingBomb;
 		}
 		if (a.getTeam() == 1 && !bomb.isCarried()) {
-			double delta = rewardApproachBomb * (bombDistBefore - bombDistAfter) / agentForwardMoveRate;
+			double delta = config.rewardApproachBomb * (bombDistBefore - bombDistAfter) / config.agentForwardMoveRate;
 			delta *= (delta < 0 ? 1.1 : 1);
 			reward += delta;
 		} else if (a.getTeam() == 0 && bomb.isArmed()) {
-			double delta = rewardDefenderApproachBombSite * (bombSiteDistBefore - bombSiteDistAfter)
-					/ agentForwardMoveRate;
+			double delta = config.rewardDefenderApproachBombSite * (bombSiteDistBefore - bombSiteDistAfter)
+					/ config.agentForwardMoveRate;
 			delta *= (delta < 0 ? 1.1 : 1);
 			reward += delta;
 		}
 
-		// reward += ((distBefore - distAfter) / 50.) / agentForwardMoveRate;
+		// reward += ((distBefore - distAfter) / 50.) / config.agentForwardMoveRate;
 
 		return reward;
 	}
 
+	/**
+	 * Resolve an agent's action against the world as it was at the start of
+	 * the act phase, in lockstep mode. Only changes a's own state and its
+	 * entries in the next buffer, so agents can be resolved in parallel.
+	 * 
+	 * @param i
+	 *            Index of the agent acting.
+	 */
+	private void resolveAction(int i) {
+		Agent a = agents.get(i);
+		int action = actions[i];
+		Vector2D site = bombSite.getPosition().getCentre();
+		nextBombDist[i] = Geometry.distance(a.getX(), a.getY(), bomb.getX(), bomb.getY());
+		nextBombSiteDist[i] = Geometry.distance(a.getX(), a.getY(), site.getX(), site.getY());
+		nextShot[i] = false;
+		nextLaser[i] = null;
+		nextReward[i] = 0;
+
+		for (int bit = 0; bit < actionBits.length; bit++) {
+			if ((action & (1 << bit)) == 0)
+				continue;
+			switch (actionBits[bit]) {
+			case moveForward:
+				a.moveForward(config.agentForwardMoveRate);
+				nextReward[i] += config.rewardMove;
+				break;
+			case moveBackward:
+				a.moveForward(-config.agentForwardMoveRate / 3);
+				nextReward[i] += config.rewardMove / 3;
+				break;
+			case turnLeft:
+				a.turn(-config.agentTurnRate, turnLeftNoise[i]);
+				break;
+			case turnRight:
+				a.turn(config.agentTurnRate, turnRightNoise[i]);
+				break;
+			case shoot:
+				if (bomb.getCarrier() != a) {
+					// the laser is cast against the previous positions, as
+					// no agent's move is visible until the merge
+					nextShot[i] = true;
+					nextLaser[i] = a.shoot(fireNoise[i]);
+				}
+				break;
+			default:
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Perform every agent's action in lockstep. Each agent's action is
+	 * resolved against the previous time step's positions, possibly in
+	 * parallel, then merged into the world in agent order:
+	 * <ol>
+	 * <li>every agent's move and turn is written to the grid and store</li>
+	 * <li>lasers do damage in the order they were shot; an agent killed
+	 * earlier in the time step has respawned elsewhere, so later lasers at it
+	 * miss</li>
+	 * <li>collisions are resolved for each agent</li>
+	 * </ol>
+	 * Random numbers are drawn in agent order before resolving, so results do
+	 * not depend on how agents are spread over threads.
+	 * 
+	 * @return Reward received by each agent, indexed by agent.
+	 */
+	private double[] performActionsLockstep() {
+		for (int i = 0; i < agents.size(); i++) {
+			fireNoise[i] = random.nextDouble();
+			turnRightNoise[i] = random.nextDouble();
+			turnLeftNoise[i] = random.nextDouble();
+		}
+
+		// resolve against the previous buffer
+		resolving = true;
+		try {
+			if (agentPool.getParallelism() > 1) {
+				agentPool.invoke(new AgentTask(0, agents.size(), true));
+			} else {
+				for (int i = 0; i < agents.size(); i++)
+					resolveAction(i);
+			}
+		} finally {
+			resolving = false;
+		}
+
+		// merge into the next buffer
+		for (int i = 0; i < agents.size(); i++)
+			agents.get(i).updateWorld();
+		for (int i = 0; i < agents.size(); i++) {
+			Agent a = agents.get(i);
+			Laser l = nextLaser[i];
+			if (l != null) {
+				store.addLaser(l);
+				if (l.getHit() instanceof Agent && ((Agent) l.getHit()).killed)
+					nextReward[i] += config.rewardMiss;
+				else
+					nextReward[i] += laserReward(a, l);
+			} else if (nextShot[i]) {
+				nextReward[i] += config.rewardMiss;
+			}
+		}
+		for (int i = 0; i < agents.size(); i++)
+			nextReward[i] += finishAction(agents.get(i), nextBombDist[i], nextBombSiteDist[i]);
+		return nextReward;
+	}
+
 	/**
 	 * Check if an agent is colliding with a wall or another agent, and move
 	 * then such that they are no longer colliding with the object.
@@ -481,50 +862,60 @@ public class DemolitionGame implements Game {
 	 */
 	public boolean avoidCollision(Agent a) {
 		boolean hit = false;
-		for (Entity e2 : entities) {
+		double r = config.agentRadius;
+		// only nearby walls and agents can collide
+		wallBVH.wallsNear(a.getX(), a.getY(), r, nearWalls);
+		for (int k = 0; k < nearWalls.size(); k++) {
 			// collision with walls
-			if (e2 instanceof Wall) {
-				Wall w = (Wall) e2;
-				Double[] ds = a.getPosition().intersect(w.getLine());
-				if (ds[0] != null) {
-					// check for collision
-					boolean[] bs = { (ds[0] > 0 && ds[0] < w.getLength()), (ds[1] > 0 && ds[1] < w.getLength()) };
-					if (bs[0] || bs[1]) {
-						double lambda, distance;
-						Vector2D collisionPoint, direction;
-						if (bs[0] && bs[1]) {
-							lambda = (ds[0] + ds[1]) / 2;
-							collisionPoint = w.getLine().getStart().add(w.getLine().getDirection().scale(lambda));
+			Wall w = nearWalls.get(k);
+			double wx = w.getLine().getStart().getX(), wy = w.getLine().getStart().getY();
+			double wdx = w.getLine().getDirection().getX(), wdy = w.getLine().getDirection().getY();
+			// the circle can only cross the wall if the wall comes within r
+			// of its centre, which is checked without square roots first
+			double wallDistSq = Geometry.segmentDistanceSquared(wx, wy, wdx, wdy, w.getLength(), a.getX(), a.getY());
+			if (wallDistSq > r * r + collisionTolerance)
+				continue;
+			double far = Geometry.lineCircleFar(wx, wy, wdx, wdy, a.getX(), a.getY(), r);
+			if (!Double.isNaN(far)) {
+				double near = Geometry.lineCircleNear(wx, wy, wdx, wdy, a.getX(), a.getY(), r);
+				// check for collision
+				boolean farHit = far > 0 && far < w.getLength();
+				boolean nearHit = near > 0 && near < w.getLength();
+				if (farHit || nearHit) {
+					double lambda;
+					if (farHit && nearHit) {
+						lambda = (far + near) / 2;
+					} else {
+						lambda = farHit ? far : near;
+						if (lambda < w.getLength() / 2) {
+							lambda /= 2;
 						} else {
-							lambda = bs[0] ? ds[0] : ds[1];
-							if (lambda < w.getLength() / 2) {
-								lambda /= 2;
-							} else {
-								lambda = (w.getLength() + lambda) / 2;
-							}
-							collisionPoint = w.getLine().getStart().add(w.getLine().getDirection().scale(lambda));
+							lambda = (w.getLength() + lambda) / 2;
 						}
-						direction = a.getPosition().getCentre().sub(collisionPoint);
-						distance = Math.sqrt(collisionPoint.getDistanceToSquared(a.getPosition().getCentre()));
-						// move away from collision point
-						a.forceMove(agentRadius - distance + 1, direction);
-						hit = true;
 					}
-				}
-			} else if (e2 instanceof Agent && e2 != a) {
-				// collision with agents
-				Agent a2 = (Agent) e2;
-				if (a.collide(a2)) {
-					Vector2D direction = a.getPosition().getCentre().sub(a2.getPosition().getCentre());
-					@SuppressWarnings("unused")
-					double distance = Math
-							.sqrt(a.getPosition().getCentre().getDistanceToSquared(a2.getPosition().getCentre()));
-					// move away from other agent
-					a.forceMove(agentForwardMoveRate / 3, direction);
+					double dx = a.getX() - (wx + wdx * lambda);
+					double dy = a.getY() - (wy + wdy * lambda);
+					double distance = Math.sqrt(dx * dx + dy * dy);
+					// move away from collision point
+					a.forceMove(config.agentRadius - distance + 1, dx, dy);
 					hit = true;
 				}
 			}
 		}
+		int i = a.getIndex();
+		grid.agentsNear(a, nearAgents);
+		for (int k = 0; k < nearAgents.size(); k++) {
+			// collision with agents, read from the store as a moves
+			// each time it collides
+			int j = nearAgents.get(k).getIndex();
+			double dx = store.agentX[i] - store.agentX[j];
+			double dy = store.agentY[i] - store.agentY[j];
+			if (dx * dx + dy * dy <= 4 * r * r) {
+				// move away from other agent
+				a.forceMove(config.agentForwardMoveRate / 3, dx, dy);
+				hit = true;
+			}
+		}
 		return hit;
 	}
 
@@ -535,10 +926,10 @@ public class DemolitionGame implements Game {
 	 *            Agent to check.
 	 * @return True if agent is off the map, else false.
 	 */
-	public static boolean agentOffMap(Agent a) {
-		double x = a.getPosition().getCentre().getX();
-		double y = a.getPosition().getCentre().getY();
-		return (x < 0 || x > worldX || y < 0 || y > worldY);
+	public boolean agentOffMap(Agent a) {
+		double x = a.getX();
+		double y = a.getY();
+		return (x < 0 || x > config.worldX || y < 0 || y > config.worldY);
 	}
 
 	/**
@@ -547,7 +938,8 @@ public class DemolitionGame implements Game {
 	 * @return -1 if game not over, 1 if attackers win, 0 if defenders win.
 	 */
 	public int gameOver() {
-		if (turn > gameLength || bomb.getDefused() || (turn > gameLength - bombFramesToExplode && !bomb.isArmed()))
+		if (turn > config.gameLength || bomb.getDefused()
+				|| (turn > config.gameLength - config.bombFramesToExplode && !bomb.isArmed()))
 			return 0;
 		else if (bomb.getExploded())
 			return 1;
@@ -562,46 +954,30 @@ public class DemolitionGame implements Game {
 	 */
 	public double runTimeStep() {
 
-		double totalReward = 0;
-
 		// Get the time that the frame started
 		long start = System.nanoTime();
 
-		// bomb arming
-		bomb.doTimeStep(this);
-
-		// team 0 = defenders
-		// team 1 = attackers
-		int randomTeam = -1;// XXX team to take random actions
-
-		// give each agent inputs and get outputs
-		int agentNum = 0;
-		Iterator<Agent> it = agents.listIterator();
-		List<Integer> actions = new LinkedList<Integer>();
-		while (it.hasNext()) {
-			Agent a = it.next();
-
-			a.runGameStep();
-
-			a.updateInputs();
+		boolean decide = sense();
 
-			// if agent off map, move back onto map
-			double x = a.getPosition().getCentre().getX();
-			double y = a.getPosition().getCentre().getY();
-			double x2 = x < 0 ? 1 : x > worldX ? worldX - 1 : x;
-			double y2 = y < 0 ? 1 : y > worldY ? worldY - 1 : y;
-			a.forceMove(x2 - x, new Vector2D(1, 0));
-			a.forceMove(y2 - y, new Vector2D(0, 1));
+		// decide phase: get each agent's outputs
+		long phaseStart = profiler == null ? 0 : System.nanoTime();
+		int decisions = 0;
+		for (int agentNum = 0; agentNum < agents.size(); agentNum++) {
+			Agent a = agents.get(agentNum);
 
 			int action = 0;
 
 			// XXX ACTION SELECTION
 			if (a.getTeam() == randomTeam) { // default: 0 (ie defenders do
 												// random actions)
-				action = (int) (Math.random() * 12);
+				action = random.nextInt(12);
+			} else if (!decide) {
+				action = actions[agentNum];
 			} else {
 				// XXX learn together or learn separately
-				action = brain.getAction(a.getInputs(), a.getReward(), agentNum);
+				// rewards since the last decision count as one step
+				action = brain.getAction(a.getInputs(), takePendingReward(agentNum), agentOffset + agentNum);
+				decisions++;
 
 				// action = brains.get(agentNum).getAction(a.getInputs(),
 				// a.getReward(), agentNum);
@@ -611,64 +987,197 @@ public class DemolitionGame implements Game {
 			if (agentNum == 1) {
 				a.playerControlled = false;
 				if (playerOn) {
-					action = getInputAction(a);
+					action = renderer.getPlayerAction(a);
 					a.playerControlled = true;
 				}
-				if (window != null && window.pressInt == 1)
-					playerOn = true;
-				else if (window != null && window.pressInt != 1)
-					playerOn = false;
+				if (renderer != null)
+					playerOn = renderer.playerWanted();
 			}
 
-			actions.add(action);
-
-			agentNum++;
+			actions[agentNum] = action;
+		}
+		if (profiler != null) {
+			profiler.record(TickProfiler.Phase.DECIDE, phaseStart);
+			profiler.countDecisions(decisions);
 		}
 
-		// if we're drawing
-		if (window != null) {
+		return act(start);
+	}
 
-			// update FPS
-			DemolitionGame.currentFPS = (int) Math.round(DemolitionGame.FPS * Math.pow(2, window.pressInt - 1));
+	/**
+	 * Start a time step: update the bomb and agents, then sense. Followed by
+	 * choosing every agent's action, then act.
+	 * 
+	 * @return True if agents choose new actions this time step, false if they
+	 *         repeat their previous actions.
+	 */
+	boolean sense() {
 
-			// Redraw the world
-			if (window.pressInt != 0) {
+		// bomb arming
+		long phaseStart = profiler == null ? 0 : System.nanoTime();
+		bomb.doTimeStep(this);
+		if (profiler != null)
+			profiler.record(TickProfiler.Phase.BOMB, phaseStart);
 
-				world.repaint();
+		for (int agentNum = 0; agentNum < agents.size(); agentNum++) {
+			Agent a = agents.get(agentNum);
 
-				// sleep for necessary time
-				long delta = (long) ((1000000000.0 / currentFPS) - (System.nanoTime() - start));
-				if (delta > 0) {
-					try {
-						Thread.sleep(delta / 1000000L, (int) delta % 1000000);
-					} catch (Exception e) {
-						e.printStackTrace();
-					}
-				}
+			a.runGameStep();
+
+			// if agent off map, move back onto map
+			double x = a.getX();
+			double y = a.getY();
+			double x2 = x < 0 ? 1 : x > config.worldX ? config.worldX - 1 : x;
+			double y2 = y < 0 ? 1 : y > config.worldY ? config.worldY - 1 : y;
+			a.forceMove(x2 - x, 1, 0);
+			a.forceMove(y2 - y, 0, 1);
+		}
+
+		// agents only choose a new action every decisionInterval time steps,
+		// repeating their last action in between
+		boolean decide = turn % decisionInterval == 0;
+
+		// sense phase: give each agent inputs, with no agent moving until
+		// every agent has sensed. Inputs are only needed to decide, or to
+		// draw the sensors
+		phaseStart = profiler == null ? 0 : System.nanoTime();
+		if (decide || (renderer != null && renderer.showsSensors())) {
+			if (agentPool.getParallelism() > 1) {
+				agentPool.invoke(new AgentTask(0, agents.size(), false));
+			} else {
+				// handing work to a single thread is slower than sensing here
+				for (int agentNum = 0; agentNum < agents.size(); agentNum++)
+					agents.get(agentNum).updateInputs();
 			}
 		}
+		if (profiler != null)
+			profiler.record(TickProfiler.Phase.SENSE, phaseStart);
+
+		return decide;
+	}
+
+	/**
+	 * Get the reward an agent has received since its action was last chosen,
+	 * and start accumulating its reward again.
+	 * 
+	 * @param agentNum
+	 * @return
+	 */
+	double takePendingReward(int agentNum) {
+		double reward = pendingReward[agentNum];
+		pendingReward[agentNum] = 0;
+		return reward;
+	}
+
+	/**
+	 * Get the action an agent performs this time step.
+	 * 
+	 * @param agentNum
+	 * @return
+	 */
+	public int getAction(int agentNum) {
+		return actions[agentNum];
+	}
+
+	/**
+	 * Get the number of time steps played so far in the current game.
+	 * 
+	 * @return
+	 */
+	public int getTurn() {
+		return turn;
+	}
+
+	/**
+	 * Set the action an agent performs this time step.
+	 * 
+	 * @param agentNum
+	 * @param action
+	 */
+	void setAction(int agentNum, int action) {
+		actions[agentNum] = action;
+	}
+
+	/**
+	 * Finish a time step once every agent's action is chosen: draw the world,
+	 * then perform the actions.
+	 * 
+	 * @param start
+	 *            Time the time step started, to keep drawing at the right
+	 *            frame rate.
+	 * @return Total reward received by all agents this time step.
+	 */
+	double act(long start) {
+
+		double totalReward = 0;
+
+		// if we're drawing
+		if (renderer != null) {
+			long renderStart = profiler == null ? 0 : System.nanoTime();
+			renderer.render(start);
+			if (profiler != null)
+				profiler.record(TickProfiler.Phase.RENDER, renderStart);
+		}
 
+		// act phase: perform agent outputs
+		long phaseStart = profiler == null ? 0 : System.nanoTime();
 		removeLasers();
 
-		// perform agent outputs
-		it = agents.listIterator();
-		Iterator<Integer> actionIterator = actions.listIterator();
-		while (it.hasNext()) {
-			Agent a = it.next();
-			int action = actionIterator.next();
+		double[] rewards = lockstep ? performActionsLockstep() : null;
+		for (int agentNum = 0; agentNum < agents.size(); agentNum++) {
+			Agent a = agents.get(agentNum);
+			int action = actions[agentNum];
 
 			double reward = 0;
-			reward = performAction(a, action);
+			reward = lockstep ? rewards[agentNum] : performAction(a, action);
 
 			if (a.getTeam() != randomTeam) // only measure attacker rewards
 				totalReward += reward;
 
 			a.setReward(reward);
+			pendingReward[agentNum] += reward;
 		}
 
+		if (profiler != null) {
+			profiler.record(TickProfiler.Phase.ACT, phaseStart);
+			profiler.tick();
+		}
+		turn++;
+
 		return totalReward;
 	}
 
+	/**
+	 * Get the speed of the last trial and the mean time spent in each phase of
+	 * its time steps.
+	 * 
+	 * @return Description of the time spent in each phase.
+	 * @see TickProfiler#toString()
+	 */
+	public String getPhaseTimes() {
+		if (profiler == null)
+			return "Phase times: not profiled";
+		return "Phase times: " + profiler;
+	}
+
+	/**
+	 * Get the fraction of sensor rays in the current trial which were reused
+	 * from the previous time step rather than cast, as agents which have not
+	 * moved or turned only cast the rays other agents may have changed.
+	 * 
+	 * @return Description of the sensor cache hit rate.
+	 */
+	public String getSensorCacheStats() {
+		long cast = -raysCastBefore, reused = -raysReusedBefore;
+		for (Agent a : agents) {
+			cast += a.getRaysCast();
+			reused += a.getRaysReused();
+		}
+		long total = cast + reused;
+		return String.format("Sensor cache: %d of %d rays reused (%.1f%%)", reused, total,
+				total == 0 ? 0 : 100. * reused / total);
+	}
+
 	/**
 	 * Run a full game.
 	 * 
@@ -680,30 +1189,58 @@ public class DemolitionGame implements Game {
 		brain.reset();
 		for (Learner l : brains)
 			l.reset();
-		resetMap();
-		turn = 0;
+		startTrial();
 		double reward = 0;
 
 		// run game
 		while (gameOver() == -1) {
 			reward += runTimeStep();
-			turn++;
 		}
 
+		return finishTrial(reward);
+	}
+
+	/**
+	 * Reset the map and statistics for a new game, without resetting the
+	 * learner.
+	 */
+	void startTrial() {
+		resetMap();
+		turn = 0;
+		if (profiler != null)
+			profiler.startTrial();
+		raysCastBefore = raysReusedBefore = 0;
+		for (Agent a : agents) {
+			raysCastBefore += a.getRaysCast();
+			raysReusedBefore += a.getRaysReused();
+		}
+	}
+
+	/**
+	 * Give the learner each agent's final reward once the game is over.
+	 * 
+	 * @param reward
+	 *            Total reward received over the game.
+	 * @return Moving average of the reward per time step over recent games.
+	 */
+	double finishTrial(double reward) {
 		// get final reward
-		for (int agentNum = 0; agentNum < numAgents; agentNum++) {
+		for (int agentNum = 0; agentNum < config.numAgents; agentNum++) {
 			Agent a = agents.get(agentNum);
 
 			double finalReward = 0;
 			if (a.getTeam() == gameOver()) {
-				finalReward = rewardWinGame;
+				finalReward = config.rewardWinGame;
 			}
 
-			// give final reward to learner
-			brain.getAction(a.getInputs(), finalReward, agentNum);
+			// give final reward to learner, with any rewards since its last
+			// decision
+			brain.getAction(a.getInputs(), finalReward + takePendingReward(agentNum), agentOffset + agentNum);
 			reward += finalReward;
 
 		}
+		if (profiler != null)
+			profiler.finishTrial();
 
 		// reward processing
 		double newReward = reward / turn;
@@ -715,4 +1252,5 @@ public class DemolitionGame implements Game {
 		return meanReward;
 	}
 
+
 }
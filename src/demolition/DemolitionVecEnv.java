@@ -0,0 +1,197 @@
+package demolition;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import demolitionEntities.Agent;
+import learner.Learner;
+
+/**
+ * Several independent Demolition Games stepped in lockstep, sharing one
+ * learner. Each time step, every game's agents' observations are gathered
+ * into one batch and given to the learner together, so the learner evaluates
+ * its Q-function once for the whole batch rather than once per agent, and the
+ * actions are scattered back to the games.
+ * 
+ * The games are not drawn, and all use the same config. The learner must be
+ * set up for numGames * config.numAgents agents, with game k's agents
+ * numbered from k * config.numAgents.
+ * 
+ * @author Alex Braithwaite
+ * 
+ */
+public class DemolitionVecEnv {
+
+	private DemolitionGame[] games;
+	private Learner brain;
+
+	/**
+	 * Number of agents in each game.
+	 */
+	private final int numAgents;
+
+	/**
+	 * Total reward each game has received so far in the current trial.
+	 */
+	private double[] rewards;
+
+	/**
+	 * Create a number of games with the default settings sharing a learner.
+	 * 
+	 * @param numGames
+	 * @param brain
+	 *            Learner for every agent in every game.
+	 */
+	public DemolitionVecEnv(int numGames, Learner brain) {
+		this(numGames, brain, DemolitionConfig.defaults());
+	}
+
+	/**
+	 * Create a number of games with the given settings sharing a learner.
+	 * 
+	 * @param numGames
+	 * @param brain
+	 *            Learner for every agent in every game.
+	 * @param config
+	 */
+	public DemolitionVecEnv(int numGames, Learner brain, DemolitionConfig config) {
+		this.brain = brain;
+		this.numAgents = config.numAgents;
+		this.games = new DemolitionGame[numGames];
+		this.rewards = new double[numGames];
+		for (int k = 0; k < numGames; k++) {
+			games[k] = new DemolitionGame(false, config);
+			games[k].setupGame();
+			games[k].setSharedLearner(brain, k * numAgents);
+		}
+	}
+
+	/**
+	 * Set the maps every game plays in turn, so all games play the same map
+	 * each trial.
+	 * 
+	 * @param mapPool
+	 *            Maps to play, or null for a new map every trial.
+	 * @see DemolitionGame#setMapPool(MapPool)
+	 */
+	public void setMapPool(MapPool mapPool) {
+		for (DemolitionGame game : games)
+			game.setMapPool(mapPool);
+	}
+
+	/**
+	 * Set whether agents of every game act in lockstep.
+	 * 
+	 * @param lockstep
+	 * @see DemolitionGame#setLockstep(boolean)
+	 */
+	public void setLockstep(boolean lockstep) {
+		for (DemolitionGame game : games)
+			game.setLockstep(lockstep);
+	}
+
+	/**
+	 * Set the decision interval of every game.
+	 * 
+	 * @param interval
+	 * @see DemolitionGame#setDecisionInterval(int)
+	 */
+	public void setDecisionInterval(int interval) {
+		for (DemolitionGame game : games)
+			game.setDecisionInterval(interval);
+	}
+
+	/**
+	 * Run a full game in every environment. Games which finish early wait for
+	 * the rest.
+	 * 
+	 * @return Moving average of the reward per time step of each game.
+	 */
+	public double[] runTrials() {
+		brain.reset();
+		for (int k = 0; k < games.length; k++) {
+			games[k].startTrial();
+			rewards[k] = 0;
+		}
+
+		boolean running = true;
+		while (running) {
+			running = false;
+			step();
+			for (DemolitionGame game : games) {
+				if (game.gameOver() == -1)
+					running = true;
+			}
+		}
+
+		double[] meanRewards = new double[games.length];
+		for (int k = 0; k < games.length; k++) {
+			meanRewards[k] = games[k].finishTrial(rewards[k]);
+		}
+		return meanRewards;
+	}
+
+	/**
+	 * Run one time step of every game still running.
+	 */
+	private void step() {
+		long start = System.nanoTime();
+
+		// gather the observations of every agent choosing an action
+		List<List<Double>> states = new ArrayList<List<Double>>();
+		List<Double> stateRewards = new ArrayList<Double>();
+		List<Integer> agentNums = new ArrayList<Integer>();
+		boolean[] running = new boolean[games.length];
+		for (int k = 0; k < games.length; k++) {
+			DemolitionGame game = games[k];
+			running[k] = game.gameOver() == -1;
+			if (!running[k] || !game.sense())
+				continue;
+			for (int i = 0; i < game.agents.size(); i++) {
+				Agent a = game.agents.get(i);
+				states.add(a.getInputs());
+				stateRewards.add(game.takePendingReward(i));
+				agentNums.add(k * numAgents + i);
+			}
+		}
+
+		// evaluate them in one batch
+		if (!states.isEmpty()) {
+			double[] r = new double[stateRewards.size()];
+			int[] n = new int[agentNums.size()];
+			for (int i = 0; i < r.length; i++) {
+				r[i] = stateRewards.get(i);
+				n[i] = agentNums.get(i);
+			}
+			int[] actions = brain.getActions(states, r, n);
+
+			// scatter the actions back to their games
+			for (int i = 0; i < actions.length; i++) {
+				games[n[i] / numAgents].setAction(n[i] % numAgents, actions[i]);
+			}
+		}
+
+		for (int k = 0; k < games.length; k++) {
+			if (running[k])
+				rewards[k] += games[k].act(start);
+		}
+	}
+
+	/**
+	 * Tear down every game, once no more trials will be run.
+	 */
+	public void teardown() {
+		for (DemolitionGame game : games)
+			game.teardown();
+	}
+
+	/**
+	 * Get the games being run.
+	 * 
+	 * @return
+	 */
+	public DemolitionGame[] getGames() {
+		return games;
+	}
+
+}
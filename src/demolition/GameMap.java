@@ -0,0 +1,108 @@
+package demolition;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import demolitionEntities.BombSite;
+import demolitionEntities.Wall;
+import demolitionUtilities.Vector2D;
+
+/**
+ * Layout of a Demolition Game map: its walls, buildings and bomb site, along
+ * with the wall hierarchy built over them. Maps never change once generated,
+ * so one map can be played by any number of games at once.
+ * 
+ * @author Alex Braithwaite
+ * 
+ */
+public class GameMap {
+
+	/**
+	 * Walls and the walls of buildings, not including the map edges.
+	 */
+	public final List<Wall> walls;
+
+	/**
+	 * Walls including the map edges.
+	 */
+	final List<Wall> allWalls;
+
+	public final BombSite bombSite;
+
+	final WallBVH wallBVH;
+
+	private GameMap(List<Wall> walls, List<Wall> edges, BombSite bombSite) {
+		List<Wall> all = new ArrayList<Wall>(edges.size() + walls.size());
+		all.addAll(edges);
+		all.addAll(walls);
+		this.walls = Collections.unmodifiableList(walls);
+		this.allWalls = Collections.unmodifiableList(all);
+		this.bombSite = bombSite;
+		this.wallBVH = new WallBVH(all);
+	}
+
+	/**
+	 * Generate a random map.
+	 * 
+	 * @param config
+	 *            Settings of the games the map is for.
+	 * @param random
+	 *            Source of the map's layout, so the same seed always gives
+	 *            the same map.
+	 * @return
+	 */
+	public static GameMap generate(DemolitionConfig config, Random random) {
+		// bomb site
+		double r = random.nextDouble();
+		BombSite bombSite = new BombSite(new Vector2D(config.worldX - config.worldX * r, config.worldY * r), config);
+
+		List<Wall> walls = new ArrayList<Wall>(config.numWalls + 4 * config.numBuildings);
+
+		// walls
+		for (int i = 0; i < config.numWalls; i++) {
+			double x = random.nextInt(config.worldX - 2 * config.agentRespawnAreaWidth) + config.agentRespawnAreaWidth;
+			double y = random.nextInt(config.worldY);
+			double len = config.wallMinLength + random.nextInt(config.wallMaxLength - config.wallMinLength);
+			double angle = random.nextFloat() * 2 * Math.PI;
+			walls.add(new Wall(new Vector2D(x, y), angle, len));
+		}
+
+		// buildings
+		for (int i = 0; i < config.numBuildings; i++) {
+			double x = random.nextInt(config.worldX);
+			double y = random.nextInt(config.worldY);
+			double length = config.buildingMinLength
+					+ random.nextInt(config.buildingMaxLength - config.buildingMinLength);
+			double width = config.buildingMinLength
+					+ random.nextInt(config.buildingMaxLength - config.buildingMinLength);
+			double angle = random.nextDouble() * Math.PI * 2;
+
+			double x2 = x + length * Math.cos(angle) + width * Math.cos(Math.PI / 2 - angle);
+			double y2 = y;
+			walls.add(new Wall(new Vector2D(x, y), angle, length));
+			walls.add(new Wall(new Vector2D(x, y), angle + Math.PI / 2, width));
+			walls.add(new Wall(new Vector2D(x2, y2), angle, length));
+			walls.add(new Wall(new Vector2D(x2, y2), angle + Math.PI / 2, width));
+		}
+
+		return new GameMap(walls, edges(config), bombSite);
+	}
+
+	/**
+	 * Get the walls around the edge of the world.
+	 * 
+	 * @param config
+	 * @return
+	 */
+	static List<Wall> edges(DemolitionConfig config) {
+		List<Wall> edges = new ArrayList<Wall>(4);
+		edges.add(new Wall(new Vector2D(0, 0), new Vector2D(config.worldX, 0)));
+		edges.add(new Wall(new Vector2D(0, 0), new Vector2D(0, config.worldY)));
+		edges.add(new Wall(new Vector2D(config.worldX, 0), new Vector2D(config.worldX, config.worldY)));
+		edges.add(new Wall(new Vector2D(0, config.worldY), new Vector2D(config.worldX, config.worldY)));
+		return edges;
+	}
+
+}
@@ -0,0 +1,59 @@
+package demolition;
+
+import java.util.Random;
+
+/**
+ * Fixed set of maps generated from a seed, for games to play in turn rather
+ * than generating a new map for every trial. Every game given the same pool
+ * plays the same maps in the same order, so results with different settings
+ * are compared on the same maps, and the maps and their wall hierarchies are
+ * only built once.
+ * 
+ * A pool never changes once built, so it can be shared by any number of games
+ * and threads.
+ * 
+ * @author Alex Braithwaite
+ * 
+ */
+public class MapPool {
+
+	public final DemolitionConfig config;
+
+	private final GameMap[] maps;
+
+	/**
+	 * Generate a pool of maps.
+	 * 
+	 * @param config
+	 *            Settings of the games which will play the maps.
+	 * @param size
+	 *            Number of maps.
+	 * @param seed
+	 *            Seed the maps are generated from.
+	 */
+	public MapPool(DemolitionConfig config, int size, long seed) {
+		if (size < 1)
+			throw new IllegalArgumentException("Map pool must have at least 1 map: " + size);
+		this.config = config;
+		this.maps = new GameMap[size];
+		Random random = new Random(seed);
+		for (int i = 0; i < size; i++)
+			maps[i] = GameMap.generate(config, random);
+	}
+
+	/**
+	 * Get the map for a trial, cycling through the pool.
+	 * 
+	 * @param trial
+	 *            Number of trials played before this one.
+	 * @return
+	 */
+	public GameMap get(int trial) {
+		return maps[trial % maps.length];
+	}
+
+	public int size() {
+		return maps.length;
+	}
+
+}
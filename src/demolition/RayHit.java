@@ -0,0 +1,55 @@
+package demolition;
+
+import demolitionEntities.Entity;
+
+/**
+ * Result of casting a ray through the Demolition world. Results can be reused
+ * for many casts, so casting every time step creates no garbage.
+ * 
+ * @author Alex Braithwaite
+ * 
+ */
+public class RayHit {
+
+	private double distance;
+	private Entity hit;
+
+	/**
+	 * Create an empty result, to be filled in by a ray cast.
+	 */
+	public RayHit() {
+		this(0, null);
+	}
+
+	/**
+	 * @param distance
+	 *            Distance along the ray to the hit, or the ray's length if
+	 *            nothing was hit.
+	 * @param hit
+	 *            Entity hit, or null if nothing was hit.
+	 */
+	public RayHit(double distance, Entity hit) {
+		set(distance, hit);
+	}
+
+	/**
+	 * @param distance
+	 *            Distance along the ray to the hit, or the ray's length if
+	 *            nothing was hit.
+	 * @param hit
+	 *            Entity hit, or null if nothing was hit.
+	 */
+	public void set(double distance, Entity hit) {
+		this.distance = distance;
+		this.hit = hit;
+	}
+
+	public double getDistance() {
+		return distance;
+	}
+
+	public Entity getHit() {
+		return hit;
+	}
+
+}
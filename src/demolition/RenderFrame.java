@@ -0,0 +1,162 @@
+package demolition;
+
+import demolitionEntities.Agent;
+import demolitionEntities.Bomb;
+
+/**
+ * Snapshot of everything drawn for one frame of a Demolition Game. The
+ * simulation fills a frame between time steps and hands it to the renderer,
+ * which draws from it on its own thread without touching the game, so the
+ * game is never blocked by drawing and never seen half way through a time
+ * step. A frame is not changed while the renderer holds it.
+ * 
+ * Walls are shared with the WorldStore rather than copied, as the store
+ * replaces its wall arrays instead of changing them.
+ * 
+ * @author Alex Braithwaite
+ * 
+ */
+public class RenderFrame {
+
+	/**
+	 * Time step of the game the frame was captured at.
+	 */
+	public int turn;
+
+	/*
+	 * Agents.
+	 */
+	public int numAgents;
+	public final double[] agentX, agentY;
+	public final double[] agentDirX, agentDirY;
+	public final int[] agentHealth;
+	public final int[] agentTeam;
+	public final int[] agentExperience;
+	public final int[] agentLaserHeat;
+	public final int[] agentFatigue;
+	public final boolean[] agentPlayerControlled;
+	public final boolean[] agentLaserOverheated;
+	public final boolean[] agentExhausted;
+
+	/**
+	 * Each agent's sensor readings, sensorsNumber entries per agent.
+	 */
+	public final double[] sensorDistance;
+	public final boolean[] sensorAlly, sensorEnemy;
+
+	/*
+	 * Bomb and bomb site.
+	 */
+	public double bombX, bombY;
+	public int bombRadius;
+	public boolean bombArmed, bombArming;
+	public int bombTimer, bombTimeToArm, bombTimeToDefuse;
+	public double siteX, siteY;
+	public int siteRadius;
+
+	/*
+	 * Walls, including the map edges.
+	 */
+	public int numWalls;
+	public double[] wallX1, wallY1, wallX2, wallY2;
+
+	/*
+	 * Lasers fired in the last time step.
+	 */
+	public int numLasers;
+	public final double[] laserX1, laserY1;
+	public final double[] laserX2, laserY2;
+	public final int[] laserTeam;
+
+	/**
+	 * Create an empty frame for games with the given settings.
+	 * 
+	 * @param config
+	 */
+	public RenderFrame(DemolitionConfig config) {
+		int n = config.numAgents;
+		agentX = new double[n];
+		agentY = new double[n];
+		agentDirX = new double[n];
+		agentDirY = new double[n];
+		agentHealth = new int[n];
+		agentTeam = new int[n];
+		agentExperience = new int[n];
+		agentLaserHeat = new int[n];
+		agentFatigue = new int[n];
+		agentPlayerControlled = new boolean[n];
+		agentLaserOverheated = new boolean[n];
+		agentExhausted = new boolean[n];
+
+		sensorDistance = new double[n * config.sensorsNumber];
+		sensorAlly = new boolean[n * config.sensorsNumber];
+		sensorEnemy = new boolean[n * config.sensorsNumber];
+
+		laserX1 = new double[n];
+		laserY1 = new double[n];
+		laserX2 = new double[n];
+		laserY2 = new double[n];
+		laserTeam = new int[n];
+	}
+
+	/**
+	 * Copy the current state of a game into this frame. Must be called from
+	 * the thread running the game, between time steps.
+	 * 
+	 * @param game
+	 */
+	public void capture(DemolitionGame game) {
+		WorldStore store = game.store;
+		int sensors = game.config.sensorsNumber;
+
+		turn = game.getTurn();
+		numAgents = store.numAgents;
+		System.arraycopy(store.agentX, 0, agentX, 0, numAgents);
+		System.arraycopy(store.agentY, 0, agentY, 0, numAgents);
+		System.arraycopy(store.agentDirX, 0, agentDirX, 0, numAgents);
+		System.arraycopy(store.agentDirY, 0, agentDirY, 0, numAgents);
+		System.arraycopy(store.agentHealth, 0, agentHealth, 0, numAgents);
+		System.arraycopy(store.agentTeam, 0, agentTeam, 0, numAgents);
+		for (int i = 0; i < numAgents; i++) {
+			Agent a = store.agents[i];
+			agentExperience[i] = a.experience;
+			agentLaserHeat[i] = a.getLaserHeat();
+			agentFatigue[i] = a.getFatigue();
+			agentPlayerControlled[i] = a.playerControlled;
+			agentLaserOverheated[i] = a.isLaserOverheated();
+			agentExhausted[i] = a.isExhausted();
+			for (int j = 0; j < sensors; j++) {
+				sensorDistance[i * sensors + j] = a.getSensorDistance(j);
+				sensorAlly[i * sensors + j] = a.sensedAlly(j);
+				sensorEnemy[i * sensors + j] = a.sensedEnemy(j);
+			}
+		}
+
+		Bomb bomb = game.bomb;
+		bombX = bomb.getX();
+		bombY = bomb.getY();
+		bombRadius = bomb.getRadius();
+		bombArmed = bomb.isArmed();
+		bombArming = bomb.isArming();
+		bombTimer = bomb.getBombTimer();
+		bombTimeToArm = bomb.getTimeToArm();
+		bombTimeToDefuse = bomb.getTimeToDefuse();
+		siteX = game.bombSite.getPosition().getCentre().getX();
+		siteY = game.bombSite.getPosition().getCentre().getY();
+		siteRadius = game.bombSite.getRadius();
+
+		numWalls = store.numWalls;
+		wallX1 = store.wallX1;
+		wallY1 = store.wallY1;
+		wallX2 = store.wallX2;
+		wallY2 = store.wallY2;
+
+		numLasers = store.numLasers;
+		System.arraycopy(store.laserX1, 0, laserX1, 0, numLasers);
+		System.arraycopy(store.laserY1, 0, laserY1, 0, numLasers);
+		System.arraycopy(store.laserX2, 0, laserX2, 0, numLasers);
+		System.arraycopy(store.laserY2, 0, laserY2, 0, numLasers);
+		System.arraycopy(store.laserTeam, 0, laserTeam, 0, numLasers);
+	}
+
+}
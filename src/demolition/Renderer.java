@@ -0,0 +1,54 @@
+package demolition;
+
+import demolitionEntities.Agent;
+
+/**
+ * Something which shows a Demolition Game as it is played, and may let a
+ * player control an agent. The game only talks to its renderer through this
+ * interface, so a game without a renderer runs headless, never loading any
+ * drawing classes and never waiting between time steps.
+ * 
+ * @author Alex Braithwaite
+ * 
+ */
+public interface Renderer {
+
+	/**
+	 * Show the world once every agent's action for this time step is chosen.
+	 * Called on the game's thread, so should return quickly, waiting only to
+	 * slow the game down for a player.
+	 * 
+	 * @param start
+	 *            Time the time step started, from System.nanoTime.
+	 */
+	public void render(long start);
+
+	/**
+	 * Check whether agents' sensors are shown, in which case agents must sense
+	 * every time step, not only when choosing an action.
+	 * 
+	 * @return
+	 */
+	public boolean showsSensors();
+
+	/**
+	 * Check whether a player wants to control an agent.
+	 * 
+	 * @return
+	 */
+	public boolean playerWanted();
+
+	/**
+	 * Get the action requested by the player for the agent they control.
+	 * 
+	 * @param a
+	 * @return
+	 */
+	public int getPlayerAction(Agent a);
+
+	/**
+	 * Stop showing the game.
+	 */
+	public void close();
+
+}
@@ -0,0 +1,231 @@
+package demolition;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Reader for replays written by ReplayRecorder, decoding each recorded time
+ * step into a RenderFrame.
+ * 
+ * @author Alex Braithwaite
+ * 
+ */
+public class ReplayReader implements AutoCloseable {
+
+	private DataInputStream in;
+
+	/**
+	 * Settings of the recorded game. Settings not recorded are the defaults.
+	 */
+	public final DemolitionConfig config;
+
+	/**
+	 * Action of each agent in the last frame read.
+	 */
+	private int[] actions;
+
+	/**
+	 * Values of the previous frame, which each frame's values are stored
+	 * relative to.
+	 */
+	private int[] lastX, lastY, lastAngle, lastHealth, lastHeat, lastFatigue, lastExperience;
+	private int lastBombX, lastBombY;
+
+	/**
+	 * Walls and bomb site from the last map record.
+	 */
+	private int numWalls = 0;
+	private double[] wallX1 = new double[0], wallY1 = new double[0];
+	private double[] wallX2 = new double[0], wallY2 = new double[0];
+	private double siteX, siteY;
+	private int siteRadius;
+
+	/**
+	 * Open a replay and read its header.
+	 * 
+	 * @param file
+	 * @throws IOException
+	 *             If the file is not a replay of a supported version.
+	 */
+	public ReplayReader(String file) throws IOException {
+		in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+		if (in.readInt() != ReplayRecorder.magic) {
+			in.close();
+			throw new IOException("Not a Demolition replay: " + file);
+		}
+		int version = in.readInt();
+		if (version != ReplayRecorder.version) {
+			in.close();
+			throw new IOException("Unsupported replay version " + version + ": " + file);
+		}
+
+		DemolitionConfig d = DemolitionConfig.defaults();
+		int worldX = in.readInt();
+		int worldY = in.readInt();
+		int numAgents = in.readInt();
+		int FPS = in.readInt();
+		int gameLength = in.readInt();
+		int agentMaxHealth = in.readInt();
+		int agentRadius = in.readInt();
+		int bombRadius = in.readInt();
+		int bombFramesToArm = in.readInt();
+		int bombFramesToDefuse = in.readInt();
+		config = new DemolitionConfig.Builder().world(worldX, worldY).numAgents(numAgents).FPS(FPS)
+				.gameLength(gameLength)
+				.agents(agentMaxHealth, d.agentHealRate, agentRadius, d.agentForwardMoveRate, d.agentTurnRate,
+						d.agentFireSpread)
+				.bomb(bombRadius, d.bombFramesToPickup, bombFramesToArm, bombFramesToDefuse).build();
+
+		actions = new int[numAgents];
+		lastX = new int[numAgents];
+		lastY = new int[numAgents];
+		lastAngle = new int[numAgents];
+		lastHealth = new int[numAgents];
+		lastHeat = new int[numAgents];
+		lastFatigue = new int[numAgents];
+		lastExperience = new int[numAgents];
+	}
+
+	/**
+	 * Read the next recorded time step.
+	 * 
+	 * @param frame
+	 *            Frame to decode the time step into, created with this
+	 *            reader's config.
+	 * @return False if the replay has ended.
+	 * @throws IOException
+	 */
+	public boolean next(RenderFrame frame) throws IOException {
+		while (true) {
+			int record;
+			try {
+				record = in.readUnsignedByte();
+			} catch (EOFException e) {
+				return false;
+			}
+			if (record == ReplayRecorder.mapRecord) {
+				readMap();
+			} else if (record == ReplayRecorder.frameRecord) {
+				readFrame(frame);
+				return true;
+			} else {
+				throw new IOException("Corrupt replay: unknown record " + record);
+			}
+		}
+	}
+
+	/**
+	 * Get the action each agent chose in the last frame read.
+	 * 
+	 * @return
+	 */
+	public int[] getActions() {
+		return actions;
+	}
+
+	private void readMap() throws IOException {
+		numWalls = readVarInt();
+		wallX1 = new double[numWalls];
+		wallY1 = new double[numWalls];
+		wallX2 = new double[numWalls];
+		wallY2 = new double[numWalls];
+		for (int i = 0; i < numWalls; i++) {
+			wallX1[i] = in.readFloat();
+			wallY1[i] = in.readFloat();
+			wallX2[i] = in.readFloat();
+			wallY2[i] = in.readFloat();
+		}
+		siteX = in.readFloat();
+		siteY = in.readFloat();
+		siteRadius = readVarInt();
+	}
+
+	private void readFrame(RenderFrame frame) throws IOException {
+		frame.turn = readVarInt();
+
+		frame.numAgents = config.numAgents;
+		for (int i = 0; i < config.numAgents; i++) {
+			lastX[i] += readSigned();
+			lastY[i] += readSigned();
+			lastAngle[i] = (lastAngle[i] + readSigned()) & (ReplayRecorder.angleScale - 1);
+			lastHealth[i] += readSigned();
+			lastHeat[i] += readSigned();
+			lastFatigue[i] += readSigned();
+			lastExperience[i] += readSigned();
+			actions[i] = readVarInt();
+			int flags = in.readUnsignedByte();
+
+			double angle = lastAngle[i] * 2 * Math.PI / ReplayRecorder.angleScale;
+			frame.agentX[i] = lastX[i] / ReplayRecorder.positionScale;
+			frame.agentY[i] = lastY[i] / ReplayRecorder.positionScale;
+			frame.agentDirX[i] = Math.cos(angle);
+			frame.agentDirY[i] = Math.sin(angle);
+			frame.agentHealth[i] = lastHealth[i];
+			frame.agentLaserHeat[i] = lastHeat[i];
+			frame.agentFatigue[i] = lastFatigue[i];
+			frame.agentExperience[i] = lastExperience[i];
+			frame.agentTeam[i] = flags & 1;
+			frame.agentLaserOverheated[i] = (flags & 2) != 0;
+			frame.agentExhausted[i] = (flags & 4) != 0;
+			frame.agentPlayerControlled[i] = (flags & 8) != 0;
+		}
+
+		lastBombX += readSigned();
+		lastBombY += readSigned();
+		int flags = in.readUnsignedByte();
+		frame.bombX = lastBombX / ReplayRecorder.positionScale;
+		frame.bombY = lastBombY / ReplayRecorder.positionScale;
+		frame.bombRadius = config.bombRadius;
+		frame.bombArmed = (flags & 1) != 0;
+		frame.bombArming = (flags & 2) != 0;
+		frame.bombTimer = readVarInt();
+		frame.bombTimeToArm = readVarInt();
+		frame.bombTimeToDefuse = readVarInt();
+
+		frame.numLasers = readVarInt();
+		for (int i = 0; i < frame.numLasers; i++) {
+			frame.laserX1[i] = readSigned() / ReplayRecorder.positionScale;
+			frame.laserY1[i] = readSigned() / ReplayRecorder.positionScale;
+			frame.laserX2[i] = readSigned() / ReplayRecorder.positionScale;
+			frame.laserY2[i] = readSigned() / ReplayRecorder.positionScale;
+			frame.laserTeam[i] = in.readUnsignedByte();
+		}
+
+		// sensors are not recorded
+		Arrays.fill(frame.sensorDistance, 0);
+
+		frame.numWalls = numWalls;
+		frame.wallX1 = wallX1;
+		frame.wallY1 = wallY1;
+		frame.wallX2 = wallX2;
+		frame.wallY2 = wallY2;
+		frame.siteX = siteX;
+		frame.siteY = siteY;
+		frame.siteRadius = siteRadius;
+	}
+
+	private int readVarInt() throws IOException {
+		int v = 0;
+		for (int shift = 0;; shift += 7) {
+			int b = in.readUnsignedByte();
+			v |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return v;
+		}
+	}
+
+	private int readSigned() throws IOException {
+		int v = readVarInt();
+		return (v >>> 1) ^ -(v & 1);
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+}
@@ -0,0 +1,265 @@
+package demolition;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import demolitionEntities.Agent;
+
+/**
+ * Renderer recording every time step of a Demolition Game to a replay file,
+ * to be watched or exported with ReplayViewer once training is done. Nothing
+ * is drawn and the game is never slowed down, so games can be recorded at full
+ * speed.
+ * 
+ * A replay is a header holding the settings needed to draw the game, followed
+ * by records. A map record holds the walls and bomb site, and is written
+ * whenever they change, so at the start of every game. A frame record holds
+ * each agent's pose, health, laser heat, fatigue, experience and action, the
+ * bomb, and the lasers fired. Agent and bomb values are stored as the change
+ * from the previous frame, positions in eighths of a pixel and headings in
+ * 65536ths of a turn, all as variable length integers, so a frame of an agent
+ * moving normally takes a few bytes.
+ * 
+ * @author Alex Braithwaite
+ * 
+ */
+public class ReplayRecorder implements Renderer {
+
+	public static final int magic = 0x444D5250;
+	public static final int version = 1;
+
+	static final int mapRecord = 1;
+	static final int frameRecord = 2;
+
+	/**
+	 * Positions are stored in units of 1 / positionScale pixels, and headings
+	 * in units of 1 / angleScale turns.
+	 */
+	static final double positionScale = 8;
+	static final int angleScale = 1 << 16;
+
+	private DemolitionGame game;
+	private DataOutputStream out;
+
+	/**
+	 * Frame the game is captured into before being written.
+	 */
+	private RenderFrame frame;
+
+	/**
+	 * Values written in the previous frame, which the next frame's values are
+	 * stored relative to.
+	 */
+	private int[] lastX, lastY, lastAngle, lastHealth, lastHeat, lastFatigue, lastExperience;
+	private int lastBombX, lastBombY;
+
+	/**
+	 * Walls and bomb site position the last map record was written for.
+	 */
+	private double[] lastWalls;
+	private double lastSiteX, lastSiteY;
+
+	/**
+	 * Create a recorder writing a game to a file. Set it as the game's
+	 * renderer to start recording.
+	 * 
+	 * @param game
+	 * @param file
+	 * @throws IOException
+	 */
+	public ReplayRecorder(DemolitionGame game, String file) throws IOException {
+		this.game = game;
+		this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+
+		DemolitionConfig config = game.config;
+		int n = config.numAgents;
+		frame = new RenderFrame(config);
+		lastX = new int[n];
+		lastY = new int[n];
+		lastAngle = new int[n];
+		lastHealth = new int[n];
+		lastHeat = new int[n];
+		lastFatigue = new int[n];
+		lastExperience = new int[n];
+
+		out.writeInt(magic);
+		out.writeInt(version);
+		out.writeInt(config.worldX);
+		out.writeInt(config.worldY);
+		out.writeInt(config.numAgents);
+		out.writeInt(config.FPS);
+		out.writeInt(config.gameLength);
+		out.writeInt(config.agentMaxHealth);
+		out.writeInt(config.agentRadius);
+		out.writeInt(config.bombRadius);
+		out.writeInt(config.bombFramesToArm);
+		out.writeInt(config.bombFramesToDefuse);
+	}
+
+	@Override
+	public void render(long start) {
+		if (out == null)
+			return;
+		try {
+			frame.capture(game);
+			if (frame.wallX1 != lastWalls || frame.siteX != lastSiteX || frame.siteY != lastSiteY)
+				writeMap();
+			writeFrame();
+		} catch (IOException e) {
+			// stop recording rather than stop the game
+			e.printStackTrace();
+			close();
+		}
+	}
+
+	/**
+	 * Write the walls and bomb site.
+	 * 
+	 * @throws IOException
+	 */
+	private void writeMap() throws IOException {
+		out.writeByte(mapRecord);
+		writeVarInt(frame.numWalls);
+		for (int i = 0; i < frame.numWalls; i++) {
+			out.writeFloat((float) frame.wallX1[i]);
+			out.writeFloat((float) frame.wallY1[i]);
+			out.writeFloat((float) frame.wallX2[i]);
+			out.writeFloat((float) frame.wallY2[i]);
+		}
+		out.writeFloat((float) frame.siteX);
+		out.writeFloat((float) frame.siteY);
+		writeVarInt(frame.siteRadius);
+
+		lastWalls = frame.wallX1;
+		lastSiteX = frame.siteX;
+		lastSiteY = frame.siteY;
+	}
+
+	/**
+	 * Write the agents, bomb and lasers of the captured frame.
+	 * 
+	 * @throws IOException
+	 */
+	private void writeFrame() throws IOException {
+		out.writeByte(frameRecord);
+		writeVarInt(frame.turn);
+
+		for (int i = 0; i < frame.numAgents; i++) {
+			int x = position(frame.agentX[i]);
+			int y = position(frame.agentY[i]);
+			int angle = angle(frame.agentDirX[i], frame.agentDirY[i]);
+			writeSigned(x - lastX[i]);
+			writeSigned(y - lastY[i]);
+			writeSigned((short) (angle - lastAngle[i]));
+			writeSigned(frame.agentHealth[i] - lastHealth[i]);
+			writeSigned(frame.agentLaserHeat[i] - lastHeat[i]);
+			writeSigned(frame.agentFatigue[i] - lastFatigue[i]);
+			writeSigned(frame.agentExperience[i] - lastExperience[i]);
+			writeVarInt(game.getAction(i));
+			out.writeByte(frame.agentTeam[i] | (frame.agentLaserOverheated[i] ? 2 : 0)
+					| (frame.agentExhausted[i] ? 4 : 0) | (frame.agentPlayerControlled[i] ? 8 : 0));
+
+			lastX[i] = x;
+			lastY[i] = y;
+			lastAngle[i] = angle;
+			lastHealth[i] = frame.agentHealth[i];
+			lastHeat[i] = frame.agentLaserHeat[i];
+			lastFatigue[i] = frame.agentFatigue[i];
+			lastExperience[i] = frame.agentExperience[i];
+		}
+
+		int bombX = position(frame.bombX);
+		int bombY = position(frame.bombY);
+		writeSigned(bombX - lastBombX);
+		writeSigned(bombY - lastBombY);
+		out.writeByte((frame.bombArmed ? 1 : 0) | (frame.bombArming ? 2 : 0));
+		writeVarInt(frame.bombTimer);
+		writeVarInt(frame.bombTimeToArm);
+		writeVarInt(frame.bombTimeToDefuse);
+		lastBombX = bombX;
+		lastBombY = bombY;
+
+		writeVarInt(frame.numLasers);
+		for (int i = 0; i < frame.numLasers; i++) {
+			writeSigned(position(frame.laserX1[i]));
+			writeSigned(position(frame.laserY1[i]));
+			writeSigned(position(frame.laserX2[i]));
+			writeSigned(position(frame.laserY2[i]));
+			out.writeByte(frame.laserTeam[i]);
+		}
+	}
+
+	private static int position(double p) {
+		return (int) Math.round(p * positionScale);
+	}
+
+	/**
+	 * Convert a unit direction to a heading in 65536ths of a turn.
+	 * 
+	 * @param dirX
+	 * @param dirY
+	 * @return
+	 */
+	private static int angle(double dirX, double dirY) {
+		return (int) Math.round(Math.atan2(dirY, dirX) / (2 * Math.PI) * angleScale) & (angleScale - 1);
+	}
+
+	/**
+	 * Write a non-negative integer in 7 bit groups, low group first, with the
+	 * top bit of each byte set if more follow.
+	 * 
+	 * @param v
+	 * @throws IOException
+	 */
+	private void writeVarInt(int v) throws IOException {
+		while ((v & ~0x7F) != 0) {
+			out.writeByte((v & 0x7F) | 0x80);
+			v >>>= 7;
+		}
+		out.writeByte(v);
+	}
+
+	/**
+	 * Write a signed integer, zig-zag encoded so small negative values are
+	 * also short.
+	 * 
+	 * @param v
+	 * @throws IOException
+	 */
+	private void writeSigned(int v) throws IOException {
+		writeVarInt((v << 1) ^ (v >> 31));
+	}
+
+	@Override
+	public boolean showsSensors() {
+		return false;
+	}
+
+	@Override
+	public boolean playerWanted() {
+		return false;
+	}
+
+	@Override
+	public int getPlayerAction(Agent a) {
+		return 0;
+	}
+
+	/**
+	 * Finish writing the replay.
+	 */
+	@Override
+	public void close() {
+		if (out == null)
+			return;
+		try {
+			out.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		out = null;
+	}
+
+}
@@ -0,0 +1,105 @@
+package demolition;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+import demolitionEntities.SensorFan;
+
+/**
+ * Tool to watch a replay recorded by ReplayRecorder, or export it as PNG
+ * frames, without running the game or a learner.
+ * 
+ * Usage: ReplayViewer replay [directory [interval]]. With only a replay, it
+ * is played in a window, with keys 0 to 9 setting the speed as when drawing a
+ * game (0 pauses). With a directory, every interval'th frame is written to it
+ * as a PNG.
+ * 
+ * @author Alex Braithwaite
+ * 
+ */
+public class ReplayViewer {
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length < 1) {
+			System.err.println("Usage: ReplayViewer replay [directory [interval]]");
+			System.exit(1);
+		}
+		if (args.length == 1)
+			play(args[0]);
+		else
+			export(args[0], args[1], args.length > 2 ? Integer.parseInt(args[2]) : 1);
+	}
+
+	/**
+	 * Play a replay in a window.
+	 * 
+	 * @param replay
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public static void play(String replay) throws IOException, InterruptedException {
+		try (ReplayReader reader = new ReplayReader(replay)) {
+			Canvas canvas = new Canvas(reader.config, new SensorFan(reader.config));
+			Window window = new Window(canvas);
+			window.pressInt = 1;
+
+			while (true) {
+				long start = System.nanoTime();
+				if (window.pressInt == 0) {
+					Thread.sleep(50);
+					continue;
+				}
+
+				RenderFrame frame = canvas.obtainFrame();
+				if (!reader.next(frame))
+					break;
+				canvas.publish(frame);
+
+				double currentFPS = reader.config.FPS * Math.pow(2, window.pressInt - 1);
+				long delta = (long) ((1000000000.0 / currentFPS) - (System.nanoTime() - start));
+				if (delta > 0)
+					Thread.sleep(delta / 1000000L, (int) (delta % 1000000));
+			}
+		}
+	}
+
+	/**
+	 * Write the frames of a replay to a directory as PNG images.
+	 * 
+	 * @param replay
+	 * @param directory
+	 * @param interval
+	 *            Number of time steps between frames written.
+	 * @return Number of frames written.
+	 * @throws IOException
+	 */
+	public static int export(String replay, String directory, int interval) throws IOException {
+		File dir = new File(directory);
+		if (!dir.isDirectory() && !dir.mkdirs())
+			throw new IOException("Cannot create directory " + directory);
+
+		int written = 0;
+		try (ReplayReader reader = new ReplayReader(replay)) {
+			DemolitionConfig config = reader.config;
+			Canvas canvas = new Canvas(config, new SensorFan(config));
+			RenderFrame frame = new RenderFrame(config);
+			BufferedImage image = new BufferedImage(config.worldX, config.worldY, BufferedImage.TYPE_INT_RGB);
+
+			for (int n = 0; reader.next(frame); n++) {
+				if (n % interval != 0)
+					continue;
+				Graphics2D g2d = image.createGraphics();
+				canvas.draw(g2d, frame);
+				g2d.dispose();
+				ImageIO.write(image, "png", new File(dir, String.format("frame%06d.png", n)));
+				written++;
+			}
+		}
+		return written;
+	}
+
+}
@@ -0,0 +1,253 @@
+package demolition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import demolitionEntities.Agent;
+import demolitionUtilities.Geometry;
+import demolitionUtilities.Line2D;
+
+/**
+ * Uniform grid over the Demolition world, used to find the agents near a
+ * point or along a ray without checking every agent in the game. Walls are
+ * found using a WallBVH instead, as they never move.
+ * 
+ * Agents are added to every cell their circle overlaps, and moved between
+ * cells whenever they move. The grid extends a cell beyond each edge of the
+ * world, as agents may briefly leave the map.
+ * 
+ * @author Alex Braithwaite
+ * 
+ */
+public class SpatialGrid {
+
+	/**
+	 * Smallest width and height of each cell.
+	 */
+	public static final double minCellSize = 50;
+
+	/**
+	 * Width and height of each cell. At least the diameter of an agent, so an
+	 * agent is in at most 4 cells.
+	 */
+	private final double cellSize;
+
+	/**
+	 * Radius of every agent.
+	 */
+	private final double agentRadius;
+
+	private final double minX;
+	private final double minY;
+	private final int columns;
+	private final int rows;
+
+	private List<ArrayList<Agent>> agentCells;
+
+	/**
+	 * Store the agents' positions are read from when casting rays.
+	 */
+	private WorldStore store;
+
+	/**
+	 * Cells each agent is in, indexed by the agent's index in the store.
+	 * minColumn is -1 for agents not yet added.
+	 */
+	private int[] minColumn, minRow, maxColumn, maxRow;
+
+	/**
+	 * Number of the current query, so entities in more than one cell are only
+	 * returned once by each query.
+	 */
+	private int query = 0;
+
+	/**
+	 * Create an empty grid covering a world of the given size.
+	 * 
+	 * @param worldX
+	 * @param worldY
+	 * @param agentRadius
+	 * @param store
+	 */
+	public SpatialGrid(int worldX, int worldY, double agentRadius, WorldStore store) {
+		this.store = store;
+		this.agentRadius = agentRadius;
+		this.cellSize = Math.max(minCellSize, 2 * agentRadius);
+		int maxAgents = store.agents.length;
+		minColumn = new int[maxAgents];
+		minRow = new int[maxAgents];
+		maxColumn = new int[maxAgents];
+		maxRow = new int[maxAgents];
+		Arrays.fill(minColumn, -1);
+		this.minX = -cellSize;
+		this.minY = -cellSize;
+		this.columns = (int) Math.ceil(worldX / cellSize) + 2;
+		this.rows = (int) Math.ceil(worldY / cellSize) + 2;
+
+		agentCells = new ArrayList<ArrayList<Agent>>(columns * rows);
+		for (int i = 0; i < columns * rows; i++) {
+			agentCells.add(new ArrayList<Agent>());
+		}
+	}
+
+	private int column(double x) {
+		int column = (int) Math.floor((x - minX) / cellSize);
+		return column < 0 ? 0 : column >= columns ? columns - 1 : column;
+	}
+
+	private int row(double y) {
+		int row = (int) Math.floor((y - minY) / cellSize);
+		return row < 0 ? 0 : row >= rows ? rows - 1 : row;
+	}
+
+	/**
+	 * Add an agent to the grid, or move it to the cells for its current
+	 * position if already added.
+	 * 
+	 * @param a
+	 */
+	public void moveAgent(Agent a) {
+		int i = a.getIndex();
+		double x = a.getX(), y = a.getY();
+		double r = agentRadius;
+		int c0 = column(x - r), r0 = row(y - r), c1 = column(x + r), r1 = row(y + r);
+
+		if (minColumn[i] >= 0) {
+			if (minColumn[i] == c0 && minRow[i] == r0 && maxColumn[i] == c1 && maxRow[i] == r1)
+				return;
+			for (int column = minColumn[i]; column <= maxColumn[i]; column++)
+				for (int row = minRow[i]; row <= maxRow[i]; row++)
+					agentCells.get(row * columns + column).remove(a);
+		}
+
+		for (int column = c0; column <= c1; column++)
+			for (int row = r0; row <= r1; row++)
+				agentCells.get(row * columns + column).add(a);
+		minColumn[i] = c0;
+		minRow[i] = r0;
+		maxColumn[i] = c1;
+		maxRow[i] = r1;
+	}
+
+	/**
+	 * Get the other agents sharing a cell with an agent. Any agent colliding
+	 * with it must share a cell, as both are in every cell they overlap.
+	 * 
+	 * @param a
+	 * @param near
+	 *            List to fill with the agents which may collide with a.
+	 *            Cleared first.
+	 */
+	public void agentsNear(Agent a, List<Agent> near) {
+		query++;
+		near.clear();
+		int i = a.getIndex();
+		for (int column = minColumn[i]; column <= maxColumn[i]; column++) {
+			for (int row = minRow[i]; row <= maxRow[i]; row++) {
+				ArrayList<Agent> cell = agentCells.get(row * columns + column);
+				for (int j = 0; j < cell.size(); j++) {
+					Agent a2 = cell.get(j);
+					if (a2 != a && a2.lastQuery != query) {
+						a2.lastQuery = query;
+						near.add(a2);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Find the first agent hit by a ray, by walking the cells the ray passes
+	 * through in order (a DDA traversal), stopping once no later cell can
+	 * contain a closer hit. Parts of the ray outside the grid are in the
+	 * nearest edge cell, as agents outside the grid are.
+	 * 
+	 * @param line
+	 *            Ray to cast.
+	 * @param length
+	 *            Length of the ray.
+	 * @param ignore
+	 *            Agent the ray cannot hit, such as the agent casting it.
+	 * @return First hit, or the ray's length and null if nothing was hit.
+	 */
+	public RayHit castRay(Line2D line, double length, Agent ignore) {
+		RayHit result = new RayHit();
+		castRay(line.getStart().getX(), line.getStart().getY(), line.getDirection().getX(),
+				line.getDirection().getY(), length, ignore, result);
+		return result;
+	}
+
+	/**
+	 * Find the first agent hit by a ray, without allocating.
+	 * 
+	 * @param ox
+	 * @param oy
+	 *            Start of the ray.
+	 * @param dx
+	 * @param dy
+	 *            Unit direction of the ray.
+	 * @param length
+	 *            Length of the ray.
+	 * @param ignore
+	 *            Agent the ray cannot hit, such as the agent casting it.
+	 * @param result
+	 *            Set to the first hit, or the ray's length and null if nothing
+	 *            was hit.
+	 */
+	public void castRay(double ox, double oy, double dx, double dy, double length, Agent ignore, RayHit result) {
+
+		// cell coordinates, which may be outside the grid
+		int column = (int) Math.floor((ox - minX) / cellSize);
+		int row = (int) Math.floor((oy - minY) / cellSize);
+		int stepColumn = dx > 0 ? 1 : -1;
+		int stepRow = dy > 0 ? 1 : -1;
+		double tNextColumn = dx == 0 ? Double.MAX_VALUE
+				: (minX + (column + (dx > 0 ? 1 : 0)) * cellSize - ox) / dx;
+		double tNextRow = dy == 0 ? Double.MAX_VALUE : (minY + (row + (dy > 0 ? 1 : 0)) * cellSize - oy) / dy;
+		double tDeltaColumn = dx == 0 ? Double.MAX_VALUE : cellSize / Math.abs(dx);
+		double tDeltaRow = dy == 0 ? Double.MAX_VALUE : cellSize / Math.abs(dy);
+
+		double best = length;
+		Agent hit = null;
+		int lastCell = -1;
+		double[] agentX = store.agentX, agentY = store.agentY;
+		double r = agentRadius;
+		while (true) {
+			int cell = (row < 0 ? 0 : row >= rows ? rows - 1 : row) * columns
+					+ (column < 0 ? 0 : column >= columns ? columns - 1 : column);
+
+			// check everything in this cell, unless just checked
+			if (cell != lastCell) {
+				lastCell = cell;
+				ArrayList<Agent> agents = agentCells.get(cell);
+				for (int i = 0; i < agents.size(); i++) {
+					Agent a = agents.get(i);
+					if (a == ignore)
+						continue;
+					double d = Geometry.rayCircle(ox, oy, dx, dy, agentX[a.getIndex()], agentY[a.getIndex()], r);
+					if (d < best) {
+						best = d;
+						hit = a;
+					}
+				}
+			}
+
+			// hits in later cells are no closer than the next cell boundary
+			double tNext = Math.min(tNextColumn, tNextRow);
+			if (best <= tNext)
+				break;
+
+			if (tNextColumn < tNextRow) {
+				column += stepColumn;
+				tNextColumn += tDeltaColumn;
+			} else {
+				row += stepRow;
+				tNextRow += tDeltaRow;
+			}
+		}
+
+		result.set(best, hit);
+	}
+
+}
@@ -0,0 +1,124 @@
+package demolition;
+
+import demolitionEntities.Agent;
+import demolitionUtilities.Vector2D;
+
+/**
+ * Renderer drawing a Demolition Game to a Window, and taking player input from
+ * it. Keys 0 to 9 set the speed: 0 stops drawing, 1 gives the player control
+ * of an agent and slows the game to its FPS so it can be played, and 2 to 9
+ * let the game run at full speed while showing it at FPS, doubling the frame
+ * rate for each key after 2.
+ * 
+ * The game is only snapshotted, never drawn, on the game's thread: each frame
+ * shown is captured into a RenderFrame and published to the canvas, which
+ * draws it on the Swing thread. Frames are captured no more often than they
+ * are shown, and the game never waits for drawing, so watching a game being
+ * trained costs it little more than the captures.
+ * 
+ * @author Alex Braithwaite
+ * 
+ */
+public class SwingRenderer implements Renderer {
+
+	private DemolitionGame game;
+
+	public Window window;
+
+	public Canvas world;
+
+	/**
+	 * Time the last frame was published.
+	 */
+	private long lastFrame = 0;
+
+	/**
+	 * Create a window to draw the game in.
+	 * 
+	 * @param game
+	 */
+	public SwingRenderer(DemolitionGame game) {
+		this.game = game;
+		this.world = new Canvas(game.config, game.sensorFan);
+		this.window = new Window(world);
+	}
+
+	@Override
+	public void render(long start) {
+		int speed = window.pressInt;
+		if (speed == 0)
+			return;
+
+		// frame rate drawn at
+		double currentFPS = game.config.FPS * Math.pow(2, Math.max(speed - 2, 0));
+		long frameTime = (long) (1000000000.0 / currentFPS);
+
+		long now = System.nanoTime();
+		if (now - lastFrame >= frameTime) {
+			RenderFrame frame = world.obtainFrame();
+			frame.capture(game);
+			world.publish(frame);
+			lastFrame = now;
+		}
+
+		// slow the game down for the player
+		if (speed == 1) {
+			long delta = frameTime - (System.nanoTime() - start);
+			if (delta > 0) {
+				try {
+					Thread.sleep(delta / 1000000L, (int) (delta % 1000000));
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+			}
+		}
+	}
+
+	@Override
+	public boolean showsSensors() {
+		return true;
+	}
+
+	@Override
+	public boolean playerWanted() {
+		return window.pressInt == 1;
+	}
+
+	/**
+	 * Listen for player inputs to move player controlled agent.
+	 * 
+	 * @return Action requested by player.
+	 */
+	@Override
+	public int getPlayerAction(Agent a) {
+		int action = 0;
+
+		// turn towards the mouse
+		Vector2D mousePos = new Vector2D(window.mouseX, window.mouseY);
+		Vector2D myPos = a.getPosition().getCentre();
+		Vector2D myDir = a.getDirection();
+		Vector2D meToMouse = mousePos.sub(myPos);
+		if (myDir.getAngleTo(meToMouse) > game.config.agentFireSpread) {
+			action += 1 << 3;
+		} else if (myDir.getAngleTo(meToMouse) < -game.config.agentFireSpread) {
+			action += 1 << 2;
+		}
+
+		// move and shoot (also depreiciated turn)
+		if (window.pressW)
+			action += 1 << 0;
+		if (window.pressA)
+			action += 1 << 2;
+		if (window.pressD)
+			action += 1 << 3;
+		if (window.mousePress)
+			action += 1 << 1;
+		return action;
+	}
+
+	@Override
+	public void close() {
+		window.setVisible(false);
+	}
+
+}
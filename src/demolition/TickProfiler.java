@@ -0,0 +1,322 @@
+package demolition;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import learner.UpdateTimer;
+
+/**
+ * Records where the time steps of a Demolition Game spend their time, and how
+ * fast trials run. A game and its learner are given the same profiler, which
+ * then accumulates the time spent in each phase of a time step, counts the
+ * time steps and decisions made, and measures the memory allocated, over each
+ * trial.
+ * 
+ * Profiling is off unless a profiler is given to the game, and every timing
+ * point is behind a null check, so an unprofiled game only pays for the check.
+ * 
+ * Phases may be nested: learning happens while deciding, and collisions are
+ * resolved while acting, so their times are also counted in the enclosing
+ * phase.
+ * 
+ * Allocation is counted on the thread running the game and on every thread
+ * added with addThread, which the game does for the threads sensing for it.
+ * A thread which exits during a trial takes its count with it.
+ * 
+ * @author Alex Braithwaite
+ * 
+ */
+public class TickProfiler implements UpdateTimer {
+
+	/**
+	 * Phases of a time step.
+	 */
+	public enum Phase {
+		BOMB("bomb"), SENSE("sense"), DECIDE("decide"), LEARN("learn"), RENDER("render"), ACT("act"), COLLIDE(
+				"collide");
+
+		private final String name;
+
+		Phase(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+	}
+
+	/**
+	 * Histogram buckets are split into 2^subBucketBits linear sub-buckets for
+	 * each power of two nanoseconds, so any recorded time is known to within
+	 * 1 / 2^subBucketBits of its value.
+	 */
+	static final int subBucketBits = 3;
+	private static final int subBuckets = 1 << subBucketBits;
+
+	private static final Phase[] phases = Phase.values();
+
+	/**
+	 * Total time in nanoseconds, and number of times, each phase was timed in
+	 * the current trial, indexed by phase.
+	 */
+	private final long[] phaseTime = new long[phases.length];
+	private final long[] phaseCount = new long[phases.length];
+
+	/**
+	 * Distribution of the times recorded for each phase in the current trial,
+	 * indexed by phase then bucket, or null if not kept.
+	 */
+	private final long[][] histograms;
+
+	private long ticks, decisions;
+	private long trialStart, trialTime;
+	private long allocatedStart, allocated;
+
+	/**
+	 * Thread allocation counter, or null if the JVM can't count allocations.
+	 */
+	private final com.sun.management.ThreadMXBean threads;
+
+	/**
+	 * Ids of the threads whose allocations are counted. Added to by the
+	 * threads of the game's pool as they start.
+	 */
+	private final Set<Long> threadIds = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+
+	/**
+	 * Create a profiler.
+	 * 
+	 * @param histograms
+	 *            Whether to keep the distribution of each phase's times, as
+	 *            well as their totals.
+	 */
+	public TickProfiler(boolean histograms) {
+		this.histograms = histograms ? new long[phases.length][64 * subBuckets] : null;
+
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean
+				&& ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()
+				&& ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemoryEnabled())
+			this.threads = (com.sun.management.ThreadMXBean) bean;
+		else
+			this.threads = null;
+	}
+
+	/**
+	 * Record the time taken by a phase.
+	 * 
+	 * @param phase
+	 * @param start
+	 *            Time the phase started, from System.nanoTime().
+	 */
+	public void record(Phase phase, long start) {
+		long time = System.nanoTime() - start;
+		int p = phase.ordinal();
+		phaseTime[p] += time;
+		phaseCount[p]++;
+		if (histograms != null)
+			histograms[p][bucket(time)]++;
+	}
+
+	@Override
+	public void recordUpdate(long start) {
+		record(Phase.LEARN, start);
+	}
+
+	/**
+	 * Count the allocations of a thread working for the game, from the start
+	 * of the next trial, or from now if the thread has not yet started.
+	 * 
+	 * @param thread
+	 */
+	public void addThread(Thread thread) {
+		threadIds.add(thread.getId());
+	}
+
+	/**
+	 * Count a finished time step.
+	 */
+	public void tick() {
+		ticks++;
+	}
+
+	/**
+	 * Count actions chosen by the learner.
+	 * 
+	 * @param n
+	 */
+	public void countDecisions(int n) {
+		decisions += n;
+	}
+
+	/**
+	 * Clear everything recorded and start timing a trial.
+	 */
+	public void startTrial() {
+		addThread(Thread.currentThread());
+		for (int p = 0; p < phases.length; p++) {
+			phaseTime[p] = phaseCount[p] = 0;
+			if (histograms != null)
+				Arrays.fill(histograms[p], 0);
+		}
+		ticks = decisions = 0;
+		trialTime = allocated = 0;
+		allocatedStart = allocatedBytes();
+		trialStart = System.nanoTime();
+	}
+
+	/**
+	 * Stop timing the current trial.
+	 */
+	public void finishTrial() {
+		trialTime = System.nanoTime() - trialStart;
+		allocated = allocatedBytes() - allocatedStart;
+	}
+
+	/**
+	 * Get the memory allocated so far by the threads counted, which are
+	 * running or have not yet started.
+	 * 
+	 * @return Bytes allocated, or 0 if unknown.
+	 */
+	private long allocatedBytes() {
+		if (threads == null)
+			return 0;
+		Long[] ids = threadIds.toArray(new Long[0]);
+		long[] bytes = threads.getThreadAllocatedBytes(unbox(ids));
+		long total = 0;
+		for (long b : bytes) {
+			// -1 for threads not alive
+			if (b > 0)
+				total += b;
+		}
+		return total;
+	}
+
+	private static long[] unbox(Long[] ids) {
+		long[] unboxed = new long[ids.length];
+		for (int i = 0; i < ids.length; i++)
+			unboxed[i] = ids[i];
+		return unboxed;
+	}
+
+	/**
+	 * Get the histogram bucket holding a time.
+	 * 
+	 * @param time
+	 *            Time in nanoseconds.
+	 * @return
+	 */
+	static int bucket(long time) {
+		if (time < subBuckets)
+			return (int) Math.max(time, 0);
+		int exponent = 63 - Long.numberOfLeadingZeros(time);
+		int sub = (int) (time >>> (exponent - subBucketBits)) & (subBuckets - 1);
+		return (exponent - subBucketBits + 1) * subBuckets + sub;
+	}
+
+	/**
+	 * Get the smallest time held by a histogram bucket.
+	 * 
+	 * @param bucket
+	 * @return Time in nanoseconds.
+	 */
+	static long bucketStart(int bucket) {
+		if (bucket < subBuckets)
+			return bucket;
+		int exponent = bucket / subBuckets + subBucketBits - 1;
+		long sub = bucket % subBuckets;
+		return (subBuckets + sub) << (exponent - subBucketBits);
+	}
+
+	/**
+	 * Get a percentile of the times recorded for a phase in the current
+	 * trial.
+	 * 
+	 * @param phase
+	 * @param percentile
+	 *            Between 0 and 100.
+	 * @return Time in nanoseconds, to within one bucket, or 0 if no
+	 *         histograms are kept or nothing was recorded.
+	 */
+	public long getPercentile(Phase phase, double percentile) {
+		int p = phase.ordinal();
+		if (histograms == null || phaseCount[p] == 0)
+			return 0;
+		long rank = (long) Math.ceil(percentile / 100 * phaseCount[p]);
+		long seen = 0;
+		long[] h = histograms[p];
+		for (int b = 0; b < h.length; b++) {
+			seen += h[b];
+			if (seen >= Math.max(rank, 1))
+				return bucketStart(b);
+		}
+		return bucketStart(h.length - 1);
+	}
+
+	/**
+	 * Get the time steps run per second of the last trial.
+	 * 
+	 * @return
+	 */
+	public double getTicksPerSecond() {
+		return trialTime == 0 ? 0 : ticks * 1e9 / trialTime;
+	}
+
+	/**
+	 * Get the actions chosen by the learner per second of the last trial.
+	 * 
+	 * @return
+	 */
+	public double getDecisionsPerSecond() {
+		return trialTime == 0 ? 0 : decisions * 1e9 / trialTime;
+	}
+
+	/**
+	 * Get the memory allocated by the game's thread and its pool threads per
+	 * second of the last trial.
+	 * 
+	 * @return Bytes per second, or 0 if unknown.
+	 */
+	public double getAllocationRate() {
+		return trialTime == 0 ? 0 : allocated * 1e9 / trialTime;
+	}
+
+	/**
+	 * Get the mean time spent in a phase in each time step of the current
+	 * trial.
+	 * 
+	 * @param phase
+	 * @return Time in nanoseconds.
+	 */
+	public double getTimePerTick(Phase phase) {
+		return ticks == 0 ? 0 : phaseTime[phase.ordinal()] / (double) ticks;
+	}
+
+	/**
+	 * Describe the last trial: its speed and allocation rate, the mean time
+	 * per time step of each phase, and the median, 99th percentile and
+	 * maximum time of each phase if histograms are kept.
+	 */
+	@Override
+	public String toString() {
+		StringBuilder s = new StringBuilder();
+		s.append(String.format("%.1f ticks/s, %.1f decisions/s, %.1f MB/s allocated; per tick:", getTicksPerSecond(),
+				getDecisionsPerSecond(), getAllocationRate() / 1e6));
+		for (Phase phase : phases) {
+			s.append(String.format(" %s %.1fus", phase, getTimePerTick(phase) / 1000));
+			if (histograms != null && phaseCount[phase.ordinal()] > 0)
+				s.append(String.format(" (p50 %.1fus, p99 %.1fus, max %.1fus)", getPercentile(phase, 50) / 1000.,
+						getPercentile(phase, 99) / 1000., getPercentile(phase, 100) / 1000.));
+			s.append(phase == phases[phases.length - 1] ? "" : ",");
+		}
+		return s.toString();
+	}
+
+}
@@ -0,0 +1,421 @@
+package demolition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import demolitionEntities.Wall;
+import demolitionUtilities.Geometry;
+import demolitionUtilities.Line2D;
+import demolitionUtilities.Vector2D;
+
+/**
+ * Bounding volume hierarchy over the walls of a map. Walls never move during a
+ * game, so the hierarchy is built once per map, after which a ray only needs
+ * to be tested against the walls whose bounding boxes it passes through,
+ * taking time logarithmic in the number of walls.
+ * 
+ * Long walls, such as the map edges, are split into pieces no longer than
+ * pieceLength before building, so their bounding boxes don't cover the whole
+ * map. Nodes are stored in flat arrays, with each node's children or pieces
+ * stored contiguously.
+ * 
+ * @author Alex Braithwaite
+ * 
+ */
+public class WallBVH {
+
+	/**
+	 * Most pieces stored in a leaf.
+	 */
+	private static final int leafSize = 2;
+
+	/**
+	 * Longest piece of wall stored in a leaf.
+	 */
+	private static final double pieceLength = 100;
+
+	/**
+	 * Amount bounding boxes are enlarged by, so rounding errors cannot cause
+	 * hits on the edge of a box to be missed.
+	 */
+	private static final double epsilon = 1e-6;
+
+	/**
+	 * Wall each piece is part of, ordered so each leaf's pieces are
+	 * contiguous.
+	 */
+	private Wall[] walls;
+
+	/**
+	 * Distance along its wall each piece starts and ends at.
+	 */
+	private double[] pieceStart, pieceEnd;
+
+	/**
+	 * Start, direction and length of each piece's wall, copied out of the
+	 * walls so rays can be tested against them without allocating.
+	 */
+	private double[] wallX, wallY, wallDx, wallDy, wallLength;
+
+	private int numWalls;
+
+	/**
+	 * Bounding box of each node.
+	 */
+	private double[] nodeMinX, nodeMinY, nodeMaxX, nodeMaxY;
+
+	/**
+	 * For leaves, the index of the first piece in walls. For other nodes, the
+	 * index of the first child, with the second child directly after it.
+	 */
+	private int[] nodeFirst;
+
+	/**
+	 * Number of pieces in each leaf, 0 for other nodes.
+	 */
+	private int[] nodeCount;
+
+	private int numNodes = 0;
+
+	/**
+	 * Depth of the deepest leaf, which bounds the size of the traversal
+	 * stack.
+	 */
+	private int depth = 0;
+
+	/**
+	 * Index of the wall each piece is part of.
+	 */
+	private int[] pieceWall;
+
+	/**
+	 * Stack of nodes still to visit, and the distance along the ray to each.
+	 * Also the number of the current query, and the last query to return
+	 * each wall, so walls split into several pieces are only returned once by
+	 * each query.
+	 */
+	private static class Traversal {
+		int[] nodes;
+		double[] t;
+		int query = 0;
+		int[] lastQuery;
+
+		Traversal(int size, int numWalls) {
+			nodes = new int[size];
+			t = new double[size];
+			lastQuery = new int[numWalls];
+		}
+	}
+
+	/**
+	 * Traversal state for each thread, so the hierarchy can be queried from
+	 * several threads, and shared between games, without allocating.
+	 */
+	private final ThreadLocal<Traversal> traversal = new ThreadLocal<Traversal>() {
+		@Override
+		protected Traversal initialValue() {
+			// each level leaves at most one node on the stack
+			return new Traversal(depth + 2, numWalls);
+		}
+	};
+
+	/**
+	 * Part of a wall, used while building the hierarchy.
+	 */
+	private static class Piece {
+		Wall wall;
+		int wallIndex;
+		double start, end;
+		double minX, minY, maxX, maxY;
+
+		Piece(Wall wall, int wallIndex, double start, double end) {
+			this.wall = wall;
+			this.wallIndex = wallIndex;
+			this.start = start;
+			this.end = end;
+			Vector2D a = wall.getLine().getStart().add(wall.getLine().getDirection().scale(start));
+			Vector2D b = wall.getLine().getStart().add(wall.getLine().getDirection().scale(end));
+			minX = Math.min(a.getX(), b.getX());
+			minY = Math.min(a.getY(), b.getY());
+			maxX = Math.max(a.getX(), b.getX());
+			maxY = Math.max(a.getY(), b.getY());
+		}
+	}
+
+	/**
+	 * Build a hierarchy over the given walls.
+	 * 
+	 * @param walls
+	 */
+	public WallBVH(List<Wall> walls) {
+		numWalls = walls.size();
+		List<Piece> pieceList = new ArrayList<Piece>();
+		for (int k = 0; k < numWalls; k++) {
+			Wall w = walls.get(k);
+			int pieces = Math.max(1, (int) Math.ceil(w.getLength() / pieceLength));
+			for (int i = 0; i < pieces; i++)
+				pieceList.add(new Piece(w, k, w.getLength() * i / pieces, w.getLength() * (i + 1) / pieces));
+		}
+		Piece[] pieces = pieceList.toArray(new Piece[pieceList.size()]);
+
+		// a tree with n leaves has 2n - 1 nodes
+		int maxNodes = Math.max(1, 2 * pieces.length);
+		nodeMinX = new double[maxNodes];
+		nodeMinY = new double[maxNodes];
+		nodeMaxX = new double[maxNodes];
+		nodeMaxY = new double[maxNodes];
+		nodeFirst = new int[maxNodes];
+		nodeCount = new int[maxNodes];
+
+		numNodes = 1;
+		build(pieces, 0, 0, pieces.length, 0);
+
+		this.walls = new Wall[pieces.length];
+		pieceWall = new int[pieces.length];
+		pieceStart = new double[pieces.length];
+		pieceEnd = new double[pieces.length];
+		wallX = new double[pieces.length];
+		wallY = new double[pieces.length];
+		wallDx = new double[pieces.length];
+		wallDy = new double[pieces.length];
+		wallLength = new double[pieces.length];
+		for (int i = 0; i < pieces.length; i++) {
+			Wall w = pieces[i].wall;
+			this.walls[i] = w;
+			pieceWall[i] = pieces[i].wallIndex;
+			pieceStart[i] = pieces[i].start;
+			pieceEnd[i] = pieces[i].end;
+			wallX[i] = w.getLine().getStart().getX();
+			wallY[i] = w.getLine().getStart().getY();
+			wallDx[i] = w.getLine().getDirection().getX();
+			wallDy[i] = w.getLine().getDirection().getY();
+			wallLength[i] = w.getLength();
+		}
+	}
+
+	/**
+	 * Build a node containing pieces[first] to pieces[first + count - 1],
+	 * splitting it at the median along its longest axis.
+	 * 
+	 * @param pieces
+	 * @param node
+	 * @param first
+	 * @param count
+	 * @param nodeDepth
+	 */
+	private void build(Piece[] pieces, int node, int first, int count, int nodeDepth) {
+		depth = Math.max(depth, nodeDepth);
+		double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+		double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+		for (int i = first; i < first + count; i++) {
+			minX = Math.min(minX, pieces[i].minX);
+			minY = Math.min(minY, pieces[i].minY);
+			maxX = Math.max(maxX, pieces[i].maxX);
+			maxY = Math.max(maxY, pieces[i].maxY);
+		}
+		nodeMinX[node] = minX - epsilon;
+		nodeMinY[node] = minY - epsilon;
+		nodeMaxX[node] = maxX + epsilon;
+		nodeMaxY[node] = maxY + epsilon;
+
+		if (count <= leafSize) {
+			nodeFirst[node] = first;
+			nodeCount[node] = count;
+			return;
+		}
+
+		// sort by centre along the longest axis and split in half
+		final boolean splitX = maxX - minX > maxY - minY;
+		Arrays.sort(pieces, first, first + count, new Comparator<Piece>() {
+			@Override
+			public int compare(Piece a, Piece b) {
+				return splitX ? Double.compare(a.minX + a.maxX, b.minX + b.maxX) : Double.compare(a.minY + a.maxY,
+						b.minY + b.maxY);
+			}
+		});
+
+		int children = numNodes;
+		numNodes += 2;
+		nodeFirst[node] = children;
+		nodeCount[node] = 0;
+		build(pieces, children, first, count / 2, nodeDepth + 1);
+		build(pieces, children + 1, first + count / 2, count - count / 2, nodeDepth + 1);
+	}
+
+	/**
+	 * Find the first wall hit by a ray.
+	 * 
+	 * @param line
+	 *            Ray to cast.
+	 * @param length
+	 *            Length of the ray.
+	 * @return First wall hit, or the ray's length and null if no wall was hit.
+	 */
+	public RayHit castRay(Line2D line, double length) {
+		RayHit result = new RayHit();
+		castRay(line.getStart().getX(), line.getStart().getY(), line.getDirection().getX(),
+				line.getDirection().getY(), length, result);
+		return result;
+	}
+
+	/**
+	 * Find the first wall hit by a ray, without allocating.
+	 * 
+	 * @param ox
+	 * @param oy
+	 *            Start of the ray.
+	 * @param dx
+	 * @param dy
+	 *            Unit direction of the ray.
+	 * @param length
+	 *            Length of the ray.
+	 * @param result
+	 *            Set to the first wall hit, or the ray's length and null if no
+	 *            wall was hit.
+	 */
+	public void castRay(double ox, double oy, double dx, double dy, double length, RayHit result) {
+		double invDx = 1 / dx, invDy = 1 / dy;
+
+		// the sides of each box the ray enters and leaves through only depend
+		// on the ray's direction, so are chosen once rather than per box
+		double[] enterX = invDx >= 0 ? nodeMinX : nodeMaxX, leaveX = invDx >= 0 ? nodeMaxX : nodeMinX;
+		double[] enterY = invDy >= 0 ? nodeMinY : nodeMaxY, leaveY = invDy >= 0 ? nodeMaxY : nodeMinY;
+
+		double best = length;
+		Wall hit = null;
+
+		// distance to each node on the stack, so nodes further than a hit
+		// found after they were pushed can be skipped
+		Traversal stacks = traversal.get();
+		int[] stack = stacks.nodes;
+		double[] stackT = stacks.t;
+		int stackSize = 0;
+		if (walls.length > 0) {
+			stack[0] = 0;
+			stackT[0] = 0;
+			stackSize = 1;
+		}
+
+		while (stackSize > 0) {
+			stackSize--;
+			int node = stack[stackSize];
+			if (stackT[stackSize] >= best)
+				continue;
+
+			if (nodeCount[node] > 0) {
+				for (int i = nodeFirst[node]; i < nodeFirst[node] + nodeCount[node]; i++) {
+					// distances along the wall and the ray, as in Line2D.intersect
+					double d2 = Geometry.lineLine(wallX[i], wallY[i], wallDx[i], wallDy[i], ox, oy, dx, dy);
+					double d1 = Geometry.lineLine(ox, oy, dx, dy, wallX[i], wallY[i], wallDx[i], wallDy[i]);
+
+					// pieces share their end points, so a hit on one is in both
+					if (d2 >= pieceStart[i] && d2 <= pieceEnd[i] && d2 > 0 && d2 < wallLength[i] && d1 > 0
+							&& d1 < best) {
+						best = d1;
+						hit = walls[i];
+					}
+				}
+				continue;
+			}
+
+			// slab test against both children. A NaN, from a ray along the
+			// edge of a box, fails every comparison so leaves the bounds
+			// unchanged, which can only make the box look bigger.
+			int near = nodeFirst[node], far = near + 1;
+			double tNear = 0, tNearMax = best, tFar = 0, tFarMax = best, t;
+			t = (enterX[near] - ox) * invDx;
+			tNear = t > tNear ? t : tNear;
+			t = (enterY[near] - oy) * invDy;
+			tNear = t > tNear ? t : tNear;
+			t = (leaveX[near] - ox) * invDx;
+			tNearMax = t < tNearMax ? t : tNearMax;
+			t = (leaveY[near] - oy) * invDy;
+			tNearMax = t < tNearMax ? t : tNearMax;
+			t = (enterX[far] - ox) * invDx;
+			tFar = t > tFar ? t : tFar;
+			t = (enterY[far] - oy) * invDy;
+			tFar = t > tFar ? t : tFar;
+			t = (leaveX[far] - ox) * invDx;
+			tFarMax = t < tFarMax ? t : tFarMax;
+			t = (leaveY[far] - oy) * invDy;
+			tFarMax = t < tFarMax ? t : tFarMax;
+			if (tNearMax < tNear)
+				tNear = Double.POSITIVE_INFINITY;
+			if (tFarMax < tFar)
+				tFar = Double.POSITIVE_INFINITY;
+
+			// visit the nearer child first
+			if (tFar < tNear) {
+				int swap = near;
+				near = far;
+				far = swap;
+				double swapT = tNear;
+				tNear = tFar;
+				tFar = swapT;
+			}
+			if (tFar < best) {
+				stack[stackSize] = far;
+				stackT[stackSize++] = tFar;
+			}
+			if (tNear < best) {
+				stack[stackSize] = near;
+				stackT[stackSize++] = tNear;
+			}
+		}
+
+		result.set(best, hit);
+	}
+
+	/**
+	 * Get the walls whose bounding boxes overlap a circle's bounding box.
+	 * 
+	 * @param x
+	 * @param y
+	 * @param r
+	 *            Centre and radius of the circle.
+	 * @param near
+	 *            List to fill with the walls which may intersect the circle.
+	 *            Cleared first.
+	 */
+	public void wallsNear(double x, double y, double r, List<Wall> near) {
+		Traversal tr = traversal.get();
+		int query = ++tr.query;
+		int[] lastQuery = tr.lastQuery;
+		near.clear();
+		double minX = x - r, maxX = x + r;
+		double minY = y - r, maxY = y + r;
+
+		int[] stack = tr.nodes;
+		int stackSize = 0;
+		if (walls.length > 0)
+			stack[stackSize++] = 0;
+
+		while (stackSize > 0) {
+			int node = stack[--stackSize];
+			if (nodeMaxX[node] < minX || nodeMinX[node] > maxX || nodeMaxY[node] < minY || nodeMinY[node] > maxY)
+				continue;
+
+			if (nodeCount[node] > 0) {
+				for (int i = nodeFirst[node]; i < nodeFirst[node] + nodeCount[node]; i++) {
+					if (lastQuery[pieceWall[i]] != query) {
+						lastQuery[pieceWall[i]] = query;
+						near.add(walls[i]);
+					}
+				}
+			} else {
+				stack[stackSize++] = nodeFirst[node];
+				stack[stackSize++] = nodeFirst[node] + 1;
+			}
+		}
+	}
+
+	/**
+	 * @return Number of walls in the hierarchy.
+	 */
+	public int size() {
+		return numWalls;
+	}
+
+}
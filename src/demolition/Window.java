@@ -29,7 +29,12 @@ public class Window extends JFrame {
 	 */
 	public int pressInt = 0;
 
-	public Window(DemolitionGame g) {
+	/**
+	 * Create a window showing the given canvas.
+	 * 
+	 * @param canvas
+	 */
+	public Window(Canvas canvas) {
 		super("Demolition");
 		setLayout(new BorderLayout());
 		setDefaultCloseOperation(EXIT_ON_CLOSE);
@@ -167,7 +172,7 @@ public class Window extends JFrame {
 			}
 		});
 
-		add(g.world = new Canvas(g, DemolitionGame.worldX, DemolitionGame.worldY), BorderLayout.CENTER);
+		add(canvas, BorderLayout.CENTER);
 
 		pack();
 		setLocationRelativeTo(null);
@@ -0,0 +1,160 @@
+package demolition;
+
+import java.util.List;
+
+import demolitionEntities.Agent;
+import demolitionEntities.Laser;
+import demolitionEntities.Wall;
+
+/**
+ * Store for the state of everything in a Demolition Game which the physics,
+ * sensing and rendering loops read every time step. Each kind of entity is kept
+ * in its own primitive arrays, indexed by the entity's number, so these loops
+ * walk contiguous memory rather than a mixed list of entities.
+ * 
+ * Agents write their state through to the store whenever it changes, so the
+ * arrays are always up to date. Walls are copied in whenever the map changes,
+ * and lasers are buffered for a single time step.
+ * 
+ * @author Alex Braithwaite
+ * 
+ */
+public class WorldStore {
+
+	/*
+	 * Agents.
+	 */
+	public int numAgents = 0;
+	public final Agent[] agents;
+	public final double[] agentX, agentY;
+	public final double[] agentDirX, agentDirY;
+	public final int[] agentHealth;
+	public final int[] agentTeam;
+
+	/**
+	 * Number of position changes made so far, counting a change to the walls
+	 * as one, and the value it had when each agent last moved and when the
+	 * walls last changed. Anything sensed at an earlier count may be out of
+	 * date.
+	 */
+	public long changes = 0;
+	public final long[] agentMoved;
+	public long wallsChanged = 0;
+
+	/*
+	 * Walls, including the map edges.
+	 */
+	public int numWalls = 0;
+	public Wall[] walls = new Wall[0];
+	public double[] wallX1 = new double[0], wallY1 = new double[0];
+	public double[] wallX2 = new double[0], wallY2 = new double[0];
+
+	/*
+	 * Lasers fired this time step.
+	 */
+	public int numLasers = 0;
+	public final double[] laserX1, laserY1;
+	public final double[] laserX2, laserY2;
+	public final int[] laserTeam;
+
+	/**
+	 * Create an empty store.
+	 * 
+	 * @param maxAgents
+	 *            Most agents which will be added. At most one laser is fired
+	 *            by each agent every time step.
+	 */
+	public WorldStore(int maxAgents) {
+		agents = new Agent[maxAgents];
+		agentX = new double[maxAgents];
+		agentY = new double[maxAgents];
+		agentDirX = new double[maxAgents];
+		agentDirY = new double[maxAgents];
+		agentHealth = new int[maxAgents];
+		agentTeam = new int[maxAgents];
+		agentMoved = new long[maxAgents];
+
+		laserX1 = new double[maxAgents];
+		laserY1 = new double[maxAgents];
+		laserX2 = new double[maxAgents];
+		laserY2 = new double[maxAgents];
+		laserTeam = new int[maxAgents];
+	}
+
+	/**
+	 * Add an agent to the store.
+	 * 
+	 * @param a
+	 * @return Index of the agent in the agent arrays.
+	 */
+	public int addAgent(Agent a) {
+		int i = numAgents++;
+		agents[i] = a;
+		agentTeam[i] = a.getTeam();
+		return i;
+	}
+
+	/**
+	 * Copy an agent's current position, direction and health into the store.
+	 * 
+	 * @param a
+	 */
+	public void updateAgent(Agent a) {
+		int i = a.getIndex();
+		if (agentX[i] != a.getX() || agentY[i] != a.getY())
+			agentMoved[i] = ++changes;
+		agentX[i] = a.getX();
+		agentY[i] = a.getY();
+		agentDirX[i] = a.getDirX();
+		agentDirY[i] = a.getDirY();
+		agentHealth[i] = a.getHealth();
+	}
+
+	/**
+	 * Replace all walls in the store.
+	 * 
+	 * @param ws
+	 *            Every wall in the game.
+	 */
+	public void setWalls(List<Wall> ws) {
+		wallsChanged = ++changes;
+		numWalls = ws.size();
+		walls = ws.toArray(new Wall[numWalls]);
+		wallX1 = new double[numWalls];
+		wallY1 = new double[numWalls];
+		wallX2 = new double[numWalls];
+		wallY2 = new double[numWalls];
+		for (int i = 0; i < numWalls; i++) {
+			Wall w = walls[i];
+			wallX1[i] = w.getLine().getStart().getX();
+			wallY1[i] = w.getLine().getStart().getY();
+			wallX2[i] = wallX1[i] + w.getLength() * w.getLine().getDirection().getX();
+			wallY2[i] = wallY1[i] + w.getLength() * w.getLine().getDirection().getY();
+		}
+	}
+
+	/**
+	 * Buffer a laser fired this time step.
+	 * 
+	 * @param l
+	 */
+	public void addLaser(Laser l) {
+		if (numLasers == laserTeam.length)
+			return;
+		int i = numLasers;
+		laserX1[i] = l.getStartX();
+		laserY1[i] = l.getStartY();
+		laserX2[i] = l.getEndX();
+		laserY2[i] = l.getEndY();
+		laserTeam[i] = l.getShooter().getTeam();
+		numLasers++;
+	}
+
+	/**
+	 * Clear the lasers buffered for the last time step.
+	 */
+	public void clearLasers() {
+		numLasers = 0;
+	}
+
+}
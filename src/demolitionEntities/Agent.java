@@ -1,12 +1,13 @@
 package demolitionEntities;
 
-import java.awt.BasicStroke;
-import java.awt.Color;
-import java.awt.Graphics2D;
 import java.util.ArrayList;
 
+import demolition.DemolitionConfig;
 import demolition.DemolitionGame;
+import demolition.RayHit;
+import demolition.WorldStore;
 import demolitionUtilities.Circle;
+import demolitionUtilities.Geometry;
 import demolitionUtilities.Vector2D;
 
 /**
@@ -18,16 +19,29 @@ import demolitionUtilities.Vector2D;
  */
 public class Agent extends Entity {
 
-	private Vector2D direction;
-	private Circle position;
+	/**
+	 * Position and unit direction, updated in place as the agent moves.
+	 */
+	private double x, y;
+	private double dirX, dirY;
 	private int team;
 	private int health;
 	private double reward;
 
+	/**
+	 * Index of this agent in the game's WorldStore.
+	 */
+	private int index;
+
 	public int deaths = 0;
 
 	public DemolitionGame game;
 
+	/**
+	 * Settings of the game the agent is in.
+	 */
+	private final DemolitionConfig config;
+
 	public boolean crashed = false;
 	public boolean killed = false;
 	public boolean damaged = false;
@@ -36,14 +50,38 @@ public class Agent extends Entity {
 	public boolean playerControlled = false;
 	public int experience = 0;
 
-	private double[] sensorDistances = new double[DemolitionGame.sensorsNumber];
-	private double[] sensorAgent = new double[DemolitionGame.sensorsNumber];
-	private double[] sensorEnemy = new double[DemolitionGame.sensorsNumber];
-	private double[] sensorBombCarrier = new double[DemolitionGame.sensorsNumber];
+	private double[] sensorDistances;
+	private double[] sensorAgent;
+	private double[] sensorEnemy;
+	private double[] sensorBombCarrier;
 	public double sensorBombDistance;
 	private boolean laserOverheated = false;
 	private boolean exhausted = false;
 
+	/**
+	 * Direction and result of each sensor's ray, and the laser, reused every
+	 * time step.
+	 */
+	private double[] sensorDirX;
+	private double[] sensorDirY;
+	private RayHit[] sensorHits;
+	private Laser laser;
+
+	/**
+	 * Pose the sensors were last cast from, and the store's change count at
+	 * the time. While the agent keeps this pose, only rays which an agent
+	 * moving since then could have changed are cast again.
+	 */
+	private boolean sensed = false;
+	private double sensedX, sensedY, sensedDirX, sensedDirY;
+	private long sensedChanges;
+	private boolean[] sensorDirty;
+
+	/**
+	 * Number of sensor rays cast, and reused from the previous time step.
+	 */
+	private long raysCast = 0, raysReused = 0;
+
 	/**
 	 * Create an agent in the DemolitionGame provided.
 	 * 
@@ -54,12 +92,19 @@ public class Agent extends Entity {
 	 */
 	public Agent(Vector2D pos, Vector2D direction, int team, DemolitionGame game) {
 		super();
-		position = new Circle(pos, DemolitionGame.agentRadius);
-		this.direction = direction.normalise();
+		this.x = pos.getX();
+		this.y = pos.getY();
+		Vector2D dir = direction.normalise();
+		this.dirX = dir.getX();
+		this.dirY = dir.getY();
 		this.team = team;
-		this.health = DemolitionGame.agentMaxHealth;
-		this.reward = 0;
 		this.game = game;
+		this.config = game.config;
+		this.health = config.agentMaxHealth;
+		this.reward = 0;
+		createSensors();
+		this.index = game.store.addAgent(this);
+		game.store.updateAgent(this);
 	}
 
 	/**
@@ -72,30 +117,69 @@ public class Agent extends Entity {
 	 */
 	public Agent(Vector2D pos, double direction, int team, DemolitionGame game) {
 		super();
-		position = new Circle(pos, DemolitionGame.agentRadius);
-		this.direction = new Vector2D(direction);
+		this.x = pos.getX();
+		this.y = pos.getY();
+		this.dirX = Math.cos(direction);
+		this.dirY = Math.sin(direction);
 		this.team = team;
-		this.health = DemolitionGame.agentMaxHealth;
-		this.reward = 0;
 		this.game = game;
+		this.config = game.config;
+		this.health = config.agentMaxHealth;
+		this.reward = 0;
+		createSensors();
+		this.index = game.store.addAgent(this);
+		game.store.updateAgent(this);
 	}
 
 	/**
-	 * Get the circle representing the agent's position.
+	 * Create the arrays holding each sensor's direction and readings.
+	 */
+	private void createSensors() {
+		int n = config.sensorsNumber;
+		sensorDistances = new double[n];
+		sensorAgent = new double[n];
+		sensorEnemy = new double[n];
+		sensorBombCarrier = new double[n];
+		sensorDirX = new double[n];
+		sensorDirY = new double[n];
+		sensorHits = new RayHit[n];
+		sensorDirty = new boolean[n];
+	}
+
+	/**
+	 * Get the circle representing the agent's position. Creates a new circle,
+	 * so use getX and getY where speed matters.
 	 * 
 	 * @return
 	 */
 	public Circle getPosition() {
-		return position;
+		return new Circle(new Vector2D(x, y), config.agentRadius);
+	}
+
+	public double getX() {
+		return x;
+	}
+
+	public double getY() {
+		return y;
 	}
 
 	/**
-	 * Get the direction of the agent.
+	 * Get the direction of the agent. Creates a new vector, so use getDirX and
+	 * getDirY where speed matters.
 	 * 
 	 * @return
 	 */
 	public Vector2D getDirection() {
-		return direction;
+		return new Vector2D(dirX, dirY);
+	}
+
+	public double getDirX() {
+		return dirX;
+	}
+
+	public double getDirY() {
+		return dirY;
 	}
 
 	/**
@@ -107,6 +191,80 @@ public class Agent extends Entity {
 		return team;
 	}
 
+	/**
+	 * Get the health of the agent.
+	 * 
+	 * @return
+	 */
+	public int getHealth() {
+		return health;
+	}
+
+	/**
+	 * Get the heat of the agent's laser.
+	 * 
+	 * @return
+	 */
+	public int getLaserHeat() {
+		return laserHeat;
+	}
+
+	public boolean isLaserOverheated() {
+		return laserOverheated;
+	}
+
+	/**
+	 * Get the fatigue of the agent.
+	 * 
+	 * @return
+	 */
+	public int getFatigue() {
+		return fatigue;
+	}
+
+	public boolean isExhausted() {
+		return exhausted;
+	}
+
+	/**
+	 * Get the distance the given sensor last saw to.
+	 * 
+	 * @param sensor
+	 * @return
+	 */
+	public double getSensorDistance(int sensor) {
+		return sensorDistances[sensor];
+	}
+
+	/**
+	 * Check whether the given sensor last saw an agent on the same team.
+	 * 
+	 * @param sensor
+	 * @return
+	 */
+	public boolean sensedAlly(int sensor) {
+		return sensorAgent[sensor] > 0 && sensorEnemy[sensor] <= 0;
+	}
+
+	/**
+	 * Check whether the given sensor last saw an agent on the other team.
+	 * 
+	 * @param sensor
+	 * @return
+	 */
+	public boolean sensedEnemy(int sensor) {
+		return sensorEnemy[sensor] > 0;
+	}
+
+	/**
+	 * Get the index of the agent in the game's WorldStore.
+	 * 
+	 * @return
+	 */
+	public int getIndex() {
+		return index;
+	}
+
 	/**
 	 * Move this agent in a given direction.
 	 * 
@@ -114,13 +272,27 @@ public class Agent extends Entity {
 	 * @param direction
 	 */
 	public void move(double distance, Vector2D direction) {
+		move(distance, direction.getX(), direction.getY());
+	}
+
+	/**
+	 * Move this agent in the direction it is facing.
+	 * 
+	 * @param distance
+	 *            Distance to move, negative to move backwards.
+	 */
+	public void moveForward(double distance) {
+		move(distance, dirX, dirY);
+	}
+
+	private void move(double distance, double dx, double dy) {
 		if (exhausted) {
 			distance /= 3;
 		}
 		if (fatigue < 90) {
 			fatigue += (exhausted ? 4 : 5);
 		}
-		forceMove(distance, direction);
+		forceMove(distance, dx, dy);
 	}
 
 	/**
@@ -130,7 +302,47 @@ public class Agent extends Entity {
 	 * @param direction
 	 */
 	public void forceMove(double distance, Vector2D direction) {
-		position = position.move(direction.normalise().scale(distance));
+		forceMove(distance, direction.getX(), direction.getY());
+	}
+
+	/**
+	 * Move this agent in a given direction without fatiguing it, without
+	 * allocating.
+	 * 
+	 * @param distance
+	 * @param dx
+	 * @param dy
+	 *            Direction to move in, which need not be normalised.
+	 */
+	public void forceMove(double distance, double dx, double dy) {
+		// normalise as Vector2D.normalise does
+		double lenSquared = dx * dx + dy * dy;
+		if (lenSquared != 0.0f && lenSquared != 1.0f) {
+			double len = Math.sqrt(lenSquared);
+			dx /= len;
+			dy /= len;
+		}
+		x += dx * distance;
+		y += dy * distance;
+		publish();
+	}
+
+	/**
+	 * Write this agent's position and direction to the game's grid and store,
+	 * unless the game is resolving actions in lockstep, in which case the game
+	 * calls updateWorld once every agent has acted.
+	 */
+	private void publish() {
+		if (!game.isResolving())
+			updateWorld();
+	}
+
+	/**
+	 * Write this agent's position and direction to the game's grid and store.
+	 */
+	public void updateWorld() {
+		game.grid.moveAgent(this);
+		game.store.updateAgent(this);
 	}
 
 	/**
@@ -139,28 +351,60 @@ public class Agent extends Entity {
 	 * @param angle
 	 */
 	public void turn(double angle) {
+		turn(angle, game.random.nextDouble());
+	}
+
+	/**
+	 * Turn this agent, using a given random number to vary the angle.
+	 * 
+	 * @param angle
+	 * @param noise
+	 *            Random number in [0, 1).
+	 */
+	public void turn(double angle, double noise) {
 		if (exhausted) {
 			angle /= 2;
 		}
-		angle *= 0.95 + 0.1 * Math.random();
-		direction = direction.rotate(angle);
+		angle *= 0.95 + 0.1 * noise;
+		double cos = Math.cos(angle), sin = Math.sin(angle);
+		double newDirX = dirX * cos - dirY * sin;
+		dirY = dirX * sin + dirY * cos;
+		dirX = newDirX;
+		publish();
 	}
 
 	/**
 	 * Shoot a laser.
 	 * 
-	 * @return Laser shot.
+	 * @return Laser shot, which is reused by the agent's next shot, or null if
+	 *         the laser is overheated.
 	 */
 	public Laser shoot() {
-		double spread = DemolitionGame.agentFireSpread;
+		return shoot(game.random.nextDouble());
+	}
+
+	/**
+	 * Shoot a laser, using a given random number to choose where in the
+	 * agent's fire spread it goes.
+	 * 
+	 * @param noise
+	 *            Random number in [0, 1).
+	 * @return Laser shot, which is reused by the agent's next shot, or null if
+	 *         the laser is overheated.
+	 */
+	public Laser shoot(double noise) {
+		double spread = config.agentFireSpread;
 		if (exhausted) {
 			spread *= 2;
 		}
 		if (!laserOverheated) {
 			laserHeat += 10;
-			double angle = Math.random() * (spread * 2) - spread;
-			Vector2D dir = this.getDirection().rotate(angle);
-			return new Laser(this, this.getPosition().getCentre(), dir, game);
+			double angle = noise * (spread * 2) - spread;
+			double cos = Math.cos(angle), sin = Math.sin(angle);
+			if (laser == null)
+				laser = new Laser(this, game);
+			laser.fire(x, y, dirX * cos - dirY * sin, dirX * sin + dirY * cos);
+			return laser;
 		}
 		return null;
 	}
@@ -169,28 +413,31 @@ public class Agent extends Entity {
 	 * Update agent's sensors for the current time step.
 	 */
 	public void updateInputs() {
-		Vector2D dir = this.getDirection().rotate(-DemolitionGame.sensorAngle / 2.);
-		for (int i = 0; i < DemolitionGame.sensorsNumber; i++) {
-			Sensor[] s = new Sensor[3];
-			s[0] = new Sensor(this, this.getPosition().getCentre(), dir, game);
-			// multiple sensors for each reported sensor (not currently being used)
-			s[1] = s[0];// new Sensor(this, this.getPosition().getCentre(),
-						// dir.rotate(DemolitionGame.agentFireSpread), game);
-			s[2] = s[0];// new Sensor(this, this.getPosition().getCentre(),
-						// dir.rotate(-DemolitionGame.agentFireSpread), game);
-			int min = 0;
-			double minDist = DemolitionGame.sensorMaxRange;
-			for (int j = 0; j < 3; j++) {
-				if (s[j].getLength() < minDist) {
-					minDist = s[j].getLength();
-					min = j;
-				}
-			}
-			sensorDistances[i] = minDist;
+		if (sensorHits[0] == null)
+			for (int i = 0; i < sensorHits.length; i++)
+				sensorHits[i] = new RayHit();
+		WorldStore store = game.store;
+		if (sensed && x == sensedX && y == sensedY && dirX == sensedDirX && dirY == sensedDirY
+				&& store.wallsChanged <= sensedChanges) {
+			recastDirtySensors(store);
+		} else {
+			game.sensorFan.directions(dirX, dirY, sensorDirX, sensorDirY);
+			game.castRays(x, y, sensorDirX, sensorDirY, config.sensorMaxRange, this, sensorHits);
+			raysCast += sensorHits.length;
+			sensed = true;
+			sensedX = x;
+			sensedY = y;
+			sensedDirX = dirX;
+			sensedDirY = dirY;
+		}
+		sensedChanges = store.changes;
+
+		for (int i = 0; i < config.sensorsNumber; i++) {
+			sensorDistances[i] = sensorHits[i].getDistance();
 			sensorAgent[i] = -10;
 			sensorEnemy[i] = -10;
 			sensorBombCarrier[i] = -10;
-			Entity hit = s[min].getHit();
+			Entity hit = sensorHits[i].getHit();
 			if (hit instanceof Agent) {
 				Agent a = (Agent) hit;
 				sensorAgent[i] = 10;
@@ -201,29 +448,72 @@ public class Agent extends Entity {
 					sensorBombCarrier[i] = 10;
 				}
 			}
-			// rotate non-linear amount
-			double rotationScalar = i == 0 ? 5
-					: i == 1 ? 5 * (4. / 3.)
-							: i == 2 ? 5 * (4. / 2.)
-									: i == 3 ? 5 * (4. / 1.)
-											: i == 4 ? 5 * (4. / 1.)
-													: i == 5 ? 5 * (4. / 2.) : i == 6 ? 5 * (4. / 3.) : 5;
-			dir = dir.rotate(DemolitionGame.sensorAngle * 1. / rotationScalar);
 		}
 	}
 
+	/**
+	 * Cast again only the sensor rays which could have changed since the
+	 * sensors were last cast from this pose. Walls have not moved, so a ray
+	 * can only change if the agent it hit has moved, or another agent has
+	 * moved in front of its hit.
+	 * 
+	 * @param store
+	 */
+	private void recastDirtySensors(WorldStore store) {
+		double r = config.agentRadius;
+		for (int i = 0; i < sensorDirty.length; i++)
+			sensorDirty[i] = false;
+		for (int j = 0; j < store.numAgents; j++) {
+			if (j == index || store.agentMoved[j] <= sensedChanges)
+				continue;
+			Agent a = store.agents[j];
+			for (int i = 0; i < sensorHits.length; i++) {
+				if (!sensorDirty[i] && (sensorHits[i].getHit() == a || Geometry.rayCircle(x, y, sensorDirX[i],
+						sensorDirY[i], store.agentX[j], store.agentY[j], r) < sensorHits[i].getDistance()))
+					sensorDirty[i] = true;
+			}
+		}
+		for (int i = 0; i < sensorHits.length; i++) {
+			if (sensorDirty[i]) {
+				game.castRay(x, y, sensorDirX[i], sensorDirY[i], config.sensorMaxRange, this, sensorHits[i]);
+				raysCast++;
+			} else {
+				raysReused++;
+			}
+		}
+	}
+
+	/**
+	 * Get the number of sensor rays this agent has cast.
+	 * 
+	 * @return
+	 */
+	public long getRaysCast() {
+		return raysCast;
+	}
+
+	/**
+	 * Get the number of sensor rays this agent has reused from the previous
+	 * time step instead of casting.
+	 * 
+	 * @return
+	 */
+	public long getRaysReused() {
+		return raysReused;
+	}
+
 	/**
 	 * Return an array containing all the sensory inputs to this agent.
 	 * 
 	 * @return Array of agent's observation of the game world.
 	 */
 	public ArrayList<Double> getInputs() {
-		ArrayList<Double> sensors = new ArrayList<Double>(DemolitionGame.sensorsTotal);
-		double rangeShort = 2 * DemolitionGame.agentRadius;
-		double rangeLong = DemolitionGame.sensorMaxRange * .6;
+		ArrayList<Double> sensors = new ArrayList<Double>(config.sensorsTotal);
+		double rangeShort = 2 * config.agentRadius;
+		double rangeLong = config.sensorMaxRange * .6;
 		double rangeMed = (rangeShort + rangeLong) / 2;
 		int j = 0;
-		for (int i = 0; i < DemolitionGame.sensorsNumber; i++) {
+		for (int i = 0; i < config.sensorsNumber; i++) {
 			// shift sensors by a different amount each, to make input flip at different times
 			sensors.add(sensorDistances[j] - rangeShort);
 			sensors.add(sensorDistances[j] - rangeMed);
@@ -235,9 +525,9 @@ public class Agent extends Entity {
 		}
 
 		// health
-		sensors.add(health - (DemolitionGame.agentMaxHealth - DemolitionGame.laserDamage * 1.5));
-		sensors.add(health - DemolitionGame.agentMaxHealth / 2.);
-		sensors.add(health - DemolitionGame.laserDamage * 1.5);
+		sensors.add(health - (config.agentMaxHealth - config.laserDamage * 1.5));
+		sensors.add(health - config.agentMaxHealth / 2.);
+		sensors.add(health - config.laserDamage * 1.5);
 
 		// laser heat
 		sensors.add(laserHeat - 70.);
@@ -354,6 +644,7 @@ public class Agent extends Entity {
 			killed = true;
 		}
 		damaged = true;
+		game.store.updateAgent(this);
 		return killed;
 	}
 
@@ -361,8 +652,9 @@ public class Agent extends Entity {
 	 * Do what an agent does every time step (ie heal, laser cool down etc).
 	 */
 	public void runGameStep() {
-		if (health < DemolitionGame.agentMaxHealth) {
-			health += DemolitionGame.agentHealRate;
+		if (health < config.agentMaxHealth) {
+			health += config.agentHealRate;
+			game.store.updateAgent(this);
 		}
 
 		if (laserHeat > 90) {
@@ -403,7 +695,7 @@ public class Agent extends Entity {
 	public void respawn() {
 		boolean firstPass = true;
 
-		this.health = DemolitionGame.agentMaxHealth;
+		this.health = config.agentMaxHealth;
 		this.laserHeat = 0;
 		this.fatigue = 0;
 		experience = 0;
@@ -413,17 +705,24 @@ public class Agent extends Entity {
 			game.bomb.drop(this);
 			long x, y;
 			if (team == 0) {
-				x = Math.round(DemolitionGame.agentRadius + Math.random() * DemolitionGame.agentRespawnAreaWidth);
-				y = Math.round(DemolitionGame.agentRadius + Math.random() * DemolitionGame.agentRespawnAreaWidth);
+				x = Math.round(config.agentRadius + game.random.nextDouble() * config.agentRespawnAreaWidth);
+				y = Math.round(config.agentRadius + game.random.nextDouble() * config.agentRespawnAreaWidth);
 			} else {
-				x = Math.round(DemolitionGame.worldX - DemolitionGame.agentRadius
-						- Math.random() * DemolitionGame.agentRespawnAreaWidth);
-				y = Math.round(DemolitionGame.worldY - DemolitionGame.agentRadius
-						- Math.random() * DemolitionGame.agentRespawnAreaWidth);
+				x = Math.round(config.worldX - config.agentRadius
+						- game.random.nextDouble() * config.agentRespawnAreaWidth);
+				y = Math.round(config.worldY - config.agentRadius
+						- game.random.nextDouble() * config.agentRespawnAreaWidth);
 			}
 
-			this.position = this.position.move(new Vector2D(x, y).sub(this.position.getCentre()));
-			this.direction = this.direction.rotate(Math.random() * 2 * Math.PI);
+			this.x = x;
+			this.y = y;
+			game.grid.moveAgent(this);
+			double angle = game.random.nextDouble() * 2 * Math.PI;
+			double cos = Math.cos(angle), sin = Math.sin(angle);
+			double newDirX = dirX * cos - dirY * sin;
+			dirY = dirX * sin + dirY * cos;
+			dirX = newDirX;
+			game.store.updateAgent(this);
 			firstPass = false;
 		}
 	}
@@ -436,7 +735,7 @@ public class Agent extends Entity {
 	 * @return True if there is a collision.
 	 */
 	public boolean collide(Wall w) {
-		Double[] ds = position.intersect(w.getLine());
+		Double[] ds = getPosition().intersect(w.getLine());
 		for (Double d : ds) {
 			if (d != null && d > 0 && d < w.getLength())
 				return true;
@@ -452,7 +751,7 @@ public class Agent extends Entity {
 	 * @return True if there is a collision.
 	 */
 	public boolean collide(Agent a) {
-		return position.intersect(a.getPosition());
+		return getPosition().intersect(a.getPosition());
 	}
 
 	/**
@@ -473,105 +772,4 @@ public class Agent extends Entity {
 		return false;
 	}
 
-	@Override
-	public void draw(Graphics2D g2d) {
-
-		int d = (int) (position.getRadius() * 2);
-		int x = (int) position.getCentre().getX();
-		int y = (int) position.getCentre().getY();
-
-		// experience circle
-		{
-			if (playerControlled) {
-				g2d.setColor(new Color(1f, 1f, 0f, 0.2f + 0.5f * (float) (1 - Math.exp(-experience / 5.))));
-			} else {
-				g2d.setColor(new Color(1f, 1f, 1f, 0.5f * (float) (1 - Math.exp(-experience / 5.))));
-			}
-			g2d.setStroke(new BasicStroke(DemolitionGame.agentRadius / 2));
-			g2d.drawOval(x - d / 2, y - d / 2, d, d);
-		}
-
-		// main circle
-		{
-			float fractionHealth = (float) this.health / DemolitionGame.agentMaxHealth;
-			g2d.setColor(new Color(.5f * (team == 1 ? 1 : 0) + .3f * (team == 0 ? (1 - fractionHealth) : 0),
-					.3f * (1 - fractionHealth),
-					.5f * (team == 0 ? 1 : 0) + .3f * (team == 1 ? (1 - fractionHealth) : 0), 1f));
-
-			g2d.setStroke(new BasicStroke(1));
-			g2d.fillOval(x - d / 2, y - d / 2, d, d);
-		}
-		// gun
-		{
-			Vector2D dir = direction.scale(position.getRadius());
-			int x2 = (int) (x + dir.getX());
-			int y2 = (int) (y + dir.getY());
-
-			g2d.setStroke(new BasicStroke(3));
-			float b;
-			if (laserOverheated) {
-				b = (200 - laserHeat) / 200f - 0.5f;
-
-			} else {
-				b = (200 - laserHeat) / 200f;
-			}
-			g2d.setColor(new Color(b, b, b, 1f));
-			g2d.drawLine(x, y, x2, y2);
-		}
-
-		// sensor pointer
-
-		{
-			Vector2D dir = this.getDirection().rotate(-DemolitionGame.sensorAngle / 2.);
-			for (int i = 0; i < DemolitionGame.sensorsNumber; i++) {
-				Vector2D dir2 = dir.scale(sensorDistances[i]);
-				int x2 = (int) (x + dir2.getX());
-				int y2 = (int) (y + dir2.getY());
-				float r = .5f * (sensorEnemy[i] > 0 ? 1 : 0) * (team == 0 ? 1 : 0)
-						+ ((sensorAgent[i] + sensorEnemy[i]) == 0 ? 1 : 0) * (team == 1 ? 1 : 0);
-				float g = 0f;
-				float b = .5f * (sensorEnemy[i] > 0 ? 1 : 0) * (team == 1 ? 1 : 0)
-						+ ((sensorAgent[i] + sensorEnemy[i]) == 0 ? 1 : 0) * (team == 0 ? 1 : 0);
-				g2d.setColor(new Color(r, g, b, 0.03f + (playerControlled ? 0.05f : 0f)));
-				g2d.drawLine(x, y, x2, y2);
-				double rotationScalar = i == 0 ? 5
-						: i == 1 ? 5 * (4. / 3.)
-								: i == 2 ? 5 * (4. / 2.)
-										: i == 3 ? 5 * (4. / 1.)
-												: i == 4 ? 5 * (4. / 1.)
-														: i == 5 ? 5 * (4. / 2.) : i == 6 ? 5 * (4. / 3.) : 5;
-				dir = dir.rotate(DemolitionGame.sensorAngle * 1. / rotationScalar);
-			}
-		}
-
-		/*
-		 * { Vector2D dir =
-		 * direction.scale(sensorDistances[DemolitionGame.sensorsNumber / 2]);
-		 * int x2 = (int) (x + dir.getX()); int y2 = (int) (y + dir.getY());
-		 * float r = .5f * (sensorEnemy[DemolitionGame.sensorsNumber / 2] > 0 ?
-		 * 1 : 0) * (team == 0 ? 1 : 0) +
-		 * ((sensorAgent[DemolitionGame.sensorsNumber / 2] +
-		 * sensorEnemy[DemolitionGame.sensorsNumber / 2]) == 0 ? 1 : 0) * (team
-		 * == 1 ? 1 : 0); float g = 0f; float b = .5f *
-		 * (sensorEnemy[DemolitionGame.sensorsNumber / 2] > 0 ? 1 : 0) * (team
-		 * == 1 ? 1 : 0) + ((sensorAgent[DemolitionGame.sensorsNumber / 2] +
-		 * sensorEnemy[DemolitionGame.sensorsNumber / 2]) == 0 ? 1 : 0) * (team
-		 * == 0 ? 1 : 0); g2d.setColor(new Color(r, g, b, 0.05f +
-		 * (playerControlled ? 0.05f : 0f))); g2d.drawLine(x, y, x2, y2); }
-		 */
-
-		// fatigue circle
-		{
-			float b;
-
-			b = (100 - fatigue) / 200f;
-			g2d.setColor(new Color(b, b, b, 1f));
-			g2d.setStroke(new BasicStroke(1));
-			g2d.fillOval(x - d / 4, y - d / 4, d / 2, d / 2);
-
-			b = exhausted ? 0 : 1;
-			g2d.setColor(new Color(b, b, b, 1f));
-			g2d.drawOval(x - d / 4, y - d / 4, d / 2, d / 2);
-		}
-	}
 }
@@ -1,9 +1,6 @@
 package demolitionEntities;
 
-import java.awt.BasicStroke;
-import java.awt.Color;
-import java.awt.Graphics2D;
-
+import demolition.DemolitionConfig;
 import demolition.DemolitionGame;
 import demolitionUtilities.Circle;
 import demolitionUtilities.Vector2D;
@@ -16,7 +13,7 @@ import demolitionUtilities.Vector2D;
  */
 public class Bomb extends Entity {
 
-	private Circle position;
+	private double x, y;
 	private Agent carrier;
 	private Agent armer;
 	private Agent defuser;
@@ -30,21 +27,34 @@ public class Bomb extends Entity {
 	private int timeToDefuse;
 	private int bombTimer;
 
-	private static final int radius = DemolitionGame.bombRadius;
+	private final DemolitionConfig config;
+
+	private final int radius;
+
+	/**
+	 * Square of the distance agents must be within to interact with the bomb.
+	 */
+	private final double interactDistanceSquared;
 
 	/**
 	 * Create a bomb at the given position. This can be used in any Demolition
-	 * Game, but use in multiple at once will not give good behaviour.
+	 * Game with the given settings, but use in multiple at once will not give
+	 * good behaviour.
 	 * 
 	 * @param position
+	 * @param config
 	 */
-	public Bomb(Vector2D position) {
-		this.position = new Circle(position, radius);
+	public Bomb(Vector2D position, DemolitionConfig config) {
+		this.config = config;
+		this.radius = config.bombRadius;
+		this.interactDistanceSquared = Math.pow(config.bombRadius * 4, 2);
+		this.x = position.getX();
+		this.y = position.getY();
 
 		this.carrier = null;
 		this.defused = false;
 		drop(carrier);
-		bombTimer = DemolitionGame.bombFramesToExplode;
+		bombTimer = config.bombFramesToExplode;
 	}
 
 	/**
@@ -54,8 +64,8 @@ public class Bomb extends Entity {
 	 * @return
 	 */
 	private boolean closeToBomb(Agent a) {
-		return a.getPosition().getCentre().getDistanceToSquared(this.getPosition().getCentre()) < Math
-				.pow(DemolitionGame.bombRadius * 4, 2);
+		double dx = a.getX() - x, dy = a.getY() - y;
+		return dx * dx + dy * dy < interactDistanceSquared;
 	}
 
 	/**
@@ -66,8 +76,9 @@ public class Bomb extends Entity {
 	 * @return
 	 */
 	private boolean closeToBombSite(DemolitionGame g) {
-		return getPosition().getCentre().getDistanceToSquared(g.bombSite.getPosition().getCentre()) < Math
-				.pow(DemolitionGame.bombRadius * 4, 2);
+		Vector2D site = g.bombSite.getPosition().getCentre();
+		double dx = x - site.getX(), dy = y - site.getY();
+		return dx * dx + dy * dy < interactDistanceSquared;
 	}
 
 	/**
@@ -82,10 +93,8 @@ public class Bomb extends Entity {
 				drop(a);
 			}
 		} else {
-			Vector2D carrierPos = a.getPosition().getCentre();
-			Vector2D bombPos = position.getCentre();
-			Vector2D toMove = carrierPos.sub(bombPos);
-			position = position.move(toMove);
+			x = a.getX();
+			y = a.getY();
 		}
 	}
 
@@ -98,7 +107,7 @@ public class Bomb extends Entity {
 		if (!closeToBombSite(game)) {
 			arming = false;
 			armer = null;
-			timeToArm = DemolitionGame.bombFramesToArm;
+			timeToArm = config.bombFramesToArm;
 			return;
 		}
 		Agent a = armer;
@@ -122,7 +131,7 @@ public class Bomb extends Entity {
 			timeToDefuse--;
 			if (timeToDefuse < 0) {
 				armed = false;
-				bombTimer = DemolitionGame.bombFramesToExplode;
+				bombTimer = config.bombFramesToExplode;
 				defused = true;
 			}
 		} else {
@@ -140,7 +149,8 @@ public class Bomb extends Entity {
 			arming = true;
 		}
 		if (armed) {
-			position = new Circle(game.bombSite.getPosition().getCentre(), radius);
+			x = game.bombSite.getPosition().getCentre().getX();
+			y = game.bombSite.getPosition().getCentre().getY();
 		}
 
 		if (isArmed()) {
@@ -165,7 +175,8 @@ public class Bomb extends Entity {
 	 * @param game
 	 */
 	private void pickUp(DemolitionGame game) {
-		for (Agent a : game.agents) {
+		for (int i = 0; i < game.agents.size(); i++) {
+			Agent a = game.agents.get(i);
 			if (carrier == null) {
 				// bomb can only be picked up by team 1
 				if (!armed && a.getTeam() == 1 && closeToBomb(a)) {
@@ -202,37 +213,67 @@ public class Bomb extends Entity {
 			defuser = null;
 			defusing = false;
 
-			timeToCarry = DemolitionGame.bombFramesToPickup;
-			timeToArm = DemolitionGame.bombFramesToArm;
-			timeToDefuse = DemolitionGame.bombFramesToDefuse;
+			timeToCarry = config.bombFramesToPickup;
+			timeToArm = config.bombFramesToArm;
+			timeToDefuse = config.bombFramesToDefuse;
 		}
 	}
 
-	@Override
-	public void draw(Graphics2D g2d) {
-		if (!armed)
-			g2d.setColor(Color.darkGray);
-		else
-			g2d.setColor(Color.getHSBColor(0f, 1f, 1 - bombTimer / (1f * DemolitionGame.bombFramesToExplode)));
-		g2d.setStroke(new BasicStroke(1));
-		int x = (int) (position.getCentre().getX() - radius / 2.);
-		int y = (int) (position.getCentre().getY() - radius / 2.);
-		g2d.fillOval(x - radius / 2, y - radius / 2, radius * 2, radius * 2);
-		if (armed)
-			g2d.setColor(Color.getHSBColor(0f, 1f, timeToDefuse / (1f * DemolitionGame.bombFramesToDefuse)));
-		else if (arming)
-			g2d.setColor(Color.getHSBColor(0f, 1f, timeToArm / (1f * DemolitionGame.bombFramesToArm)));
-		else
-			g2d.setColor(Color.white);
-		g2d.drawOval(x - radius / 2, y - radius / 2, radius * 2, radius * 2);
-	}
-
 	public boolean isArmed() {
 		return armed;
 	}
 
+	public boolean isArming() {
+		return arming;
+	}
+
+	/**
+	 * Get the time steps left until the armed bomb explodes.
+	 * 
+	 * @return
+	 */
+	public int getBombTimer() {
+		return bombTimer;
+	}
+
+	/**
+	 * Get the time steps left until the bomb is armed.
+	 * 
+	 * @return
+	 */
+	public int getTimeToArm() {
+		return timeToArm;
+	}
+
+	/**
+	 * Get the time steps left until the bomb is defused.
+	 * 
+	 * @return
+	 */
+	public int getTimeToDefuse() {
+		return timeToDefuse;
+	}
+
+	public int getRadius() {
+		return radius;
+	}
+
+	/**
+	 * Get the circle representing the bomb's position. Creates a new circle,
+	 * so use getX and getY where speed matters.
+	 * 
+	 * @return
+	 */
 	public Circle getPosition() {
-		return position;
+		return new Circle(new Vector2D(x, y), radius);
+	}
+
+	public double getX() {
+		return x;
+	}
+
+	public double getY() {
+		return y;
 	}
 
 	public Agent getCarrier() {
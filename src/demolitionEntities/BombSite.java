@@ -1,10 +1,6 @@
 package demolitionEntities;
 
-import java.awt.BasicStroke;
-import java.awt.Color;
-import java.awt.Graphics2D;
-
-import demolition.DemolitionGame;
+import demolition.DemolitionConfig;
 import demolitionUtilities.Circle;
 import demolitionUtilities.Vector2D;
 
@@ -22,25 +18,22 @@ public class BombSite extends Entity {
 		return position;
 	}
 
-	private static final int radius = DemolitionGame.bombRadius * 2;
+	private final int radius;
 
 	/**
-	 * Create a bomb site, to be used in any Demolition Game.
+	 * Create a bomb site, to be used in any Demolition Game with the given
+	 * settings.
 	 * 
 	 * @param position
+	 * @param config
 	 */
-	public BombSite(Vector2D position) {
+	public BombSite(Vector2D position, DemolitionConfig config) {
+		this.radius = config.bombRadius * 2;
 		this.position = new Circle(position, radius);
 	}
 
-	@Override
-	public void draw(Graphics2D g2d) {
-		g2d.setColor(Color.lightGray);
-		g2d.setStroke(new BasicStroke(1));
-		int x = (int) (position.getCentre().getX() - radius / 2.);
-		int y = (int) (position.getCentre().getY() - radius / 2.);
-		g2d.fillOval(x - radius / 2, y - radius / 2, radius * 2, radius * 2);
-		g2d.drawOval(x - radius / 2, y - radius / 2, radius * 2, radius * 2);
+	public int getRadius() {
+		return radius;
 	}
 
 }
@@ -1,15 +0,0 @@
-package demolitionEntities;
-
-import java.awt.Graphics2D;
-
-/**
- * Marker for things which can be drawn to the Canvas.
- * 
- * @author Alex Braithwaite
- *
- */
-public interface Drawable {
-
-	abstract public void draw(Graphics2D g2d);
-
-}
@@ -6,6 +6,12 @@ package demolitionEntities;
  * @author Alex Braithwaite
  *
  */
-public abstract class Entity implements Drawable {
+public abstract class Entity {
+
+	/**
+	 * Number of the last SpatialGrid query to return this entity, so entities
+	 * in more than one cell are only returned once by each query.
+	 */
+	public int lastQuery = 0;
 
 }
@@ -1,13 +1,7 @@
 package demolitionEntities;
 
-import java.awt.BasicStroke;
-import java.awt.Color;
-import java.awt.Graphics2D;
-import java.util.Iterator;
-
 import demolition.DemolitionGame;
-import demolitionUtilities.Line2D;
-import demolitionUtilities.Vector2D;
+import demolition.RayHit;
 
 /**
  * Class to manage Lasers in the Demolition Game.
@@ -17,33 +11,43 @@ import demolitionUtilities.Vector2D;
  */
 public class Laser extends Entity {
 
-	private Line2D line;
+	private double startX, startY;
+	private double dirX, dirY;
 	private double length;
 	private Entity hit;
 	private Agent shooter;
 	private DemolitionGame game;
+	private RayHit rayHit = new RayHit();
 
 	/**
-	 * Create a Laser from the given start location, in the given direction,
-	 * fired by the given Agent in the given Demolition Game.
+	 * Create a Laser fired by the given Agent in the given Demolition Game.
+	 * The laser is reused for each of the agent's shots.
 	 * 
 	 * @param shooter
-	 * @param start
-	 * @param dir
 	 * @param game
 	 */
-	public Laser(Agent shooter, Vector2D start, Vector2D dir, DemolitionGame game) {
+	public Laser(Agent shooter, DemolitionGame game) {
 		super();
 		this.shooter = shooter;
 		this.game = game;
-		line = new Line2D(start, dir);
-		length = DemolitionGame.laserMaxRange;
+		length = game.config.laserMaxRange;
 		hit = null;
-		checkForHit();
 	}
 
-	public Line2D getLine() {
-		return line;
+	public double getStartX() {
+		return startX;
+	}
+
+	public double getStartY() {
+		return startY;
+	}
+
+	public double getEndX() {
+		return startX + length * dirX;
+	}
+
+	public double getEndY() {
+		return startY + length * dirY;
 	}
 
 	public double getLength() {
@@ -54,44 +58,28 @@ public class Laser extends Entity {
 		return hit;
 	}
 
-	/**
-	 * Find the agent, if any, hit by this laser.
-	 */
-	private void checkForHit() {
-		Iterator<Entity> it = game.entities.listIterator();
-		while (it.hasNext()) {
-			Entity e = it.next();
-			if (e instanceof Wall) {
-				Wall w = (Wall) e;
-				// check collision distance to wall
-				Double[] d = line.intersect(w.getLine());
-				if (d[0] != null && d[1] > 0 && d[1] < w.getLength() && d[0] > 0 && d[0] < length) {
-					length = d[0];
-					hit = w;
-				}
-			} else if (e != shooter && e instanceof Agent) {
-				Agent a = (Agent) e;
-				// check collision distance to agent
-				Double[] ds = a.getPosition().intersect(line);
-				for (Double d : ds) {
-					if (d != null && d > 0 && d < length) {
-						length = d;
-						hit = a;
-					}
-				}
-			}
-		}
+	public Agent getShooter() {
+		return shooter;
 	}
 
-	@Override
-	public void draw(Graphics2D g2d) {
-		g2d.setColor(new Color(shooter.getTeam() == 1 ? 1f : 0f, 0f, shooter.getTeam() == 0 ? 1f : 0f, 1f));
-		g2d.setStroke(new BasicStroke(2));
-		int x1 = (int) line.getStart().getX();
-		int y1 = (int) line.getStart().getY();
-		int x2 = (int) (line.getStart().getX() + length * line.getDirection().getX());
-		int y2 = (int) (line.getStart().getY() + length * line.getDirection().getY());
-		g2d.drawLine(x1, y1, x2, y2);
+	/**
+	 * Fire the laser from the given location in the given direction, finding
+	 * the agent, if any, it hits.
+	 * 
+	 * @param x
+	 * @param y
+	 * @param dirX
+	 * @param dirY
+	 *            Unit direction to fire in.
+	 */
+	public void fire(double x, double y, double dirX, double dirY) {
+		this.startX = x;
+		this.startY = y;
+		this.dirX = dirX;
+		this.dirY = dirY;
+		game.castRay(x, y, dirX, dirY, game.config.laserMaxRange, shooter, rayHit);
+		length = rayHit.getDistance();
+		hit = rayHit.getHit();
 	}
 
 }
@@ -0,0 +1,65 @@
+package demolitionEntities;
+
+import demolition.DemolitionConfig;
+
+/**
+ * The fan of distance sensors each Agent looks along. The sensors' angles from
+ * the agent's heading never change, so their cosines and sines are
+ * precomputed once per config, and each sensor's direction is found from the heading with
+ * a few multiplies rather than calls to Math.cos and Math.sin.
+ * 
+ * Sensors are spread across sensorAngle, packed more densely towards the
+ * centre of the fan.
+ * 
+ * @author Alex Braithwaite
+ * 
+ */
+public final class SensorFan {
+
+	/**
+	 * Fraction of sensorAngle between each sensor and the next. Any sensors
+	 * beyond these are spaced at a fifth of sensorAngle.
+	 */
+	private static final double[] spacing = { 1 / 5., 3 / 20., 1 / 10., 1 / 20., 1 / 20., 1 / 10., 3 / 20., 1 / 5. };
+
+	/**
+	 * Cosine and sine of each sensor's angle from the agent's heading.
+	 */
+	private final double[] cos;
+	private final double[] sin;
+
+	/**
+	 * Precompute the sensor fan for a config's sensor settings.
+	 * 
+	 * @param config
+	 */
+	public SensorFan(DemolitionConfig config) {
+		cos = new double[config.sensorsNumber];
+		sin = new double[config.sensorsNumber];
+		double angle = -config.sensorAngle / 2.;
+		for (int i = 0; i < config.sensorsNumber; i++) {
+			cos[i] = Math.cos(angle);
+			sin[i] = Math.sin(angle);
+			angle += config.sensorAngle * (i < spacing.length ? spacing[i] : 1 / 5.);
+		}
+	}
+
+	/**
+	 * Find the direction of every sensor for an agent with the given heading.
+	 * 
+	 * @param dirX
+	 * @param dirY
+	 *            Unit heading of the agent.
+	 * @param dx
+	 * @param dy
+	 *            Arrays of length sensorsNumber to fill with each sensor's
+	 *            unit direction.
+	 */
+	public void directions(double dirX, double dirY, double[] dx, double[] dy) {
+		for (int i = 0; i < cos.length; i++) {
+			dx[i] = dirX * cos[i] - dirY * sin[i];
+			dy[i] = dirX * sin[i] + dirY * cos[i];
+		}
+	}
+
+}
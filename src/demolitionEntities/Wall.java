@@ -1,9 +1,5 @@
 package demolitionEntities;
 
-import java.awt.BasicStroke;
-import java.awt.Color;
-import java.awt.Graphics2D;
-
 import demolitionUtilities.Line2D;
 import demolitionUtilities.Vector2D;
 
@@ -67,15 +63,4 @@ public class Wall extends Entity {
 		return length;
 	}
 
-	@Override
-	public void draw(Graphics2D g2d) {
-		g2d.setColor(Color.black);
-		g2d.setStroke(new BasicStroke(5));
-		int x1 = (int) line.getStart().getX();
-		int y1 = (int) line.getStart().getY();
-		int x2 = (int) (line.getStart().getX() + length * line.getDirection().getX());
-		int y2 = (int) (line.getStart().getY() + length * line.getDirection().getY());
-		g2d.drawLine(x1, y1, x2, y2);
-	}
-
 }
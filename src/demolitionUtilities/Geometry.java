@@ -0,0 +1,191 @@
+package demolitionUtilities;
+
+/**
+ * Static geometry kernels working on primitive coordinates, for use in the
+ * Demolition Game's per time step physics and sensing, where allocating a
+ * Vector2D or Double[] for every test would create a lot of garbage.
+ * 
+ * Lines are given as a start point and a unit direction. Kernels return NaN
+ * when there is no intersection at all, and rays return positive infinity
+ * when they hit nothing, so a result can be compared directly with the
+ * closest hit so far.
+ * 
+ * @author Alex Braithwaite
+ * 
+ */
+public final class Geometry {
+
+	private Geometry() {
+	}
+
+	/**
+	 * Find the distance between two points.
+	 * 
+	 * @param x1
+	 * @param y1
+	 * @param x2
+	 * @param y2
+	 * @return Distance from (x1, y1) to (x2, y2).
+	 */
+	public static double distance(double x1, double y1, double x2, double y2) {
+		double dx = x2 - x1, dy = y2 - y1;
+		return Math.sqrt(dx * dx + dy * dy);
+	}
+
+	/**
+	 * Find the square of the distance from a point to a line segment, to
+	 * compare against squared radii without taking a square root.
+	 * 
+	 * @param x
+	 * @param y
+	 * @param dx
+	 * @param dy
+	 *            Start and unit direction of the segment.
+	 * @param length
+	 *            Length of the segment.
+	 * @param px
+	 * @param py
+	 *            Point to measure from.
+	 * @return Squared distance from the point to the nearest point on the
+	 *         segment.
+	 */
+	public static double segmentDistanceSquared(double x, double y, double dx, double dy, double length, double px,
+			double py) {
+		double t = (px - x) * dx + (py - y) * dy;
+		t = t < 0 ? 0 : t > length ? length : t;
+		double ex = px - (x + dx * t), ey = py - (y + dy * t);
+		return ex * ex + ey * ey;
+	}
+
+	/**
+	 * Find where two lines cross. Calling with the lines swapped gives the
+	 * distance along the other line, matching Line2D.intersect.
+	 * 
+	 * @param x1
+	 * @param y1
+	 * @param dx1
+	 * @param dy1
+	 *            Start and direction of the first line.
+	 * @param x2
+	 * @param y2
+	 * @param dx2
+	 * @param dy2
+	 *            Start and direction of the second line.
+	 * @return Distance along the first line to the intersection, or NaN if the
+	 *         lines are parallel.
+	 */
+	public static double lineLine(double x1, double y1, double dx1, double dy1, double x2, double y2, double dx2,
+			double dy2) {
+		if (dx1 == dx2 && dy1 == dy2)
+			return Double.NaN;
+		return (y2 * dx2 + x1 * dy2 - y1 * dx2 - x2 * dy2) / (dy1 * dx2 - dx1 * dy2);
+	}
+
+	/**
+	 * Find where a ray first hits a line segment.
+	 * 
+	 * @param ox
+	 * @param oy
+	 * @param dx
+	 * @param dy
+	 *            Start and direction of the ray.
+	 * @param sx
+	 * @param sy
+	 * @param sdx
+	 * @param sdy
+	 *            Start and direction of the segment.
+	 * @param length
+	 *            Length of the segment.
+	 * @return Distance along the ray to the segment, or positive infinity if
+	 *         the ray misses it.
+	 */
+	public static double raySegment(double ox, double oy, double dx, double dy, double sx, double sy, double sdx,
+			double sdy, double length) {
+		double s = lineLine(sx, sy, sdx, sdy, ox, oy, dx, dy);
+		if (!(s > 0 && s < length))
+			return Double.POSITIVE_INFINITY;
+		double t = lineLine(ox, oy, dx, dy, sx, sy, sdx, sdy);
+		return t > 0 ? t : Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * Find where a line enters a circle.
+	 * 
+	 * @param x
+	 * @param y
+	 * @param dx
+	 * @param dy
+	 *            Start and direction of the line.
+	 * @param cx
+	 * @param cy
+	 * @param r
+	 *            Centre and radius of the circle.
+	 * @return Distance along the line to the nearer intersection, or NaN if the
+	 *         line misses the circle.
+	 */
+	public static double lineCircleNear(double x, double y, double dx, double dy, double cx, double cy, double r) {
+		double a = dx * dx + dy * dy;
+		double b = 2 * (x * dx - dx * cx + y * dy - dy * cy);
+		double c = x * x + y * y + cx * cx + cy * cy - 2 * cx * x - 2 * cy * y - r * r;
+		double det = b * b - 4 * a * c;
+		if (det < 0)
+			return Double.NaN;
+		return (-b - Math.sqrt(det)) / (2 * a);
+	}
+
+	/**
+	 * Find where a line leaves a circle.
+	 * 
+	 * @param x
+	 * @param y
+	 * @param dx
+	 * @param dy
+	 *            Start and direction of the line.
+	 * @param cx
+	 * @param cy
+	 * @param r
+	 *            Centre and radius of the circle.
+	 * @return Distance along the line to the further intersection, or NaN if
+	 *         the line misses the circle.
+	 */
+	public static double lineCircleFar(double x, double y, double dx, double dy, double cx, double cy, double r) {
+		double a = dx * dx + dy * dy;
+		double b = 2 * (x * dx - dx * cx + y * dy - dy * cy);
+		double c = x * x + y * y + cx * cx + cy * cy - 2 * cx * x - 2 * cy * y - r * r;
+		double det = b * b - 4 * a * c;
+		if (det < 0)
+			return Double.NaN;
+		return (-b + Math.sqrt(det)) / (2 * a);
+	}
+
+	/**
+	 * Find where a ray first hits a circle, ignoring intersections behind its
+	 * start.
+	 * 
+	 * @param ox
+	 * @param oy
+	 * @param dx
+	 * @param dy
+	 *            Start and direction of the ray.
+	 * @param cx
+	 * @param cy
+	 * @param r
+	 *            Centre and radius of the circle.
+	 * @return Distance along the ray to the circle, or positive infinity if
+	 *         the ray misses it.
+	 */
+	public static double rayCircle(double ox, double oy, double dx, double dy, double cx, double cy, double r) {
+		double a = dx * dx + dy * dy;
+		double b = 2 * (ox * dx - dx * cx + oy * dy - dy * cy);
+		double c = ox * ox + oy * oy + cx * cx + cy * cy - 2 * cx * ox - 2 * cy * oy - r * r;
+		double det = b * b - 4 * a * c;
+		if (det < 0)
+			return Double.POSITIVE_INFINITY;
+		double near = (-b - Math.sqrt(det)) / (2 * a);
+		if (near > 0)
+			return near;
+		double far = (-b + Math.sqrt(det)) / (2 * a);
+		return far > 0 ? far : Double.POSITIVE_INFINITY;
+	}
+
+}
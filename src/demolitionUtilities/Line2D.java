@@ -69,10 +69,8 @@ public class Line2D {
 			double dx2 = l.getDirection().getX();
 			double dy2 = l.getDirection().getY();
 
-			d1 = (y2 * dx2 + x1 * dy2 - y1 * dx2 - x2 * dy2)
-					/ (dy1 * dx2 - dx1 * dy2);
-			d2 = (y1 * dx1 + x2 * dy1 - y2 * dx1 - x1 * dy1)
-					/ (dy2 * dx1 - dx2 * dy1);
+			d1 = Geometry.lineLine(x1, y1, dx1, dy1, x2, y2, dx2, dy2);
+			d2 = Geometry.lineLine(x2, y2, dx2, dy2, x1, y1, dx1, dy1);
 		}
 
 		Double[] ret = { d1, d2 };
@@ -96,16 +94,11 @@ public class Line2D {
 		double lx = this.getStart().getX(), ly = this.getStart().getY();
 		double dx = this.getDirection().getX(), dy = this.getDirection().getY();
 
-		double a = dx * dx + dy * dy;
-		double b = 2 * (lx * dx - dx * cx + ly * dy - dy * cy);
-		double c = lx * lx + ly * ly + cx * cx + cy * cy - 2 * cx * lx - 2 * cy
-				* ly - r * r;
-		double det = b * b - 4 * a * c;
-
-		// if determinant is below zero there is no intersection
-		if (det >= 0) {
-			d1 = (-b + Math.sqrt(det)) / (2 * a);
-			d2 = (-b - Math.sqrt(det)) / (2 * a);
+		// if the line misses the circle there is no intersection
+		double far = Geometry.lineCircleFar(lx, ly, dx, dy, cx, cy, r);
+		if (!Double.isNaN(far)) {
+			d1 = far;
+			d2 = Geometry.lineCircleNear(lx, ly, dx, dy, cx, cy, r);
 		}
 
 		Double[] ret = { d1, d2 };
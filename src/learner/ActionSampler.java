@@ -0,0 +1,235 @@
+package learner;
+
+import java.util.SplittableRandom;
+
+/**
+ * Chooses actions from their Q values using a Boltzmann distribution with
+ * epsilon greedy exploration. Each sampler has its own stream of random
+ * numbers and its own buffers, so give every agent its own sampler, split from
+ * one stream: agents then never share random number state, and choosing an
+ * action allocates nothing.
+ * 
+ * The Boltzmann distribution is computed relative to the largest Q value, so
+ * it can't overflow however small the temperature gets. Actions from a fixed
+ * distribution are chosen in constant time from an AliasTable.
+ * 
+ * @author Alex Braithwaite
+ * 
+ */
+public class ActionSampler {
+
+	private final SplittableRandom random;
+
+	/**
+	 * Q value of every action, for the caller to fill.
+	 */
+	private final double[] values;
+
+	/**
+	 * Cumulative unnormalised probability of every action.
+	 */
+	private final double[] cumulative;
+
+	/**
+	 * Create a sampler with an unseeded stream.
+	 * 
+	 * @param numActions
+	 */
+	public ActionSampler(int numActions) {
+		this(numActions, new SplittableRandom());
+	}
+
+	/**
+	 * Create a sampler which always makes the same choices for a given seed
+	 * and the same Q values.
+	 * 
+	 * @param numActions
+	 * @param seed
+	 */
+	public ActionSampler(int numActions, long seed) {
+		this(numActions, new SplittableRandom(seed));
+	}
+
+	private ActionSampler(int numActions, SplittableRandom random) {
+		this.random = random;
+		this.values = new double[numActions];
+		this.cumulative = new double[numActions];
+	}
+
+	/**
+	 * Split off a new sampler, with a stream independent of this one from then
+	 * on.
+	 * 
+	 * @return
+	 */
+	public ActionSampler split() {
+		return new ActionSampler(values.length, random.split());
+	}
+
+	/**
+	 * Get a buffer to fill with the Q value of every action before choosing
+	 * one. The buffer is reused by every call.
+	 * 
+	 * @return
+	 */
+	public double[] values() {
+		return values;
+	}
+
+	/**
+	 * Choose an action: with probability epsilon any action at random, else
+	 * an action from the Boltzmann distribution over the Q values.
+	 * 
+	 * @param Q
+	 *            Q value of every action.
+	 * @param T
+	 *            Temperature. At 0, the action with the largest Q value is
+	 *            chosen.
+	 * @param epsilon
+	 * @return Action to perform.
+	 */
+	public int choose(double[] Q, double T, double epsilon) {
+		int action = boltzmann(Q, T);
+
+		// epsilon greedy strategy
+		if (random.nextDouble() < epsilon)
+			action = random.nextInt(values.length);
+
+		return action;
+	}
+
+	/**
+	 * Choose an action from the Boltzmann distribution over the Q values.
+	 * 
+	 * @param Q
+	 *            Q value of every action.
+	 * @param T
+	 *            Temperature. At 0, the action with the largest Q value is
+	 *            chosen.
+	 * @return
+	 */
+	public int boltzmann(double[] Q, double T) {
+		int n = values.length;
+		int best = 0;
+		for (int i = 1; i < n; i++) {
+			if (Q[i] > Q[best])
+				best = i;
+		}
+		if (!(T > 0))
+			return best;
+
+		// exp((Q - Qmax) / T) is at most 1
+		double total = 0;
+		for (int i = 0; i < n; i++) {
+			total += Math.exp((Q[i] - Q[best]) / T);
+			cumulative[i] = total;
+		}
+
+		double r = random.nextDouble() * total;
+		for (int i = 0; i < n; i++) {
+			if (r < cumulative[i])
+				return i;
+		}
+		return best;
+	}
+
+	/**
+	 * Choose an action from a fixed distribution.
+	 * 
+	 * @param table
+	 * @return
+	 */
+	public int sample(AliasTable table) {
+		return table.sample(random);
+	}
+
+	/**
+	 * Alias table for a fixed distribution over a set of actions, so an
+	 * action can be chosen in constant time however many there are (Vose's
+	 * method). Tables never change once built, so can be shared by every
+	 * agent.
+	 */
+	public static class AliasTable {
+
+		/**
+		 * Probability of keeping each column's own action rather than its
+		 * alias.
+		 */
+		private final double[] keep;
+		private final int[] alias;
+
+		/**
+		 * Build a table for a distribution.
+		 * 
+		 * @param weights
+		 *            Relative probability of each action, not necessarily
+		 *            summing to 1.
+		 */
+		public AliasTable(double[] weights) {
+			int n = weights.length;
+			double total = 0;
+			for (double w : weights) {
+				if (!(w >= 0))
+					throw new IllegalArgumentException("Weights must not be negative: " + w);
+				total += w;
+			}
+			if (n == 0 || !(total > 0))
+				throw new IllegalArgumentException("Weights must have a positive total: " + total);
+
+			keep = new double[n];
+			alias = new int[n];
+
+			// split columns into those under and over the mean
+			double[] scaled = new double[n];
+			int[] small = new int[n], large = new int[n];
+			int numSmall = 0, numLarge = 0;
+			for (int i = 0; i < n; i++) {
+				scaled[i] = weights[i] * n / total;
+				if (scaled[i] < 1)
+					small[numSmall++] = i;
+				else
+					large[numLarge++] = i;
+			}
+
+			// fill each small column up with a large one
+			while (numSmall > 0 && numLarge > 0) {
+				int s = small[--numSmall], l = large[--numLarge];
+				keep[s] = scaled[s];
+				alias[s] = l;
+				scaled[l] -= 1 - scaled[s];
+				if (scaled[l] < 1)
+					small[numSmall++] = l;
+				else
+					large[numLarge++] = l;
+			}
+
+			// whatever is left is full, up to rounding
+			while (numLarge > 0) {
+				int l = large[--numLarge];
+				keep[l] = 1;
+				alias[l] = l;
+			}
+			while (numSmall > 0) {
+				int s = small[--numSmall];
+				keep[s] = 1;
+				alias[s] = s;
+			}
+		}
+
+		/**
+		 * Choose an action.
+		 * 
+		 * @param random
+		 * @return
+		 */
+		int sample(SplittableRandom random) {
+			int column = random.nextInt(keep.length);
+			return random.nextDouble() < keep[column] ? column : alias[column];
+		}
+
+		public int size() {
+			return keep.length;
+		}
+	}
+
+}
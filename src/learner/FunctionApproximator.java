@@ -1,5 +1,10 @@
 package learner;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+
 /**
  * Generic function approximator for a Q function, allowing use by multiple
  * agents.
@@ -27,6 +32,16 @@ public interface FunctionApproximator {
 	 */
 	public double get(SAPair<Double> saPair);
 
+	/**
+	 * Get the Q value of every action for each of a batch of states.
+	 * 
+	 * @param states
+	 * @param numActions
+	 *            Number of actions to evaluate each state for.
+	 * @return Q values, indexed by state then action.
+	 */
+	public double[][] getAll(List<List<Double>> states, int numActions);
+
 	/**
 	 * Increase an agent's eligibility for a given agent using this function
 	 * approximator.
@@ -52,4 +67,33 @@ public interface FunctionApproximator {
 	 */
 	public void resetEligibilities(int agentNum);
 
+	/**
+	 * Create a copy of this function approximator giving the same Q values,
+	 * with all eligibilities reset. Later updates to either copy do not affect
+	 * the other.
+	 * 
+	 * @param numAgents
+	 *            Number of agents to be using the copy.
+	 * @return
+	 */
+	public FunctionApproximator copy(int numAgents);
+
+	/**
+	 * Write the Q-function to a stream, so it can be read back by read.
+	 * Eligibilities are not written.
+	 * 
+	 * @param out
+	 * @throws IOException
+	 */
+	public void write(DataOutputStream out) throws IOException;
+
+	/**
+	 * Replace the Q-function with one written by write.
+	 * 
+	 * @param in
+	 * @throws IOException
+	 *             If the stream does not hold a Q-function of the same shape.
+	 */
+	public void read(DataInputStream in) throws IOException;
+
 }
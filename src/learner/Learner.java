@@ -44,6 +44,20 @@ public interface Learner {
 	 */
 	public int getAction(List<Double> state, double reward, int agentNum);
 
+	/**
+	 * Get actions for a batch of agents at once, as for calling getAction for
+	 * each agent in turn.
+	 * 
+	 * @param states
+	 *            Inputs for each agent.
+	 * @param rewards
+	 *            Reward from each agent's action in the previous time step.
+	 * @param agentNums
+	 *            Agent to perform each time step.
+	 * @return Action for each agent to perform in current time step.
+	 */
+	public int[] getActions(List<List<Double>> states, double[] rewards, int[] agentNums);
+
 	/**
 	 * Analogous to the getAction method, but with the action
 	 * pre-determined.
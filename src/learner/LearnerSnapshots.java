@@ -0,0 +1,79 @@
+package learner;
+
+import java.util.SplittableRandom;
+
+/**
+ * Shares a learner between threads. The thread updating the learner publishes
+ * snapshots of it, and every other thread evaluates states using its own copy
+ * of the most recently published snapshot, as a learner cannot be evaluated by
+ * more than one thread at once.
+ * 
+ * @author Alex Braithwaite
+ * 
+ */
+public class LearnerSnapshots {
+
+	/**
+	 * Snapshot of the learner along with the version it was taken at, and the
+	 * seed copies of it choose actions from.
+	 */
+	private static class Snapshot {
+		private final SarsaLambda learner;
+		private final long version;
+		private final long seed;
+
+		private Snapshot(SarsaLambda learner, long version, long seed) {
+			this.learner = learner;
+			this.version = version;
+			this.seed = seed;
+		}
+	}
+
+	/**
+	 * Seeds of published snapshots. Only used by the thread updating the
+	 * learner.
+	 */
+	private SplittableRandom seeds = new SplittableRandom();
+
+	/**
+	 * Latest published snapshot. Only ever copied, never evaluated directly,
+	 * so it is safe to share.
+	 */
+	private volatile Snapshot published;
+
+	/**
+	 * Each thread's own copy of a published snapshot.
+	 */
+	private ThreadLocal<Snapshot> local = new ThreadLocal<Snapshot>();
+
+	/**
+	 * Publish a snapshot of the learner for other threads to use. Must be
+	 * called from the thread updating the learner.
+	 * 
+	 * @param learner
+	 */
+	public void publish(SarsaLambda learner) {
+		long version = published == null ? 0 : published.version + 1;
+		published = new Snapshot(learner.snapshot(seeds.nextLong()), version, seeds.nextLong());
+	}
+
+	/**
+	 * Get this thread's copy of the latest published snapshot, copying it if
+	 * a newer one has been published since this thread last called get. The
+	 * published snapshot is only read, and each thread's copy chooses actions
+	 * from its own seed.
+	 * 
+	 * @return Learner which may only be used by the calling thread.
+	 */
+	public SarsaLambda get() {
+		Snapshot latest = published;
+		Snapshot mine = local.get();
+		if (mine == null || mine.version != latest.version) {
+			long seed = latest.seed + Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+			mine = new Snapshot(latest.learner.snapshot(seed), latest.version, latest.seed);
+			local.set(mine);
+		}
+		return mine.learner;
+	}
+
+}
@@ -1,8 +1,12 @@
 package learner;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
@@ -12,7 +16,7 @@ import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 
-import demolition.DemolitionGame;
+import demolition.DemolitionConfig;
 
 /**
  * Simple table based Q-function.
@@ -64,15 +68,14 @@ public class QFunctionCache implements FunctionApproximator {
 	/**
 	 * Number of agents using this function approximator.
 	 */
-	@SuppressWarnings("unused")
 	private int numAgents;
 
 	public QFunctionCache(int numAgents) {
 		this.numAgents = numAgents;
 
-		// 1 game = Game.gameLength frames
-		// Game.numAgents nanosec recorded on timer per frame (tick once per agent)
-		long expireAfter = DemolitionGame.numAgents * DemolitionGame.gameLength * 100;
+		// 1 game = gameLength frames
+		// numAgents nanosec recorded on timer per frame (tick once per agent)
+		long expireAfter = (long) numAgents * DemolitionConfig.defaults().gameLength * 100;
 		// so we remember everything used in the past n games
 		table = CacheBuilder.newBuilder().expireAfterAccess(expireAfter, TimeUnit.NANOSECONDS)
 				.ticker(cacheTimer).build(new CacheLoader<Integer, Float>() {
@@ -130,6 +133,17 @@ public class QFunctionCache implements FunctionApproximator {
 		return initialQ;
 	}
 
+	@Override
+	public double[][] getAll(List<List<Double>> states, int numActions) {
+		double[][] qs = new double[states.size()][numActions];
+		for (int i = 0; i < states.size(); i++) {
+			for (int action = 0; action < numActions; action++) {
+				qs[i][action] = get(new SAPair<Double>(states.get(i), action));
+			}
+		}
+		return qs;
+	}
+
 	@Override
 	public void accumulateEligibilities(int agentNum, SAPair<Double> saPair) {
 		Integer processed = inputProcessing(saPair);
@@ -162,4 +176,30 @@ public class QFunctionCache implements FunctionApproximator {
 		e.set(agentNum, new HashMap<Integer, Double>());
 	}
 
+	@Override
+	public FunctionApproximator copy(int numAgents) {
+		QFunctionCache copy = new QFunctionCache(numAgents);
+		copy.table.putAll(table.asMap());
+		return copy;
+	}
+
+	@Override
+	public void write(DataOutputStream out) throws IOException {
+		Map<Integer, Float> entries = table.asMap();
+		out.writeInt(entries.size());
+		for (Map.Entry<Integer, Float> entry : entries.entrySet()) {
+			out.writeInt(entry.getKey());
+			out.writeFloat(entry.getValue());
+		}
+	}
+
+	@Override
+	public void read(DataInputStream in) throws IOException {
+		table.invalidateAll();
+		int size = in.readInt();
+		for (int i = 0; i < size; i++) {
+			table.put(in.readInt(), in.readFloat());
+		}
+	}
+
 }
@@ -1,6 +1,10 @@
 package learner;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Class for a group of Neural Networks to be used by a SARSA Learner.
@@ -37,6 +41,21 @@ public class QFunctionNetworks implements FunctionApproximator {
 		}
 	}
 
+	/**
+	 * Copy constructor.
+	 * 
+	 * @param toCopy
+	 * @param numAgents
+	 *            Number of agents to be using the copy.
+	 */
+	private QFunctionNetworks(QFunctionNetworks toCopy, int numAgents) {
+		networks = new ArrayList<QNetwork>(toCopy.networks.size());
+
+		for (QNetwork n : toCopy.networks) {
+			networks.add(new QNetwork(n, numAgents));
+		}
+	}
+
 	@Override
 	public void update(int agentNum, double alpha, double delta) {
 		for (QNetwork n : networks) {
@@ -49,6 +68,26 @@ public class QFunctionNetworks implements FunctionApproximator {
 		return networks.get(saPair.action).get(saPair);
 	}
 
+	/**
+	 * Evaluates each action's network over the whole batch at once, and
+	 * processes each state's inputs only once for all the networks.
+	 */
+	@Override
+	public double[][] getAll(List<List<Double>> states, int numActions) {
+		double[][] inputs = new double[states.size()][];
+		for (int i = 0; i < states.size(); i++) {
+			inputs[i] = QNetwork.processInputs(states.get(i));
+		}
+		double[][] qs = new double[states.size()][numActions];
+		for (int action = 0; action < numActions; action++) {
+			double[] actionQs = networks.get(action).getBatch(inputs);
+			for (int i = 0; i < states.size(); i++) {
+				qs[i][action] = actionQs[i];
+			}
+		}
+		return qs;
+	}
+
 	@Override
 	public void accumulateEligibilities(int agentNum, SAPair<Double> saPair) {
 		networks.get(saPair.action).accumulateEligibilities(agentNum, saPair);
@@ -68,6 +107,31 @@ public class QFunctionNetworks implements FunctionApproximator {
 		}
 	}
 
+	@Override
+	public FunctionApproximator copy(int numAgents) {
+		return new QFunctionNetworks(this, numAgents);
+	}
+
+	@Override
+	public void write(DataOutputStream out) throws IOException {
+		out.writeInt(networks.size());
+		for (QNetwork n : networks) {
+			n.write(out);
+		}
+	}
+
+	@Override
+	public void read(DataInputStream in) throws IOException {
+		int numOutputs = in.readInt();
+		if (numOutputs != networks.size()) {
+			throw new IOException(
+					"Incorrect number of outputs (given " + numOutputs + ", expected " + networks.size() + ")");
+		}
+		for (QNetwork n : networks) {
+			n.read(in);
+		}
+	}
+
 	@Override
 	public String toString() {
 		String s = "";
@@ -1,8 +1,12 @@
 package learner;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -94,6 +98,17 @@ public class QFunctionTable implements FunctionApproximator {
 		return table.get(processed);
 	}
 
+	@Override
+	public double[][] getAll(List<List<Double>> states, int numActions) {
+		double[][] qs = new double[states.size()][numActions];
+		for (int i = 0; i < states.size(); i++) {
+			for (int action = 0; action < numActions; action++) {
+				qs[i][action] = get(new SAPair<Double>(states.get(i), action));
+			}
+		}
+		return qs;
+	}
+
 	@Override
 	public void accumulateEligibilities(int agentNum, SAPair<Double> saPair) {
 		Integer processed = inputProcessing(saPair);
@@ -124,4 +139,29 @@ public class QFunctionTable implements FunctionApproximator {
 		e.set(agentNum, new HashMap<Integer, Double>());
 	}
 
+	@Override
+	public FunctionApproximator copy(int numAgents) {
+		QFunctionTable copy = new QFunctionTable(numAgents);
+		copy.table.putAll(table);
+		return copy;
+	}
+
+	@Override
+	public void write(DataOutputStream out) throws IOException {
+		out.writeInt(table.size());
+		for (Map.Entry<Integer, Float> entry : table.entrySet()) {
+			out.writeInt(entry.getKey());
+			out.writeFloat(entry.getValue());
+		}
+	}
+
+	@Override
+	public void read(DataInputStream in) throws IOException {
+		table.clear();
+		int size = in.readInt();
+		for (int i = 0; i < size; i++) {
+			table.put(in.readInt(), in.readFloat());
+		}
+	}
+
 }
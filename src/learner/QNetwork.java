@@ -1,6 +1,11 @@
 package learner;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import org.apache.commons.math3.distribution.NormalDistribution;
 
@@ -91,6 +96,36 @@ public class QNetwork {
 			}
 		}
 
+		w = new ArrayList<Matrix>(weights.length);
+		w.add(null);
+		for (int i = 1; i < weights.length; i++) {
+			w.add(Matrix.rows(weights[i]));
+		}
+
+		initialise(numAgents);
+	}
+
+	/**
+	 * Copy constructor. Weight matrices are immutable so are shared with the
+	 * network being copied, whilst activations and eligibilities are fresh.
+	 * 
+	 * @param toCopy
+	 * @param numAgents
+	 */
+	public QNetwork(QNetwork toCopy, int numAgents) {
+		this.layers = toCopy.layers;
+		this.sizes = toCopy.sizes.clone();
+		this.w = new ArrayList<Matrix>(toCopy.w);
+
+		initialise(numAgents);
+	}
+
+	/**
+	 * Create the working matrices and eligibilities for this network.
+	 * 
+	 * @param numAgents
+	 */
+	private void initialise(int numAgents) {
 		// create matrices
 		a = new ArrayList<Matrix>(sizes.length);
 		z = new ArrayList<Matrix>(sizes.length);
@@ -101,12 +136,9 @@ public class QNetwork {
 			delta.add(Matrix.makeZero(sizes[i], 1));
 		}
 
-		w = new ArrayList<Matrix>(weights.length);
-		nablaW = new ArrayList<Matrix>(weights.length);
-		w.add(null);
+		nablaW = new ArrayList<Matrix>(layers);
 		nablaW.add(null);
-		for (int i = 1; i < weights.length; i++) {
-			w.add(Matrix.rows(weights[i]));
+		for (int i = 1; i < layers; i++) {
 			nablaW.add(Matrix.makeZero(sizes[i], sizes[i - 1]));
 		}
 
@@ -160,13 +192,14 @@ public class QNetwork {
 	}
 
 	/**
-	 * Compute 1 / (1 + e^(-z))
+	 * Compute 1 / (1 + e^(-z)), exactly or from a table.
 	 * 
 	 * @param z
 	 * @return
+	 * @see Sigmoid
 	 */
-	private double sigmoid(double z) {
-		return 1.0 / (1.0 + Math.exp(-z));
+	private static double sigmoid(double z) {
+		return Sigmoid.get(z);
 	}
 
 	/**
@@ -216,12 +249,7 @@ public class QNetwork {
 	 * @return
 	 */
 	private double[] inputProcessing(SAPair<Double> saPair) {
-		double[] inputs = new double[saPair.state.size() + 1];
-		for (int i = 0; i < saPair.state.size(); i++) {
-			inputs[i] = sigmoid(saPair.state.get(i));
-		}
-		inputs[saPair.state.size()] = 1;
-		return inputs;
+		return processInputs(saPair.state);
 	}
 
 	/**
@@ -251,6 +279,41 @@ public class QNetwork {
 		return this.z.get(2).get(0, 0);
 	}
 
+	/**
+	 * Get the outputs for a batch of input states at once. The weights are
+	 * read once for the whole batch, rather than once per state. Gives the
+	 * same outputs as calling get for each state.
+	 * 
+	 * @param inputs
+	 *            Input activations for each state, as given by
+	 *            processInputs.
+	 * @return Output for each state.
+	 */
+	public double[] getBatch(double[][] inputs) {
+		Matrix hidden = sigmoidMatrix(w.get(1).multiplyRight(Matrix.columns(inputs)));
+		Matrix outputs = w.get(2).multiplyRight(hidden);
+		double[] qs = new double[inputs.length];
+		for (int i = 0; i < qs.length; i++) {
+			qs[i] = outputs.get(0, i);
+		}
+		return qs;
+	}
+
+	/**
+	 * Convert a raw state to the input activations used by getBatch.
+	 * 
+	 * @param state
+	 * @return
+	 */
+	public static double[] processInputs(List<Double> state) {
+		double[] inputs = new double[state.size() + 1];
+		for (int i = 0; i < state.size(); i++) {
+			inputs[i] = sigmoid(state.get(i));
+		}
+		inputs[state.size()] = 1;
+		return inputs;
+	}
+
 	/**
 	 * Accumulate eligibilities for a given state-action pair for a given agent.
 	 * 
@@ -298,6 +361,51 @@ public class QNetwork {
 		}
 	}
 
+	/**
+	 * Write the size and weights of this network.
+	 * 
+	 * @param out
+	 * @throws IOException
+	 */
+	public void write(DataOutputStream out) throws IOException {
+		out.writeInt(layers);
+		for (int size : sizes) {
+			out.writeInt(size);
+		}
+		for (int l = 1; l < layers; l++) {
+			Matrix weights = w.get(l);
+			for (int j = 0; j < weights.countRows(); j++)
+				for (int k = 0; k < weights.countColumns(); k++)
+					out.writeDouble(weights.get(j, k));
+		}
+	}
+
+	/**
+	 * Replace the weights of this network with those written by write.
+	 * 
+	 * @param in
+	 * @throws IOException
+	 *             If the written network is a different size.
+	 */
+	public void read(DataInputStream in) throws IOException {
+		int[] readSizes = new int[in.readInt()];
+		for (int i = 0; i < readSizes.length; i++) {
+			readSizes[i] = in.readInt();
+		}
+		if (!Arrays.equals(readSizes, sizes)) {
+			throw new IOException("Incorrect network size (given " + Arrays.toString(readSizes)
+					+ ", expected " + Arrays.toString(sizes) + ")");
+		}
+
+		for (int l = 1; l < layers; l++) {
+			double[][] weights = new double[sizes[l]][sizes[l - 1]];
+			for (int j = 0; j < weights.length; j++)
+				for (int k = 0; k < weights[j].length; k++)
+					weights[j][k] = in.readDouble();
+			w.set(l, Matrix.rows(weights));
+		}
+	}
+
 	@Override
 	public String toString() {
 		String s = "";
@@ -1,5 +1,12 @@
 package learner;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedList;
@@ -43,6 +50,17 @@ public class SarsaLambda implements Learner {
 	 */
 	private List<Integer> timeSteps;
 
+	/**
+	 * Each agent's sampler, so agents choose actions from independent streams
+	 * of random numbers.
+	 */
+	private ActionSampler[] samplers;
+
+	/**
+	 * Timer of learning updates, or null to not time them.
+	 */
+	private UpdateTimer profiler;
+
 	/**
 	 * Constructor for a Sarsa learner.
 	 * 
@@ -64,6 +82,7 @@ public class SarsaLambda implements Learner {
 		this.decayedEpsilon = settings.epsilon;
 		this.decayedT = settings.T;
 
+		this.setSampler(new ActionSampler(settings.numOutputs));
 		this.reset();
 	}
 
@@ -85,9 +104,92 @@ public class SarsaLambda implements Learner {
 		this.decayedEpsilon = settings.epsilon;
 		this.decayedT = settings.T;
 
+		this.setSampler(new ActionSampler(settings.numOutputs));
+		this.reset();
+	}
+
+	/**
+	 * Create a learner using a given Q-function, with decayed variables taken
+	 * from another learner, choosing actions from a given seed.
+	 * 
+	 * @param sl
+	 * @param qFunction
+	 * @param seed
+	 */
+	private SarsaLambda(SarsaLambda sl, FunctionApproximator qFunction, long seed) {
+		this.settings = sl.settings;
+		this.qFunction = qFunction;
+
+		this.decayedAlpha = sl.decayedAlpha;
+		this.decayedLambda = sl.decayedLambda;
+		this.decayedEpsilon = sl.decayedEpsilon;
+		this.decayedT = sl.decayedT;
+
+		this.setSampler(new ActionSampler(settings.numOutputs, seed));
+		this.reset();
+	}
+
+	/**
+	 * Take a snapshot of this learner. The snapshot evaluates states exactly as
+	 * this learner currently does, but is independent of it, so can be used by
+	 * another thread while this learner continues to learn. Must be called from
+	 * the thread updating this learner, or on a learner no thread updates, as
+	 * taking a snapshot only reads this learner.
+	 * 
+	 * @param seed
+	 *            Seed the snapshot chooses actions from, so snapshots taken by
+	 *            different threads don't share random numbers.
+	 * @return Copy of this learner's current Q-function.
+	 */
+	public SarsaLambda snapshot(long seed) {
+		return new SarsaLambda(this, qFunction.copy(settings.numAgents), seed);
+	}
+
+	/**
+	 * Save this learner's settings and Q-function to a file.
+	 * 
+	 * @param file
+	 * @throws IOException
+	 */
+	public void save(String file) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+			settings.write(out);
+			qFunction.write(out);
+		}
+	}
+
+	/**
+	 * Replace this learner's Q-function with one saved by save, keeping this
+	 * learner's settings. The saved learner must have the same inputs, outputs
+	 * and hidden nodes.
+	 * 
+	 * @param file
+	 * @throws IOException
+	 */
+	public void load(String file) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			Settings.read(in);
+			qFunction.read(in);
+		}
 		this.reset();
 	}
 
+	/**
+	 * Create a learner saved by save, with the settings it was saved with.
+	 * 
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	public static SarsaLambda read(String file) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			SarsaLambda learner = new SarsaLambda(Settings.read(in));
+			learner.qFunction.read(in);
+			learner.reset();
+			return learner;
+		}
+	}
+
 	/**
 	 * Convert a queue of memories to a list to be used by the function
 	 * approximator.
@@ -107,9 +209,16 @@ public class SarsaLambda implements Learner {
 		return state;
 	}
 
+	/**
+	 * Add the current state to an agent's memory, and get the full state
+	 * including memory to be given to the function approximator.
+	 * 
+	 * @param currentState
+	 * @param agentNum
+	 * @return Full state, or null if the agent's memory is not yet full.
+	 */
 	@SuppressWarnings("unchecked")
-	@Override
-	public int getAction(List<Double> currentState, double reward, int agentNum) {
+	private List<Double> remember(List<Double> currentState, int agentNum) {
 
 		// update memory
 		timeSteps.set(agentNum, timeSteps.get(agentNum) + 1);
@@ -121,63 +230,99 @@ public class SarsaLambda implements Learner {
 		// if memory not full, exit
 		for (Object m : memory.toArray()) {
 			if (((Collection<? extends Double>) m).contains(null))
-				return 0;
+				return null;
 		}
 
 		// get current state including memory
 		List<Double> state = memoryToState(memory.get(agentNum));
 		state.addAll(currentState);
+		return state;
+	}
 
-		// select max Q
-		double qMax = 0;
-		int actionMax = 0;
-		double[] Q = new double[settings.numOutputs];
-		for (int i = 0; i < settings.numOutputs; i++) {
-			SAPair<Double> sa = new SAPair<Double>(state, i);
-			Q[i] = qFunction.get(sa);
+	/**
+	 * Give every agent a sampler split from the given one.
+	 * 
+	 * @param sampler
+	 */
+	private void setSampler(ActionSampler sampler) {
+		this.samplers = new ActionSampler[settings.numAgents];
+		for (int i = 0; i < samplers.length; i++)
+			samplers[i] = sampler.split();
+	}
 
-			if (Q[i] > qMax) {
-				qMax = Q[i];
-				actionMax = i;
-			}
-		}
+	/**
+	 * Seed the random numbers every agent chooses its actions with, so the
+	 * same Q values always give the same actions.
+	 * 
+	 * @param seed
+	 */
+	public void setSeed(long seed) {
+		setSampler(new ActionSampler(settings.numOutputs, seed));
+	}
 
-		// exploration policy
-		// XXX to change this to Q-learning, move this section to the end (just
-		// after update)
-		// Boltzmann distribution strategy
-		double[] p = new double[settings.numOutputs];
-		double totalP = 0;
-		for (int i = 0; i < settings.numOutputs; i++) {
-			p[i] = Math.exp(Q[i] / decayedT);
-			totalP += p[i];
-		}
-		for (int i = 0; i < settings.numOutputs; i++) {
-			p[i] /= totalP;
-			if (i > 0) {
-				p[i] += p[i - 1];
-			}
-		}
-		double r = Math.random();
-		for (int i = 0; i < settings.numOutputs; i++) {
-			if (r < p[i]) {
-				actionMax = i;
-				qMax = Q[i];
-				break;
-			}
-		}
+	/**
+	 * Choose an agent's action given the Q value of every action, using the
+	 * exploration policy: Boltzmann distribution with epsilon greedy.
+	 * 
+	 * @param Q
+	 * @param agentNum
+	 * @return Action to perform.
+	 */
+	private int chooseAction(double[] Q, int agentNum) {
+		// XXX to change this to Q-learning, choose the action after the update
+		return samplers[agentNum].choose(Q, decayedT, decayedEpsilon);
+	}
+
+	@Override
+	public int getAction(List<Double> currentState, double reward, int agentNum) {
+
+		List<Double> state = remember(currentState, agentNum);
+		if (state == null)
+			return 0;
 
-		// epsilon greedy strategy
-		if (Math.random() < decayedEpsilon) {
-			actionMax = (int) (Math.random() * settings.numOutputs);
-			qMax = Q[actionMax];
+		double[] Q = samplers[agentNum].values();
+		for (int i = 0; i < settings.numOutputs; i++) {
+			SAPair<Double> sa = new SAPair<Double>(state, i);
+			Q[i] = qFunction.get(sa);
 		}
+		int action = chooseAction(Q, agentNum);
 
 		// Perform the update equation
-		forceAction(state, reward, agentNum, actionMax);
+		forceAction(state, reward, agentNum, action);
 
 		// return action to do
-		return actionMax;
+		return action;
+	}
+
+	/**
+	 * Evaluates every agent's state in one batch before choosing actions and
+	 * updating, so actions are chosen using the Q-function as it was at the
+	 * start of the batch rather than after earlier agents' updates.
+	 */
+	@Override
+	public int[] getActions(List<List<Double>> currentStates, double[] rewards, int[] agentNums) {
+		int[] actions = new int[agentNums.length];
+		List<List<Double>> states = new ArrayList<List<Double>>(agentNums.length);
+		for (int i = 0; i < agentNums.length; i++) {
+			states.add(remember(currentStates.get(i), agentNums[i]));
+		}
+
+		// evaluate every full state at once
+		List<List<Double>> batch = new ArrayList<List<Double>>(agentNums.length);
+		for (List<Double> state : states) {
+			if (state != null)
+				batch.add(state);
+		}
+		double[][] Q = qFunction.getAll(batch, settings.numOutputs);
+
+		int b = 0;
+		for (int i = 0; i < agentNums.length; i++) {
+			if (states.get(i) == null)
+				continue;
+			actions[i] = chooseAction(Q[b++], agentNums[i]);
+			forceAction(states.get(i), rewards[i], agentNums[i], actions[i]);
+		}
+		return actions;
 	}
 
 	@Override
@@ -256,6 +401,8 @@ public class SarsaLambda implements Learner {
 
 		// can only update once we have had previous experiences
 		if (saPrev != null) {
+			long learnStart = profiler == null ? 0 : System.nanoTime();
+
 			// update eligibilities for previous state-action pair
 			qFunction.accumulateEligibilities(agentNum, saPrev);
 
@@ -265,6 +412,9 @@ public class SarsaLambda implements Learner {
 			double delta = reward + settings.gamma * Q - qFunction.get(saPrev);
 			qFunction.update(agentNum, decayedAlpha, delta);
 			qFunction.degradeEligibilities(agentNum, settings.gamma, settings.lambda);
+
+			if (profiler != null)
+				profiler.recordUpdate(learnStart);
 		}
 
 		// update previous SAPair
@@ -277,6 +427,17 @@ public class SarsaLambda implements Learner {
 		degradeEpsilon(settings.epsilonDecayRate);
 	}
 
+	/**
+	 * Set the timer of learning updates, usually the profiler of the game
+	 * this learner plays.
+	 * 
+	 * @param profiler
+	 *            Timer to use, or null to not time updates.
+	 */
+	public void setProfiler(UpdateTimer profiler) {
+		this.profiler = profiler;
+	}
+
 	@Override
 	public String toString() {
 		return qFunction.toString();
@@ -1,5 +1,9 @@
 package learner;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
 /**
  * Class to store possible settings for a SARSALearner.
  * 
@@ -238,6 +242,57 @@ public class Settings {
 				epsilonDecayRate, numAgents, numInputs, numOutputs, memoryInterval, memoryLength);
 	}
 
+	/**
+	 * Write these settings to a stream, so they can be read back by read.
+	 * 
+	 * @param out
+	 * @throws IOException
+	 */
+	public void write(DataOutputStream out) throws IOException {
+		out.writeInt(hiddenNodes);
+		out.writeDouble(alpha);
+		out.writeDouble(gamma);
+		out.writeDouble(lambda);
+		out.writeDouble(T);
+		out.writeDouble(epsilon);
+		out.writeDouble(alphaDecayRate);
+		out.writeDouble(lambdaDecayRate);
+		out.writeDouble(TDecayRate);
+		out.writeDouble(epsilonDecayRate);
+		out.writeInt(numAgents);
+		out.writeInt(numInputs);
+		out.writeInt(numOutputs);
+		out.writeInt(memoryInterval);
+		out.writeInt(memoryLength);
+	}
+
+	/**
+	 * Read settings written by write.
+	 * 
+	 * @param in
+	 * @return
+	 * @throws IOException
+	 */
+	public static Settings read(DataInputStream in) throws IOException {
+		int hiddenNodes = in.readInt();
+		double alpha = in.readDouble();
+		double gamma = in.readDouble();
+		double lambda = in.readDouble();
+		double T = in.readDouble();
+		double epsilon = in.readDouble();
+		double alphaDecayRate = in.readDouble();
+		double lambdaDecayRate = in.readDouble();
+		double TDecayRate = in.readDouble();
+		double epsilonDecayRate = in.readDouble();
+		int numAgents = in.readInt();
+		int numInputs = in.readInt();
+		int numOutputs = in.readInt();
+		int memoryInterval = in.readInt();
+		int memoryLength = in.readInt();
+		return new Settings(hiddenNodes, alpha, gamma, lambda, T, epsilon, alphaDecayRate, lambdaDecayRate, TDecayRate,
+				epsilonDecayRate, numAgents, numInputs, numOutputs, memoryInterval, memoryLength);
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
@@ -0,0 +1,98 @@
+package learner;
+
+/**
+ * Sigmoid function 1 / (1 + e^(-z)), used as the activation of every input
+ * and hidden neuron of a QNetwork. Computed either exactly, or by linear
+ * interpolation in a table of exact values, which avoids calling Math.exp.
+ * 
+ * The table covers -range to range in steps of 1 / scale, with the sigmoid
+ * taken as 0 or 1 outside it. Interpolation is out by at most h^2 / 8 times
+ * the largest second derivative of the sigmoid, 1 / (6 sqrt(3)), where h is
+ * the step, and the sigmoid is within e^(-range) of 0 or 1 outside the table,
+ * so the table is never more than tableError from the exact sigmoid. Inputs
+ * on a step, such as the saturated +-10 inputs of the games, are exact.
+ * 
+ * @author Alex Braithwaite
+ * 
+ */
+public class Sigmoid {
+
+	private static final double range = 16;
+	private static final double scale = 64;
+
+	/**
+	 * Largest difference between the table and the exact sigmoid.
+	 */
+	public static final double tableError = 3e-6;
+
+	private static final double[] table = new double[(int) (2 * range * scale) + 1];
+
+	static {
+		for (int i = 0; i < table.length; i++)
+			table[i] = exact(i / scale - range);
+	}
+
+	/**
+	 * Whether every network uses the table. Exact by default; set once at
+	 * startup, before any network is used.
+	 */
+	private static volatile boolean useTable = false;
+
+	private Sigmoid() {
+	}
+
+	/**
+	 * Choose how the sigmoid is computed by every network. Call at startup,
+	 * before any network is used, as networks learning while it changes would
+	 * mix the two.
+	 * 
+	 * @param useTable
+	 *            True to interpolate in the table, false to compute exactly.
+	 */
+	public static void setUseTable(boolean useTable) {
+		Sigmoid.useTable = useTable;
+	}
+
+	public static boolean getUseTable() {
+		return useTable;
+	}
+
+	/**
+	 * Compute the sigmoid function, as chosen by setUseTable.
+	 * 
+	 * @param z
+	 * @return
+	 */
+	public static double get(double z) {
+		return useTable ? table(z) : exact(z);
+	}
+
+	/**
+	 * Compute 1 / (1 + e^(-z))
+	 * 
+	 * @param z
+	 * @return
+	 */
+	public static double exact(double z) {
+		return 1.0 / (1.0 + Math.exp(-z));
+	}
+
+	/**
+	 * Compute the sigmoid function to within tableError by interpolating in
+	 * the table.
+	 * 
+	 * @param z
+	 * @return
+	 */
+	public static double table(double z) {
+		if (z >= range)
+			return 1;
+		if (z <= -range)
+			return 0;
+		double x = (z + range) * scale;
+		int i = (int) x;
+		double f = x - i;
+		return table[i] + f * (table[i + 1] - table[i]);
+	}
+
+}
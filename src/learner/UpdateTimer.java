@@ -0,0 +1,20 @@
+package learner;
+
+/**
+ * Receives the time taken by each learning update, so a game's profiler can
+ * time its learner without the learner depending on the game.
+ * 
+ * @author Alex Braithwaite
+ * 
+ */
+public interface UpdateTimer {
+
+	/**
+	 * Record the time taken by a learning update.
+	 * 
+	 * @param start
+	 *            Time the update started, from System.nanoTime().
+	 */
+	public void recordUpdate(long start);
+
+}
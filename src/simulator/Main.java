@@ -2,8 +2,9 @@ package simulator;
 
 import java.io.FileNotFoundException;
 
-import demolition.DemolitionGame;
+import demolition.DemolitionConfig;
 import learner.Settings;
+import learner.Sigmoid;
 
 public class Main {
 
@@ -16,6 +17,9 @@ public class Main {
 	 */
 	public static void main(String[] args) throws FileNotFoundException {
 
+		// XXX sigmoid: exact, or interpolated in a table
+		Sigmoid.setUseTable(false);
+
 		String gameType = "Demolition";
 		// String gameType = "Backgammon";
 		// String gameType = "Trading";
@@ -26,8 +30,8 @@ public class Main {
 				epsilonDecayRate = 0;
 
 		if (gameType.equals("Demolition")) {
-			numAgents = DemolitionGame.numAgents;
-			numInputs = DemolitionGame.sensorsTotal;
+			numAgents = DemolitionConfig.defaults().numAgents;
+			numInputs = DemolitionConfig.defaults().sensorsTotal;
 			numOutputs = 12;
 			memoryInterval = 15;
 			memoryLength = 0;
@@ -2,6 +2,7 @@ package simulator;
 
 import java.io.BufferedReader;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
@@ -21,6 +22,9 @@ import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.math3.distribution.TDistribution;
 
+import Backgammon.BearoffDatabase;
+import demolition.DemolitionConfig;
+import demolition.MapPool;
 import learner.Settings;
 
 /**
@@ -34,6 +38,52 @@ public class SimulationRunManager2 {
 
 	private String simulationName;
 
+	// XXX draw or not: drawing opens a window per simulation and limits each
+	// to the frame rate, so sweeps normally run headless
+	private static final boolean toDraw = false;
+
+	// XXX profile or not: profiling logs each Demolition trial's speed,
+	// allocation rate and time spent in each phase of a time step
+	private static final boolean profile = false;
+
+	// XXX map pool: Demolition workers play the same maps in turn, generated
+	// from the seed, or a new map every trial if the pool size is 0
+	private static final int mapPoolSize = 1000;
+	private static final long mapSeed = 0;
+
+	// XXX lockstep or not: Demolition agents all act against the previous
+	// time step's world, resolved in parallel, or one after another
+	private static final boolean lockstep = false;
+
+	// XXX batched environments: each Demolition worker plays this many games
+	// at once with one learner, evaluating all their agents in one batch
+	private static final int environments = 1;
+
+	// XXX Backgammon: AI vs AI games played concurrently per worker, games
+	// learnt from before they get new weights, and games in each match
+	private static final int selfPlayWorkers = 1;
+	private static final int selfPlayStaleness = 1;
+	private static final int matchLength = 1;
+
+	// XXX Backgammon search: deepest search for the AI's moves, 1 to choose
+	// greedily, and time allowed per move in milliseconds, 0 for no limit;
+	// self-play workers above always choose greedily
+	private static final int searchPlies = 1;
+	private static final long searchTimeBudget = 0;
+
+	// XXX Backgammon bear-off database: file generated by BearoffDatabase,
+	// used to play and learn from races, or null to use the learner throughout
+	private static final String bearoffFile = null;
+
+	// XXX save weights or not: each worker saves its learner's settings and
+	// weights to a numbered file next to the log when it finishes
+	private static final boolean saveWeights = false;
+	private int workersStarted = 0;
+
+	// XXX record replays: each Demolition worker records every this many
+	// trials to numbered replay files next to the log, or none if 0
+	private static final int recordEvery = 0;
+
 	/**
 	 * Return all the possible combinations of Settings between a minimum and
 	 * maximum, using a given divisor.
@@ -146,10 +196,12 @@ public class SimulationRunManager2 {
 	 * @throws InterruptedException
 	 * @throws FileNotFoundException
 	 * @throws UnsupportedEncodingException
+	 * @throws IOException
+	 *             If the bear-off database can't be loaded.
 	 */
 	@SuppressWarnings("unused")
 	public void optimise(Settings min, Settings max, int simulationLength, String gameType)
-			throws InterruptedException, FileNotFoundException, UnsupportedEncodingException {
+			throws InterruptedException, FileNotFoundException, UnsupportedEncodingException, IOException {
 
 		String startTime = SimulationRunManager2.getDateTime().replace(" ", "-").replace(":", "-");
 		simulationName = "log/" + gameType + "_" + startTime + "_OPTIMISE";
@@ -158,6 +210,9 @@ public class SimulationRunManager2 {
 		@SuppressWarnings("resource")
 		PrintWriter resultFile = new PrintWriter(simulationName + ".result", "UTF-8");
 
+		MapPool maps = mapPool(gameType);
+		BearoffDatabase bearoff = bearoffDatabase(gameType);
+
 		int depth = 0;
 		int repeats = 0;
 		int totalTrials = 0;
@@ -233,7 +288,8 @@ public class SimulationRunManager2 {
 					for (Settings s : settingsList) {
 						totalTrials++;
 						SimulationRunner worker = new SimulationRunner(simulationLength, simulationLength, s, gameType,
-								logFile);
+								logFile, toDraw, profile);
+						configure(worker, maps, bearoff);
 						workers.add(worker);
 						executor.execute(worker);
 					}
@@ -373,9 +429,11 @@ public class SimulationRunManager2 {
 	 * @param gameType
 	 * @throws FileNotFoundException
 	 * @throws UnsupportedEncodingException
+	 * @throws IOException
+	 *             If the bear-off database can't be loaded.
 	 */
 	public void explore(Settings min, Settings max, int divisor, int simulationLength, int repeats, String gameType)
-			throws FileNotFoundException, UnsupportedEncodingException {
+			throws FileNotFoundException, UnsupportedEncodingException, IOException {
 
 		String startTime = SimulationRunManager2.getDateTime().replace(" ", "-").replace(":", "-");
 		simulationName = "log/" + gameType + "_" + startTime + "_EXPLORE";
@@ -402,6 +460,8 @@ public class SimulationRunManager2 {
 		resultFile.flush();
 
 		List<Settings> settingsList = settingCombinations(min, max, divisor);
+		MapPool maps = mapPool(gameType);
+		BearoffDatabase bearoff = bearoffDatabase(gameType);
 
 		// use t distribution to calculate t_a, where P(T > t) = a
 		// for use later in calculating confidence intervals
@@ -425,7 +485,9 @@ public class SimulationRunManager2 {
 			List<SimulationRunner> settingWorkers = new ArrayList<SimulationRunner>(repeats);
 
 			for (int i = 0; i < repeats; i++) {
-				SimulationRunner worker = new SimulationRunner(simulationLength, totalDataPoints, s, gameType, logFile);
+				SimulationRunner worker = new SimulationRunner(simulationLength, totalDataPoints, s, gameType, logFile,
+						toDraw, profile);
+				configure(worker, maps, bearoff);
 				executor.execute(worker);
 				settingWorkers.add(worker);
 			}
@@ -556,6 +618,57 @@ public class SimulationRunManager2 {
 		resultFile.close();
 	}
 
+	/**
+	 * Give a worker the options set above, numbering its weights file.
+	 * 
+	 * @param worker
+	 * @param maps
+	 *            Maps the worker plays, from mapPool.
+	 * @param bearoff
+	 *            Database the worker uses, from bearoffDatabase.
+	 */
+	private void configure(SimulationRunner worker, MapPool maps, BearoffDatabase bearoff) {
+		worker.setMapPool(maps);
+		worker.setBearoffDatabase(bearoff);
+		worker.setLockstep(lockstep);
+		worker.setEnvironments(environments);
+		worker.setSelfPlay(selfPlayWorkers, selfPlayStaleness);
+		worker.setMatchLength(matchLength);
+		worker.setSearch(searchPlies, searchTimeBudget);
+		workersStarted++;
+		if (saveWeights)
+			worker.setWeightsFile(simulationName + "_" + workersStarted + ".weights");
+		if (recordEvery > 0)
+			worker.setRecording(recordEvery, simulationName + "_" + workersStarted);
+	}
+
+	/**
+	 * Generate the maps every worker of a sweep plays.
+	 * 
+	 * @param gameType
+	 * @return Map pool, or null if the game isn't Demolition or each trial
+	 *         has a new map.
+	 */
+	private static MapPool mapPool(String gameType) {
+		if (!gameType.equals("Demolition") || mapPoolSize < 1)
+			return null;
+		return new MapPool(DemolitionConfig.defaults(), mapPoolSize, mapSeed);
+	}
+
+	/**
+	 * Load the bear-off database every worker of a sweep uses.
+	 * 
+	 * @param gameType
+	 * @return Database, or null if the game isn't Backgammon or there is no
+	 *         database file.
+	 * @throws IOException
+	 */
+	private static BearoffDatabase bearoffDatabase(String gameType) throws IOException {
+		if (!gameType.equals("Backgammon") || bearoffFile == null)
+			return null;
+		return BearoffDatabase.load(bearoffFile);
+	}
+
 	/**
 	 * Get a formatted data and time.
 	 * 
@@ -1,11 +1,18 @@
 package simulator;
 
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.List;
 
 import Backgammon.BackgammonGame;
+import Backgammon.BearoffDatabase;
+import demolition.DemolitionConfig;
 import demolition.DemolitionGame;
+import demolition.DemolitionVecEnv;
+import demolition.MapPool;
+import demolition.ReplayRecorder;
+import demolition.TickProfiler;
 import learner.SarsaLambda;
 import learner.Settings;
 import trader.TradingGame;
@@ -24,6 +31,20 @@ public class SimulationRunner implements Runnable {
 	public Settings settings;
 	public List<Double> simResult;
 	private PrintWriter logFile;
+	private boolean toDraw;
+	private boolean profile;
+	private MapPool mapPool;
+	private boolean lockstep = false;
+	private int environments = 1;
+	private int selfPlayWorkers = 1;
+	private int selfPlayStaleness = 1;
+	private int matchLength = 1;
+	private int searchPlies = 1;
+	private long searchTimeBudget = 0;
+	private BearoffDatabase bearoffDatabase;
+	private String weightsFile;
+	private int recordEvery = 0;
+	private String replayPrefix;
 
 	/**
 	 * Create a simulation Runner to store all the data and ready to run the
@@ -34,14 +55,141 @@ public class SimulationRunner implements Runnable {
 	 * @param settings
 	 * @param gameType
 	 * @param logFile
+	 * @param toDraw
+	 *            Whether to draw the games, or run them headless.
+	 * @param profile
+	 *            Whether to profile Demolition games, logging the speed and
+	 *            phase times of each trial.
 	 */
 	public SimulationRunner(int numGames, int totalDataPoints, Settings settings, String gameType,
-			PrintWriter logFile) {
+			PrintWriter logFile, boolean toDraw, boolean profile) {
 		this.numGames = numGames;
 		this.totalDataPoints = totalDataPoints;
 		this.settings = settings;
 		this.gameType = gameType;
 		this.logFile = logFile;
+		this.toDraw = toDraw;
+		this.profile = profile;
+	}
+
+	/**
+	 * Set the maps Demolition games play in turn, shared with other runners so
+	 * every setting is played on the same maps.
+	 * 
+	 * @param mapPool
+	 *            Maps to play, or null for a new map every trial.
+	 */
+	public void setMapPool(MapPool mapPool) {
+		this.mapPool = mapPool;
+	}
+
+	/**
+	 * Set whether agents of Demolition games act in lockstep.
+	 * 
+	 * @param lockstep
+	 * @see DemolitionGame#setLockstep(boolean)
+	 */
+	public void setLockstep(boolean lockstep) {
+		this.lockstep = lockstep;
+	}
+
+	/**
+	 * Set the number of Demolition games played at once by one learner, which
+	 * evaluates every game's agents in one batch each time step. The learner
+	 * is set up for environments times settings.numAgents agents, and each
+	 * data point is the mean reward of the games. Batched games are not drawn
+	 * or profiled.
+	 * 
+	 * @param environments
+	 *            Number of games, or 1 to play a single game.
+	 * @see DemolitionVecEnv
+	 */
+	public void setEnvironments(int environments) {
+		if (environments < 1)
+			throw new IllegalArgumentException("Must have at least 1 environment: " + environments);
+		this.environments = environments;
+	}
+
+	/**
+	 * Set how Backgammon games play AI vs AI games.
+	 * 
+	 * @param workers
+	 *            Number of AI vs AI games played concurrently, 1 to play
+	 *            them one at a time.
+	 * @param staleness
+	 *            Number of games the learner may learn from before the
+	 *            concurrent games are given its latest weights.
+	 * @see BackgammonGame#BackgammonGame(boolean, int, int)
+	 */
+	public void setSelfPlay(int workers, int staleness) {
+		this.selfPlayWorkers = workers;
+		this.selfPlayStaleness = staleness;
+	}
+
+	/**
+	 * Set the number of games in each Backgammon match.
+	 * 
+	 * @param matchLength
+	 * @see BackgammonGame#setMatchLength(int)
+	 */
+	public void setMatchLength(int matchLength) {
+		this.matchLength = matchLength;
+	}
+
+	/**
+	 * Set the search Backgammon games use to choose the AI's moves.
+	 * 
+	 * @param plies
+	 *            Deepest search to perform, 1 for a greedy search.
+	 * @param timeBudget
+	 *            Time allowed per move in milliseconds, 0 for no limit.
+	 * @see BackgammonGame#setSearch(int, long)
+	 */
+	public void setSearch(int plies, long timeBudget) {
+		this.searchPlies = plies;
+		this.searchTimeBudget = timeBudget;
+	}
+
+	/**
+	 * Set the bear-off database Backgammon games use to play and learn from
+	 * races, shared with other runners.
+	 * 
+	 * @param bearoffDatabase
+	 *            Database to use, or null to use the learner throughout.
+	 * @see BackgammonGame#setBearoffDatabase(BearoffDatabase)
+	 */
+	public void setBearoffDatabase(BearoffDatabase bearoffDatabase) {
+		this.bearoffDatabase = bearoffDatabase;
+	}
+
+	/**
+	 * Save the learner's settings and weights once the simulation finishes,
+	 * for BackgammonEvaluator to load. Not saved for batched Demolition games.
+	 * 
+	 * @param weightsFile
+	 *            File to save to, or null to not save.
+	 * @see SarsaLambda#save(String)
+	 */
+	public void setWeightsFile(String weightsFile) {
+		this.weightsFile = weightsFile;
+	}
+
+	/**
+	 * Record every so many Demolition trials to replay files, for
+	 * ReplayViewer to play back. Each trial is recorded to prefix + "_trial" +
+	 * its number + ".replay". Not recorded while drawing, or for batched
+	 * games.
+	 * 
+	 * @param every
+	 *            Record trials whose number is a multiple of this, or 0 to not
+	 *            record.
+	 * @param prefix
+	 *            Start of the name of each replay file.
+	 * @see ReplayRecorder
+	 */
+	public void setRecording(int every, String prefix) {
+		this.recordEvery = every;
+		this.replayPrefix = prefix;
 	}
 
 	/**
@@ -61,28 +209,69 @@ public class SimulationRunner implements Runnable {
 		simResult = new ArrayList<Double>();
 
 		// create game to use
-		// XXX draw or not
-		boolean toDraw = true;
 		boolean printInfo = toDraw;
 		boolean printEndInfo = printInfo;
 
+		if (gameType.equals("Demolition") && environments > 1) {
+			runEnvironments();
+			logResult(printEndInfo);
+			return;
+		}
+
 		Game game = null;
 		if (gameType.equals("Demolition"))
 			game = new DemolitionGame(toDraw);
-		else if (gameType.equals("Backgammon"))
-			game = new BackgammonGame(toDraw);
-		else if (gameType.equals("Trading"))
+		else if (gameType.equals("Backgammon")) {
+			BackgammonGame backgammon = new BackgammonGame(toDraw, selfPlayWorkers, selfPlayStaleness);
+			backgammon.setMatchLength(matchLength);
+			backgammon.setSearch(searchPlies, searchTimeBudget);
+			backgammon.setBearoffDatabase(bearoffDatabase);
+			game = backgammon;
+		} else if (gameType.equals("Trading"))
 			game = new TradingGame();
 
 		game.setupGame();
+		if (game instanceof DemolitionGame) {
+			((DemolitionGame) game).setMapPool(mapPool);
+			((DemolitionGame) game).setLockstep(lockstep);
+		}
 
-		game.setLeaner(new SarsaLambda(settings));
+		SarsaLambda brain = new SarsaLambda(settings);
+		game.setLeaner(brain);
+
+		TickProfiler profiler = null;
+		if (profile && game instanceof DemolitionGame) {
+			profiler = new TickProfiler(true);
+			((DemolitionGame) game).setProfiler(profiler);
+			brain.setProfiler(profiler);
+		}
 
 		for (int trialNum = 1; trialNum <= numGames; trialNum++) {
 
+			// record the game if wanted
+			ReplayRecorder recorder = null;
+			if (recordEvery > 0 && trialNum % recordEvery == 0 && !toDraw && game instanceof DemolitionGame) {
+				String replayFile = replayPrefix + "_trial" + trialNum + ".replay";
+				try {
+					recorder = new ReplayRecorder((DemolitionGame) game, replayFile);
+					((DemolitionGame) game).setRenderer(recorder);
+					logFile.println("Recording trial " + trialNum + " (" + settings.toString() + ") to " + replayFile);
+				} catch (IOException e) {
+					logFile.println("Could not record trial " + trialNum + " to " + replayFile + ": " + e);
+				}
+			}
+
 			// run 1 game
 			double trialReward = game.runTrial();
 
+			if (recorder != null)
+				((DemolitionGame) game).setRenderer(null);
+
+			if (profiler != null) {
+				logFile.println("Trial " + trialNum + " (" + settings.toString() + "): " + profiler);
+				logFile.flush();
+			}
+
 			if (printInfo) {
 				System.out.println("Trial " + trialNum + ", Reward: " + trialReward);
 				System.out
@@ -93,6 +282,10 @@ public class SimulationRunner implements Runnable {
 										+ " used / " + (int) (Runtime.getRuntime().totalMemory() / 1000000)
 										+ " allocated / " + (int) (Runtime.getRuntime().maxMemory() / 1000000)
 										+ " total");
+				if (game instanceof DemolitionGame) {
+					System.out.println(((DemolitionGame) game).getPhaseTimes());
+					System.out.println(((DemolitionGame) game).getSensorCacheStats());
+				}
 			}
 
 			// add to data if necessary
@@ -104,11 +297,58 @@ public class SimulationRunner implements Runnable {
 
 		game.teardown();
 
+		if (weightsFile != null) {
+			try {
+				brain.save(weightsFile);
+				logFile.println("Saved weights for " + settings.toString() + " to " + weightsFile);
+			} catch (IOException e) {
+				logFile.println("Could not save weights to " + weightsFile + ": " + e);
+			}
+		}
+
+		logResult(printEndInfo);
+	}
+
+	/**
+	 * Play batched Demolition games, adding the mean reward of the games to
+	 * the results.
+	 */
+	private void runEnvironments() {
+		DemolitionConfig config = DemolitionConfig.defaults();
+		Settings s = settings;
+		Settings batched = new Settings(s.hiddenNodes, s.alpha, s.gamma, s.lambda, s.T, s.epsilon, s.alphaDecayRate,
+				s.lambdaDecayRate, s.TDecayRate, s.epsilonDecayRate, environments * s.numAgents, s.numInputs,
+				s.numOutputs, s.memoryInterval, s.memoryLength);
+		DemolitionVecEnv env = new DemolitionVecEnv(environments, new SarsaLambda(batched), config);
+		env.setMapPool(mapPool);
+		env.setLockstep(lockstep);
+
+		for (int trialNum = 1; trialNum <= numGames; trialNum++) {
+			double trialReward = 0;
+			for (double reward : env.runTrials())
+				trialReward += reward / environments;
+
+			// add to data if necessary
+			if (trialNum % Math.ceil(numGames * (1. / totalDataPoints)) == 0) {
+				simResult.add(trialReward);
+			}
+		}
+
+		env.teardown();
+	}
+
+	/**
+	 * Log the results of the finished simulation.
+	 * 
+	 * @param print
+	 *            Whether to also print them.
+	 */
+	private void logResult(boolean print) {
 		String toPrint = "";
 		toPrint += "\n" + SimulationRunManager2.getDateTime() + ":\n\tFinished with settings:\n\t\t"
 				+ settings.toString() + "\n\tFinal reward: " + simResult.get(simResult.size() - 1) + "\n\tRewards: "
 				+ simResult.toString();
-		if (printEndInfo) {
+		if (print) {
 			System.out.println(toPrint);
 		}
 		logFile.println(toPrint);
@@ -0,0 +1,69 @@
+package tests;
+
+import learner.ActionSampler;
+import learner.ActionSampler.AliasTable;
+
+/**
+ * Testing class for ActionSampler's alias tables. Builds tables for uniform,
+ * skewed and sparse distributions, samples each many times, and checks every
+ * action is chosen about as often as its probability, and actions with no
+ * weight never are.
+ * 
+ * Run with the number of samples per distribution.
+ * 
+ * @author Alex Braithwaite
+ * 
+ */
+public class AliasTableTester {
+
+	private static final long seed = 1;
+
+	/**
+	 * Number of standard deviations a frequency may be from its probability.
+	 */
+	private static final double tolerance = 5;
+
+	public static void main(String[] args) {
+		int samples = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+
+		double[][] distributions = { { 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1 },
+				{ 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12 }, { 100, 1, 0.5, 0.01, 10, 0.2 }, { 0, 3, 0, 1, 0, 0, 6 },
+				{ 0.9, 0.05, 0.05 }, { 5 } };
+
+		int failures = 0;
+		for (double[] weights : distributions) {
+			AliasTable table = new AliasTable(weights);
+			ActionSampler sampler = new ActionSampler(weights.length, seed);
+			int[] counts = new int[weights.length];
+			for (int i = 0; i < samples; i++)
+				counts[sampler.sample(table)]++;
+
+			double total = 0;
+			for (double w : weights)
+				total += w;
+			double worst = 0;
+			for (int a = 0; a < weights.length; a++) {
+				double p = weights[a] / total;
+				if (p == 0) {
+					if (counts[a] > 0) {
+						System.out.println("Action " + a + " has no weight but was chosen " + counts[a] + " times");
+						failures++;
+					}
+					continue;
+				}
+				double sd = Math.sqrt(samples * p * (1 - p));
+				double deviations = sd > 0 ? Math.abs(counts[a] - samples * p) / sd : 0;
+				worst = Math.max(worst, deviations);
+				if (deviations > tolerance) {
+					System.out.println(String.format("Action %d chosen %.5f of the time, expected %.5f", a,
+							counts[a] / (double) samples, p));
+					failures++;
+				}
+			}
+			System.out.println(String.format("%d actions: worst %.2f standard deviations", weights.length, worst));
+		}
+
+		System.out.println(failures == 0 ? "PASS" : "FAIL: " + failures + " frequencies wrong");
+	}
+
+}
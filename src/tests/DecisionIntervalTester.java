@@ -0,0 +1,70 @@
+package tests;
+
+import demolition.DemolitionConfig;
+import demolition.DemolitionGame;
+import demolition.MapPool;
+import learner.SarsaLambda;
+import learner.Settings;
+
+/**
+ * Testing class for the Demolition Game's decision interval. Trains a fresh
+ * learner with the shipped Demolition settings for each interval, and prints
+ * the games played per hour and the mean reward over the last games played.
+ * Every interval uses the same seeds for the game, the learner and the maps,
+ * so the intervals are compared on the same maps and respawns.
+ *
+ * Run with the number of games to play for each interval, and the number of
+ * last games to average the reward over.
+ *
+ * @author Alex Braithwaite
+ *
+ */
+public class DecisionIntervalTester {
+
+	private static final long seed = 1;
+
+	public static void main(String[] args) {
+		int games = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+		int last = args.length > 1 ? Integer.parseInt(args[1]) : Math.max(1, games / 4);
+		int[] intervals = { 1, 2, 4, 8 };
+
+		DemolitionConfig config = DemolitionConfig.defaults();
+		MapPool maps = new MapPool(config, games, seed);
+
+		for (int interval : intervals) {
+			Settings s = new Settings(20, 0.2578875171467764, 0.95255647698944, 0.3238726864076799,
+					0.037311385459533594, 0.008779149519890258, 0, 0, 0, 0, config.numAgents, config.sensorsTotal, 12,
+					15, 0);
+			DemolitionGame game = new DemolitionGame(false, config);
+			game.setSeed(seed);
+			game.setupGame();
+			game.setMapPool(maps);
+			SarsaLambda brain = new SarsaLambda(s);
+			brain.setSeed(seed);
+			game.setLeaner(brain);
+			game.setDecisionInterval(interval);
+
+			long start = System.nanoTime();
+			double[] rewards = new double[games];
+			for (int i = 0; i < games; i++) {
+				rewards[i] = game.runTrial();
+			}
+			double hours = (System.nanoTime() - start) / 3.6e12;
+			game.teardown();
+
+			// mean and standard error of the last games' rewards
+			int n = Math.min(last, games);
+			double sum = 0, sumSquares = 0;
+			for (int i = games - n; i < games; i++) {
+				sum += rewards[i];
+				sumSquares += rewards[i] * rewards[i];
+			}
+			double mean = sum / n;
+			double error = n > 1 ? Math.sqrt(Math.max(0, sumSquares / n - mean * mean) / (n - 1)) : 0;
+
+			System.out.println(String.format("Interval %d: %.0f games/hour, mean reward over last %d games %.4f +- %.4f",
+					interval, games / hours, n, mean, error));
+		}
+	}
+
+}
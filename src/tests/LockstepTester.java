@@ -0,0 +1,129 @@
+package tests;
+
+import java.util.List;
+
+import demolition.DemolitionConfig;
+import demolition.DemolitionGame;
+import demolition.MapPool;
+import demolitionEntities.Agent;
+import learner.Learner;
+
+/**
+ * Testing class for lockstep actions. Plays the same seeded lockstep games
+ * with agents handled in order on one thread and spread over several threads,
+ * and checks every trial's reward and every agent's final position, direction
+ * and health are the same.
+ * 
+ * Run with the number of trials and the number of threads to compare against
+ * one thread.
+ * 
+ * @author Alex Braithwaite
+ * 
+ */
+public class LockstepTester {
+
+	private static final long seed = 1;
+
+	public static void main(String[] args) {
+		int trials = args.length > 0 ? Integer.parseInt(args[0]) : 2;
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+		DemolitionConfig config = DemolitionConfig.defaults();
+		MapPool maps = new MapPool(config, trials, seed);
+
+		double[][] single = play(config, maps, trials, 1);
+		double[][] parallel = play(config, maps, trials, threads);
+
+		int mismatches = 0;
+		for (int i = 0; i < single.length; i++) {
+			for (int j = 0; j < single[i].length; j++) {
+				if (Double.compare(single[i][j], parallel[i][j]) != 0) {
+					System.out.println("FAIL: " + (i < trials ? "trial " + (i + 1) + " reward" : "agent state " + j)
+							+ " " + single[i][j] + " with 1 thread, " + parallel[i][j] + " with " + threads);
+					mismatches++;
+				}
+			}
+		}
+		if (mismatches == 0)
+			System.out.println("PASS: " + trials + " lockstep trials identical with 1 and " + threads + " threads");
+	}
+
+	/**
+	 * Play seeded lockstep trials.
+	 * 
+	 * @param config
+	 * @param maps
+	 * @param trials
+	 * @param threads
+	 * @return Reward of each trial, one row each, then the position,
+	 *         direction and health of every agent at the end.
+	 */
+	private static double[][] play(DemolitionConfig config, MapPool maps, int trials, int threads) {
+		DemolitionGame game = new DemolitionGame(false, config);
+		game.setAgentThreads(threads);
+		game.setLockstep(true);
+		game.setSeed(seed);
+		game.setupGame();
+		game.setMapPool(maps);
+		game.setLeaner(new HashLearner());
+
+		double[][] results = new double[trials + 1][];
+		for (int trial = 0; trial < trials; trial++)
+			results[trial] = new double[] { game.runTrial() };
+
+		double[] state = new double[5 * game.agents.size()];
+		for (int i = 0; i < game.agents.size(); i++) {
+			Agent a = game.agents.get(i);
+			state[5 * i] = a.getX();
+			state[5 * i + 1] = a.getY();
+			state[5 * i + 2] = a.getDirX();
+			state[5 * i + 3] = a.getDirY();
+			state[5 * i + 4] = a.getHealth();
+		}
+		results[trials] = state;
+		game.teardown();
+		return results;
+	}
+
+	/**
+	 * Learner choosing each action from a hash of the agent's inputs, so any
+	 * difference in what an agent sees changes what it does, without learning
+	 * anything.
+	 */
+	private static class HashLearner implements Learner {
+
+		private static final int numActions = 12;
+
+		@Override
+		public List<Double> evaluateState(List<Double> state) {
+			return null;
+		}
+
+		@Override
+		public int getAction(List<Double> state, double reward) {
+			return Math.abs(state.hashCode() % numActions);
+		}
+
+		@Override
+		public int getAction(List<Double> state, double reward, int agentNum) {
+			return getAction(state, reward);
+		}
+
+		@Override
+		public int[] getActions(List<List<Double>> states, double[] rewards, int[] agentNums) {
+			int[] actions = new int[agentNums.length];
+			for (int i = 0; i < actions.length; i++)
+				actions[i] = getAction(states.get(i), rewards[i]);
+			return actions;
+		}
+
+		@Override
+		public void forceAction(List<Double> state, double reward, int agentNum, int action) {
+		}
+
+		@Override
+		public void reset() {
+		}
+
+	}
+
+}
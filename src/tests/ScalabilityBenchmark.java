@@ -0,0 +1,174 @@
+package tests;
+
+import java.util.List;
+import java.util.Random;
+
+import demolition.DemolitionConfig;
+import demolition.DemolitionGame;
+import demolition.MapPool;
+import demolition.TickProfiler;
+import demolitionEntities.Agent;
+import learner.Learner;
+
+/**
+ * Benchmark of how the cost of a Demolition Game time step grows with the
+ * number of agents, walls, buildings and sensors. Each setting is played by a
+ * learner which does no learning, so only the game itself is timed, and
+ * prints the time steps per second, the time per sensor ray cast, the time
+ * spent resolving collisions per agent, and the memory allocated per time
+ * step by the game's thread and the threads sensing for it.
+ * 
+ * Every setting is played from the same seed, so runs play the same maps,
+ * bomb starts and respawns, and time the same trajectories. The world
+ * grows with the number of agents, keeping as many agents per pixel
+ * as the default settings. Run with the number of time steps per trial and
+ * the number of trials to time after one warm-up trial.
+ * 
+ * @author Alex Braithwaite
+ * 
+ */
+public class ScalabilityBenchmark {
+
+	/**
+	 * Seed of the maps played, the game's bomb starts and respawns, and the
+	 * actions chosen by the learner.
+	 */
+	private static final long seed = 1;
+
+	public static void main(String[] args) {
+		int gameLength = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+		int trials = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+
+		System.out.println("Agents");
+		for (int agents : new int[] { 24, 48, 96, 192, 384, 768, 1536 })
+			run(agents, 20, 0, 4, gameLength, trials);
+
+		System.out.println("Walls");
+		for (int walls : new int[] { 0, 20, 80, 320 })
+			run(24, walls, 0, 4, gameLength, trials);
+
+		System.out.println("Buildings");
+		for (int buildings : new int[] { 0, 5, 20 })
+			run(24, 20, buildings, 4, gameLength, trials);
+
+		System.out.println("Sensors");
+		for (int sensorsEachSide : new int[] { 1, 4, 8, 16 })
+			run(24, 20, 0, sensorsEachSide, gameLength, trials);
+	}
+
+	/**
+	 * Time games with the given settings, and print the results.
+	 * 
+	 * @param numAgents
+	 * @param numWalls
+	 * @param numBuildings
+	 * @param sensorsEachSide
+	 * @param gameLength
+	 *            Time steps in each trial.
+	 * @param trials
+	 *            Trials to time, after one warm-up trial.
+	 */
+	private static void run(int numAgents, int numWalls, int numBuildings, int sensorsEachSide, int gameLength,
+			int trials) {
+		DemolitionConfig defaults = DemolitionConfig.defaults();
+		double scale = Math.max(1, Math.sqrt(numAgents / (double) defaults.numAgents));
+		DemolitionConfig config = new DemolitionConfig.Builder()
+				.world((int) (defaults.worldX * scale), (int) (defaults.worldY * scale)).numAgents(numAgents)
+				.walls(numWalls, defaults.wallMinLength, defaults.wallMaxLength, numBuildings)
+				.sensors(sensorsEachSide, defaults.sensorAngle).gameLength(gameLength).build();
+
+		DemolitionGame game = new DemolitionGame(false, config);
+		game.setSeed(seed);
+		game.setupGame();
+		game.setMapPool(new MapPool(config, trials + 1, seed));
+		game.setLeaner(new RandomLearner(seed));
+		TickProfiler profiler = new TickProfiler(false);
+		game.setProfiler(profiler);
+
+		double ticksPerSecond = 0, nsPerRay = 0, collideNs = 0, bytesPerTick = 0;
+		for (int trial = 0; trial <= trials; trial++) {
+			long raysBefore = raysCast(game);
+			game.runTrial();
+			if (trial == 0)
+				continue;
+
+			double ticks = profiler.getTicksPerSecond();
+			long rays = raysCast(game) - raysBefore;
+			ticksPerSecond += ticks / trials;
+			nsPerRay += (rays == 0 ? 0 : profiler.getTimePerTick(TickProfiler.Phase.SENSE) * game.getTurn() / rays)
+					/ trials;
+			collideNs += profiler.getTimePerTick(TickProfiler.Phase.COLLIDE) / numAgents / trials;
+			bytesPerTick += (ticks == 0 ? 0 : profiler.getAllocationRate() / ticks) / trials;
+		}
+		game.teardown();
+
+		System.out.println(String.format(
+				"\tagents %d, walls %d, buildings %d, sensors %d: %.1f ticks/s, %.1f ns/ray, %.2f us collisions/agent, %.1f KB/tick allocated",
+				numAgents, numWalls, numBuildings, config.sensorsNumber, ticksPerSecond, nsPerRay, collideNs / 1000,
+				bytesPerTick / 1000));
+	}
+
+	/**
+	 * Get the number of sensor rays cast by all agents so far.
+	 * 
+	 * @param game
+	 * @return
+	 */
+	private static long raysCast(DemolitionGame game) {
+		long rays = 0;
+		for (Agent a : game.agents)
+			rays += a.getRaysCast();
+		return rays;
+	}
+
+	/**
+	 * Learner choosing actions at random from a fixed seed, without looking at
+	 * its inputs or learning anything.
+	 */
+	private static class RandomLearner implements Learner {
+
+		private static final int numActions = 12;
+
+		private final long seed;
+		private Random random;
+
+		public RandomLearner(long seed) {
+			this.seed = seed;
+			this.random = new Random(seed);
+		}
+
+		@Override
+		public List<Double> evaluateState(List<Double> state) {
+			return null;
+		}
+
+		@Override
+		public int getAction(List<Double> state, double reward) {
+			return random.nextInt(numActions);
+		}
+
+		@Override
+		public int getAction(List<Double> state, double reward, int agentNum) {
+			return random.nextInt(numActions);
+		}
+
+		@Override
+		public int[] getActions(List<List<Double>> states, double[] rewards, int[] agentNums) {
+			int[] actions = new int[agentNums.length];
+			for (int i = 0; i < actions.length; i++)
+				actions[i] = random.nextInt(numActions);
+			return actions;
+		}
+
+		@Override
+		public void forceAction(List<Double> state, double reward, int agentNum, int action) {
+		}
+
+		@Override
+		public void reset() {
+			random = new Random(seed);
+		}
+
+	}
+
+}
@@ -0,0 +1,71 @@
+package tests;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import Backgammon.Board;
+import Backgammon.DiceStream;
+import Backgammon.ExpectiminimaxSearch;
+import learner.SarsaLambda;
+import learner.Settings;
+
+/**
+ * Testing class for the Backgammon expectiminimax search. Plays seeded AI vs
+ * AI games choosing every move with searches of 1 ply up to a given depth,
+ * and prints the mean and longest time taken per move and the positions
+ * evaluated per move at each depth. Moves with only one choice are not
+ * searched, so are not counted.
+ * 
+ * Run with the deepest search, the time budget per move in milliseconds (0
+ * for none), the number of moves to time at each depth and optionally a
+ * weights file saved by SarsaLambda.save; otherwise an untrained learner is
+ * used.
+ * 
+ * @author Alex Braithwaite
+ * 
+ */
+public class SearchTester {
+
+	private static final long seed = 1;
+
+	public static void main(String[] args) throws IOException {
+		int maxPlies = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+		long timeBudget = args.length > 1 ? Long.parseLong(args[1]) : 0;
+		int moves = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+		SarsaLambda learner = args.length > 3 ? SarsaLambda.read(args[3])
+				: new SarsaLambda(new Settings(80, 5.2, 0.8, 0.9, 0, 0, 0, 0, 0, 0, 2, 198, 2, 5, 0));
+
+		for (int plies = 1; plies <= maxPlies; plies++) {
+			ExpectiminimaxSearch search = new ExpectiminimaxSearch(learner, plies, timeBudget);
+			DiceStream gameSeeds = new DiceStream(seed);
+
+			int timed = 0;
+			long total = 0, longest = 0;
+			long positionsStart = search.getPositionsEvaluated();
+			Board current = new Board(new DiceStream(gameSeeds.nextSeed()));
+			while (timed < moves) {
+				if (current.gameOver())
+					current = new Board(new DiceStream(gameSeeds.nextSeed()));
+
+				List<Board> nextBoards = new ArrayList<Board>(current.availableMoves());
+				long start = System.nanoTime();
+				Board next = search.selectMove(current, nextBoards);
+				long time = System.nanoTime() - start;
+				if (nextBoards.size() > 1) {
+					timed++;
+					total += time;
+					longest = Math.max(longest, time);
+				}
+				current = next;
+			}
+			long positions = search.getPositionsEvaluated() - positionsStart;
+			search.shutdown();
+
+			System.out.println(String.format("%d-ply: %.1f ms/move, longest %.1f ms, %d positions/move", plies,
+					total / 1e6 / timed, longest / 1e6, positions / timed));
+		}
+	}
+
+}
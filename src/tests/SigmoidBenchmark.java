@@ -0,0 +1,188 @@
+package tests;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import Backgammon.BackgammonGame;
+import demolition.DemolitionConfig;
+import demolition.DemolitionGame;
+import demolition.MapPool;
+import learner.QNetwork;
+import learner.SAPair;
+import learner.SarsaLambda;
+import learner.Settings;
+import learner.Sigmoid;
+import simulator.Game;
+import trader.TradingGame;
+
+/**
+ * Benchmark comparing the exact sigmoid with the interpolated table. Prints
+ * the largest difference between them, the time per sigmoid and per network
+ * forward pass for the network sizes each game uses, and the reward after
+ * each trial of every game learnt with each sigmoid.
+ * 
+ * Run with the number of trials of each game to learn. Games whose data
+ * can't be loaded are skipped.
+ * 
+ * @author Alex Braithwaite
+ * 
+ */
+public class SigmoidBenchmark {
+
+	private static final long seed = 1;
+
+	/**
+	 * Number of times each timing is repeated, alternating between the exact
+	 * sigmoid and the table, keeping the fastest.
+	 */
+	private static final int repeats = 4;
+
+	/**
+	 * Sum of every result timed, so the timed loops can't be optimised away.
+	 */
+	static double sink = 0;
+
+	public static void main(String[] args) {
+		int trials = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+		boolean defaultUseTable = Sigmoid.getUseTable();
+
+		// error
+		double maxError = 0;
+		for (double z = -40; z <= 40; z += 1e-5)
+			maxError = Math.max(maxError, Math.abs(Sigmoid.table(z) - Sigmoid.exact(z)));
+		System.out.println("Largest table error: " + maxError + " (bound " + Sigmoid.tableError + ")");
+
+		// sigmoid alone
+		double[] zs = new double[1 << 16];
+		Random random = new Random(seed);
+		for (int i = 0; i < zs.length; i++)
+			zs[i] = random.nextGaussian() * 4;
+		double[] best = { Double.MAX_VALUE, Double.MAX_VALUE };
+		for (int repeat = 0; repeat < repeats; repeat++) {
+			for (int m = 0; m < 2; m++) {
+				// alternate which goes first
+				boolean useTable = (m + repeat) % 2 == 1;
+				Sigmoid.setUseTable(useTable);
+				long start = System.nanoTime();
+				double sum = 0;
+				for (int r = 0; r < 200; r++) {
+					for (double z : zs)
+						sum += Sigmoid.get(z);
+				}
+				double time = (System.nanoTime() - start) / (200. * zs.length);
+				sink += sum;
+				best[useTable ? 1 : 0] = Math.min(best[useTable ? 1 : 0], time);
+			}
+		}
+		for (int m = 0; m < 2; m++)
+			System.out.println(String.format("%s sigmoid: %.2f ns", name(m == 1), best[m]));
+
+		// forward passes: inputs and hidden neurons of each game's networks
+		forwardPass("Demolition", DemolitionConfig.defaults().sensorsTotal, 20);
+		forwardPass("Backgammon", 198, 80);
+		forwardPass("Trading", 5 * 31, 10);
+
+		// learning
+		for (String gameType : new String[] { "Demolition", "Backgammon", "Trading" }) {
+			for (boolean useTable : new boolean[] { false, true }) {
+				Sigmoid.setUseTable(useTable);
+				learn(gameType, trials, useTable);
+			}
+		}
+		Sigmoid.setUseTable(defaultUseTable);
+	}
+
+	private static String name(boolean useTable) {
+		return useTable ? "Table" : "Exact";
+	}
+
+	/**
+	 * Time forward passes through a network, with saturated inputs of +-10
+	 * and inputs spread between.
+	 * 
+	 * @param game
+	 * @param numInputs
+	 * @param hiddenNodes
+	 */
+	private static void forwardPass(String game, int numInputs, int hiddenNodes) {
+		Random random = new Random(seed);
+		List<SAPair<Double>> states = new ArrayList<SAPair<Double>>();
+		for (int s = 0; s < 256; s++) {
+			List<Double> state = new ArrayList<Double>(numInputs);
+			for (int i = 0; i < numInputs; i++)
+				state.add(random.nextBoolean() ? (random.nextBoolean() ? 10. : -10.) : random.nextGaussian() * 3);
+			states.add(new SAPair<Double>(state, 0));
+		}
+		QNetwork network = new QNetwork(hiddenNodes, numInputs + 1, 1);
+
+		double[] best = new double[2];
+		for (int repeat = 0; repeat < repeats; repeat++) {
+			for (int m = 0; m < 2; m++) {
+				// alternate which goes first
+				boolean useTable = (m + repeat) % 2 == 1;
+				Sigmoid.setUseTable(useTable);
+				long start = System.nanoTime();
+				double sum = 0;
+				int passes = 0;
+				while (System.nanoTime() - start < 1e9) {
+					for (SAPair<Double> sa : states)
+						sum += network.get(sa);
+					passes += states.size();
+				}
+				double rate = passes / ((System.nanoTime() - start) / 1e9);
+				sink += sum;
+				best[useTable ? 1 : 0] = Math.max(best[useTable ? 1 : 0], rate);
+			}
+		}
+		for (int m = 0; m < 2; m++)
+			System.out.println(String.format("%s %s forward pass (%d inputs, %d hidden): %.0f passes/s", game,
+					name(m == 1), numInputs, hiddenNodes, best[m]));
+	}
+
+	/**
+	 * Learn a game, printing the reward after each trial.
+	 * 
+	 * @param gameType
+	 * @param trials
+	 * @param useTable
+	 */
+	private static void learn(String gameType, int trials, boolean useTable) {
+		Game game;
+		Settings s;
+		if (gameType.equals("Demolition")) {
+			DemolitionConfig config = DemolitionConfig.defaults();
+			DemolitionGame demolition = new DemolitionGame(false, config);
+			demolition.setMapPool(new MapPool(config, trials, seed));
+			game = demolition;
+			s = new Settings(20, 0.2578875171467764, 0.95255647698944, 0.3238726864076799, 0.037311385459533594,
+					0.008779149519890258, 0, 0, 0, 0, config.numAgents, config.sensorsTotal, 12, 15, 0);
+		} else if (gameType.equals("Backgammon")) {
+			BackgammonGame backgammon = new BackgammonGame(false);
+			backgammon.setSeed(seed);
+			game = backgammon;
+			s = new Settings(80, 5.2, 0.8, 0.9, 0, 0, 0, 0, 0, 0, 2, 198, 2, 5, 0);
+		} else {
+			game = new TradingGame();
+			s = new Settings(10, 6.4, 0.24, 0.64, 0.1, 0.08, 0, 0, 0, 0, 1, 5, 2, 1, 30);
+		}
+
+		StringBuilder rewards = new StringBuilder();
+		long start = System.nanoTime();
+		try {
+			game.setupGame();
+			SarsaLambda brain = new SarsaLambda(s);
+			brain.setSeed(seed);
+			game.setLeaner(brain);
+			for (int trial = 0; trial < trials; trial++)
+				rewards.append(String.format(" %.4f", game.runTrial()));
+			game.teardown();
+		} catch (RuntimeException e) {
+			System.out.println(gameType + " " + name(useTable) + ": skipped (" + e + ")");
+			return;
+		}
+		System.out.println(String.format("%s %s: %.1fs, rewards%s", gameType, name(useTable),
+				(System.nanoTime() - start) / 1e9, rewards));
+	}
+
+}
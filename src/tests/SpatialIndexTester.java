@@ -0,0 +1,163 @@
+package tests;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import demolition.DemolitionConfig;
+import demolition.DemolitionGame;
+import demolition.MapPool;
+import demolition.RayHit;
+import demolition.WallBVH;
+import demolitionEntities.Agent;
+import demolitionEntities.Wall;
+import demolitionUtilities.Geometry;
+import demolitionUtilities.Line2D;
+import demolitionUtilities.Vector2D;
+import learner.SarsaLambda;
+import learner.Settings;
+
+/**
+ * Testing class for the Demolition Game's spatial indexes. Casts random rays
+ * and makes random collision queries against the wall hierarchy and the agent
+ * grid of a game part way through, and checks they find the same hits at the
+ * same distances as checking every wall and agent.
+ * 
+ * Run with the number of rays and queries.
+ * 
+ * @author Alex Braithwaite
+ * 
+ */
+public class SpatialIndexTester {
+
+	private static final long seed = 1;
+
+	/**
+	 * Largest difference allowed between distances found by an index and by
+	 * checking everything.
+	 */
+	private static final double tolerance = 1e-9;
+
+	public static void main(String[] args) {
+		int queries = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+
+		DemolitionConfig config = new DemolitionConfig.Builder().walls(80, 20, 200, 10).gameLength(300).build();
+		DemolitionGame game = new DemolitionGame(false, config);
+		game.setSeed(seed);
+		game.setupGame();
+		game.setMapPool(new MapPool(config, 1, seed));
+		Settings s = new Settings(20, 0.2578875171467764, 0.95255647698944, 0.3238726864076799, 0.037311385459533594,
+				0.008779149519890258, 0, 0, 0, 0, config.numAgents, config.sensorsTotal, 12, 15, 0);
+		SarsaLambda brain = new SarsaLambda(s);
+		brain.setSeed(seed);
+		game.setLeaner(brain);
+		// spread the agents over the map
+		game.runTrial();
+
+		// walls including the map edges
+		List<Wall> walls = new ArrayList<Wall>(game.walls);
+		walls.add(new Wall(new Vector2D(0, 0), new Vector2D(config.worldX, 0)));
+		walls.add(new Wall(new Vector2D(0, 0), new Vector2D(0, config.worldY)));
+		walls.add(new Wall(new Vector2D(config.worldX, 0), new Vector2D(config.worldX, config.worldY)));
+		walls.add(new Wall(new Vector2D(0, config.worldY), new Vector2D(config.worldX, config.worldY)));
+		WallBVH bvh = new WallBVH(walls);
+
+		Random random = new Random(seed);
+		RayHit hit = new RayHit();
+		int wallRays = 0, agentRays = 0, wallQueries = 0, agentQueries = 0;
+		List<Wall> nearWalls = new ArrayList<Wall>();
+		List<Agent> nearAgents = new ArrayList<Agent>();
+		for (int q = 0; q < queries; q++) {
+			// ray from a random point, or from an agent as sensors are cast
+			Agent from = game.agents.get(random.nextInt(game.agents.size()));
+			boolean fromAgent = random.nextBoolean();
+			double ox = fromAgent ? from.getX() : random.nextDouble() * config.worldX;
+			double oy = fromAgent ? from.getY() : random.nextDouble() * config.worldY;
+			double angle = random.nextDouble() * 2 * Math.PI;
+			double dx = Math.cos(angle), dy = Math.sin(angle);
+			double length = random.nextDouble() * config.sensorMaxRange;
+			Agent ignore = fromAgent ? from : null;
+
+			// walls
+			bvh.castRay(ox, oy, dx, dy, length, hit);
+			Line2D ray = new Line2D(new Vector2D(ox, oy), new Vector2D(dx, dy));
+			double best = length;
+			Wall bestWall = null;
+			for (Wall w : walls) {
+				Double[] d = ray.intersect(w.getLine());
+				if (d[0] != null && d[1] > 0 && d[1] < w.getLength() && d[0] > 0 && d[0] < best) {
+					best = d[0];
+					bestWall = w;
+				}
+			}
+			if (!same(hit, best, bestWall)) {
+				wallRays++;
+				System.out.println("FAIL: wall ray from (" + ox + ", " + oy + ") at " + angle + ": index "
+						+ hit.getDistance() + ", every wall " + best);
+			}
+
+			// agents
+			game.grid.castRay(ox, oy, dx, dy, length, ignore, hit);
+			best = length;
+			Agent bestAgent = null;
+			for (Agent a : game.agents) {
+				if (a == ignore)
+					continue;
+				double d = Geometry.rayCircle(ox, oy, dx, dy, a.getX(), a.getY(), config.agentRadius);
+				if (d < best) {
+					best = d;
+					bestAgent = a;
+				}
+			}
+			if (!same(hit, best, bestAgent)) {
+				agentRays++;
+				System.out.println("FAIL: agent ray from (" + ox + ", " + oy + ") at " + angle + ": index "
+						+ hit.getDistance() + ", every agent " + best);
+			}
+
+			// walls touching a circle must all be near it
+			double r = config.agentRadius * (1 + random.nextDouble());
+			bvh.wallsNear(ox, oy, r, nearWalls);
+			for (Wall w : walls) {
+				Line2D l = w.getLine();
+				double d2 = Geometry.segmentDistanceSquared(l.getStart().getX(), l.getStart().getY(),
+						l.getDirection().getX(), l.getDirection().getY(), w.getLength(), ox, oy);
+				if (d2 <= r * r && !nearWalls.contains(w)) {
+					wallQueries++;
+					System.out.println("FAIL: wall " + Math.sqrt(d2) + " from (" + ox + ", " + oy + ") not near");
+				}
+			}
+
+			// agents touching an agent must all be near it
+			game.grid.agentsNear(from, nearAgents);
+			for (Agent a : game.agents) {
+				if (a != from && Geometry.distance(a.getX(), a.getY(), from.getX(), from.getY()) <= 2
+						* config.agentRadius && !nearAgents.contains(a)) {
+					agentQueries++;
+					System.out.println("FAIL: agent touching agent " + from.getIndex() + " not near");
+				}
+			}
+		}
+		game.teardown();
+
+		System.out.println(queries + " queries on " + walls.size() + " walls and " + game.agents.size()
+				+ " agents: " + wallRays + " wall rays, " + agentRays + " agent rays, " + wallQueries
+				+ " wall queries and " + agentQueries + " agent queries differ");
+		if (wallRays + agentRays + wallQueries + agentQueries == 0)
+			System.out.println("PASS");
+	}
+
+	/**
+	 * Check a ray cast found the same hit at the same distance as checking
+	 * everything.
+	 * 
+	 * @param hit
+	 * @param distance
+	 * @param entity
+	 * @return
+	 */
+	private static boolean same(RayHit hit, double distance, Object entity) {
+		return hit.getHit() == entity && Math.abs(hit.getDistance() - distance) <= tolerance;
+	}
+
+}
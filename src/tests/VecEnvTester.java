@@ -0,0 +1,94 @@
+package tests;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import demolition.DemolitionConfig;
+import learner.SarsaLambda;
+import learner.Settings;
+
+/**
+ * Testing class for batched action choices, as made by DemolitionVecEnv.
+ * Gives two copies of the same seeded learner the same observations of every
+ * agent of several games, asking one for every agent's action in one batch
+ * with getActions and the other for each agent's action in turn with
+ * getAction, and checks they choose the same actions.
+ * 
+ * A batch is evaluated before any of its agents' updates, while agents asking
+ * in turn see the updates of agents before them, so the learners only match
+ * over many time steps when not learning. With learning, only the first time
+ * step, before any update, is checked.
+ * 
+ * Run with the number of games and the number of time steps.
+ * 
+ * @author Alex Braithwaite
+ * 
+ */
+public class VecEnvTester {
+
+	private static final long seed = 1;
+
+	public static void main(String[] args) {
+		int games = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+		int steps = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+		boolean pass = check("Not learning", 0, games, steps);
+		pass &= check("Learning", 0.2578875171467764, games, 1);
+		if (pass)
+			System.out.println("PASS");
+	}
+
+	/**
+	 * Compare batched and per-agent actions.
+	 * 
+	 * @param name
+	 * @param alpha
+	 *            Learning rate.
+	 * @param games
+	 * @param steps
+	 * @return Whether every action matched.
+	 */
+	private static boolean check(String name, double alpha, int games, int steps) {
+		DemolitionConfig config = DemolitionConfig.defaults();
+		int numAgents = games * config.numAgents;
+		Settings s = new Settings(20, alpha, 0.95255647698944, 0.3238726864076799, 0.037311385459533594,
+				0.008779149519890258, 0, 0, 0, 0, numAgents, config.sensorsTotal, 12, 15, 0);
+		SarsaLambda learner = new SarsaLambda(s);
+		SarsaLambda batched = learner.snapshot(seed);
+		SarsaLambda single = learner.snapshot(seed);
+
+		Random random = new Random(seed);
+		int[] agentNums = new int[numAgents];
+		for (int i = 0; i < numAgents; i++)
+			agentNums[i] = i;
+
+		int actions = 0, mismatches = 0;
+		for (int step = 0; step < steps; step++) {
+			List<List<Double>> states = new ArrayList<List<Double>>(numAgents);
+			double[] rewards = new double[numAgents];
+			for (int i = 0; i < numAgents; i++) {
+				List<Double> state = new ArrayList<Double>(config.sensorsTotal);
+				for (int j = 0; j < config.sensorsTotal; j++)
+					state.add(random.nextGaussian() * 3);
+				states.add(state);
+				rewards[i] = random.nextGaussian();
+			}
+
+			int[] batch = batched.getActions(states, rewards, agentNums);
+			for (int i = 0; i < numAgents; i++) {
+				int action = single.getAction(states.get(i), rewards[i], agentNums[i]);
+				actions++;
+				if (action != batch[i])
+					mismatches++;
+			}
+		}
+
+		System.out.println(name + ": " + games + " games of " + config.numAgents + " agents, " + steps
+				+ " time steps, " + mismatches + " of " + actions + " actions differ");
+		if (mismatches > 0)
+			System.out.println("FAIL: " + name);
+		return mismatches == 0;
+	}
+
+}